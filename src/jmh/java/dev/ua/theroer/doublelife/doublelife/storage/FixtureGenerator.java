@@ -0,0 +1,307 @@
+package dev.ua.theroer.doublelife.doublelife.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rebuilds the checked-in {@link SessionFixture} files ({@code ./gradlew jmhFixtures}). Items are
+ * written the way Paper's {@code ItemStack#serializeAsBytes()} does for 1.21.4: a gzip-compressed
+ * NBT compound with the item id, count, data components and data version. Output is deterministic,
+ * so regenerating only changes the files when this class changes.
+ */
+public final class FixtureGenerator {
+
+    private static final int DATA_VERSION = 4189;
+    private static final int INVENTORY_SLOTS = 41;
+    private static final int ARMOR_SLOTS = 4;
+    private static final int ENDER_CHEST_SLOTS = 27;
+    private static final String[] WORDS = {
+        "the", "river", "stone", "north", "village", "diamond", "night", "farm", "portal", "ancient",
+        "city", "beneath", "warden", "quiet", "torch", "mine", "shaft", "iron", "golem", "trade",
+        "emerald", "map", "ocean", "monument", "guardian", "sponge", "elytra", "end", "ship", "sky",
+        "build", "tower", "bridge", "redstone", "clock", "hopper", "chest", "storage", "sorting", "system"
+    };
+
+    private final Random random;
+
+    private FixtureGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args.length > 0 ? args[0] : "src/jmh/resources/fixtures");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        for (SessionFixture fixture : SessionFixture.values()) {
+            SessionRecord record = new FixtureGenerator(fixture.ordinal() + 1L).build(fixture);
+            File file = new File(directory, fixture.name().toLowerCase(Locale.ROOT) + ".json");
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                LegacyJsonWriter.write(writer, record);
+            }
+            System.out.println("Wrote " + file + " (" + file.length() + " bytes)");
+        }
+    }
+
+    private SessionRecord build(SessionFixture fixture) {
+        SessionRecord record = new SessionRecord();
+        record.playerUuid = new UUID(random.nextLong(), random.nextLong());
+        record.playerName = "Fixture_" + fixture.name().toLowerCase(Locale.ROOT);
+        record.startTime = 1_735_689_600_000L;
+        record.duration = 3600;
+        record.activeProfiles = new String[]{"builder", "helper"};
+        record.savedGameMode = "SURVIVAL";
+        record.worldName = "world";
+        record.x = 128.5;
+        record.y = 64.0;
+        record.z = -311.5;
+        record.yaw = 90.0f;
+        record.pitch = 12.5f;
+        record.savedHealth = 20.0;
+        record.savedFoodLevel = 20;
+        record.savedExp = 0.42f;
+        record.savedLevel = 30;
+        record.originalGroups = new String[]{"default", "member"};
+        record.temporaryGroupName = "doublelife_builder_helper";
+
+        record.savedInventory = new byte[INVENTORY_SLOTS][];
+        record.savedArmor = new byte[ARMOR_SLOTS][];
+        record.savedEnderChest = new byte[ENDER_CHEST_SLOTS][];
+        switch (fixture) {
+            case EMPTY -> {
+            }
+            case SURVIVAL -> fillSurvival(record);
+            case SHULKERS -> {
+                fillArmor(record);
+                for (int slot = 0; slot < 36; slot++) {
+                    record.savedInventory[slot] = payload(shulkerBox(slot));
+                }
+                for (int slot = 0; slot < ENDER_CHEST_SLOTS; slot++) {
+                    record.savedEnderChest[slot] = payload(shulkerBox(36 + slot));
+                }
+            }
+            case BOOKS -> {
+                for (int slot = 0; slot < 36; slot++) {
+                    record.savedInventory[slot] = payload(writtenBook(slot));
+                }
+                for (int slot = 0; slot < 9; slot++) {
+                    record.savedEnderChest[slot] = payload(writtenBook(36 + slot));
+                }
+            }
+        }
+        return record;
+    }
+
+    private void fillSurvival(SessionRecord record) {
+        String[] tools = {"netherite_sword", "netherite_pickaxe", "diamond_axe", "diamond_shovel", "bow"};
+        for (int slot = 0; slot < tools.length; slot++) {
+            record.savedInventory[slot] = payload(enchantedGear(tools[slot], false));
+        }
+        record.savedInventory[5] = payload(item("cooked_beef", 64));
+        record.savedInventory[6] = payload(item("torch", 64));
+        record.savedInventory[7] = payload(item("water_bucket", 1));
+        record.savedInventory[8] = payload(item("ender_pearl", 16));
+        String[] blocks = {"cobblestone", "dirt", "oak_log", "iron_ingot", "redstone", "coal", "deepslate",
+            "oak_planks", "glass", "gold_ingot", "arrow", "bone", "string", "gunpowder"};
+        for (int slot = 9; slot < 36; slot++) {
+            if (random.nextInt(4) != 0) {
+                record.savedInventory[slot] = payload(item(blocks[random.nextInt(blocks.length)], 1 + random.nextInt(64)));
+            }
+        }
+        fillArmor(record);
+        record.savedInventory[40] = payload(item("totem_of_undying", 1));
+        for (int slot = 0; slot < ENDER_CHEST_SLOTS; slot += 2) {
+            record.savedEnderChest[slot] = payload(item(blocks[random.nextInt(blocks.length)], 64));
+        }
+    }
+
+    private void fillArmor(SessionRecord record) {
+        String[] armor = {"diamond_boots", "diamond_leggings", "diamond_chestplate", "diamond_helmet"};
+        for (int i = 0; i < armor.length; i++) {
+            byte[] piece = payload(enchantedGear(armor[i], false));
+            record.savedArmor[i] = piece;
+            record.savedInventory[36 + i] = piece;
+        }
+    }
+
+    private Map<String, Object> item(String id, int count) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("id", "minecraft:" + id);
+        item.put("count", count);
+        return item;
+    }
+
+    private Map<String, Object> enchantedGear(String id, boolean named) {
+        Map<String, Object> item = item(id, 1);
+        Map<String, Object> components = new LinkedHashMap<>();
+        Map<String, Object> levels = new LinkedHashMap<>();
+        levels.put("minecraft:unbreaking", 3);
+        levels.put("minecraft:mending", 1);
+        if (id.endsWith("sword")) {
+            levels.put("minecraft:sharpness", 5);
+            levels.put("minecraft:looting", 3);
+            levels.put("minecraft:sweeping_edge", 3);
+        } else if (id.endsWith("pickaxe") || id.endsWith("axe") || id.endsWith("shovel")) {
+            levels.put("minecraft:efficiency", 5);
+            levels.put("minecraft:fortune", 3);
+        } else if (id.equals("bow")) {
+            levels.put("minecraft:power", 5);
+            levels.put("minecraft:infinity", 1);
+        } else {
+            levels.put("minecraft:protection", 4);
+        }
+        Map<String, Object> enchantments = new LinkedHashMap<>();
+        enchantments.put("levels", levels);
+        components.put("minecraft:enchantments", enchantments);
+        components.put("minecraft:damage", random.nextInt(400));
+        components.put("minecraft:repair_cost", 31);
+        if (named) {
+            components.put("minecraft:custom_name", text(sentence(3)));
+            List<Object> lore = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                lore.add(text(sentence(8)));
+            }
+            components.put("minecraft:lore", lore);
+        }
+        item.put("components", components);
+        return item;
+    }
+
+    private Map<String, Object> shulkerBox(int index) {
+        String[] gear = {"netherite_sword", "netherite_pickaxe", "netherite_axe", "netherite_helmet",
+            "netherite_chestplate", "netherite_leggings", "netherite_boots", "bow", "crossbow", "trident"};
+        List<Object> contents = new ArrayList<>();
+        for (int slot = 0; slot < 27; slot++) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("slot", slot);
+            entry.put("item", enchantedGear(gear[random.nextInt(gear.length)], true));
+            contents.add(entry);
+        }
+        Map<String, Object> components = new LinkedHashMap<>();
+        components.put("minecraft:container", contents);
+        components.put("minecraft:custom_name", text("Kit #" + index));
+        Map<String, Object> item = item("shulker_box", 1);
+        item.put("components", components);
+        return item;
+    }
+
+    private Map<String, Object> writtenBook(int index) {
+        List<Object> pages = new ArrayList<>();
+        for (int page = 0; page < 30; page++) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("raw", text(sentence(40)));
+            pages.add(entry);
+        }
+        Map<String, Object> title = new LinkedHashMap<>();
+        title.put("raw", "Journal " + index);
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("pages", pages);
+        content.put("title", title);
+        content.put("author", "Fixture");
+        content.put("generation", 0);
+        content.put("resolved", (byte) 1);
+        Map<String, Object> components = new LinkedHashMap<>();
+        components.put("minecraft:written_book_content", content);
+        Map<String, Object> item = item("written_book", 1);
+        item.put("components", components);
+        return item;
+    }
+
+    private String sentence(int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String text(String value) {
+        return "{\"text\":\"" + value + "\",\"italic\":false}";
+    }
+
+    private static byte[] payload(Map<String, Object> item) {
+        item.put("DataVersion", DATA_VERSION);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeByte(Nbt.COMPOUND);
+            out.writeUTF("");
+            Nbt.writePayload(out, item);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Minimal NBT writer for the value types used above.
+     */
+    private static final class Nbt {
+        private static final int END = 0;
+        private static final int BYTE = 1;
+        private static final int INT = 3;
+        private static final int STRING = 8;
+        private static final int LIST = 9;
+        private static final int COMPOUND = 10;
+
+        private static int type(Object value) {
+            if (value instanceof Byte) {
+                return BYTE;
+            }
+            if (value instanceof Integer) {
+                return INT;
+            }
+            if (value instanceof String) {
+                return STRING;
+            }
+            if (value instanceof List) {
+                return LIST;
+            }
+            if (value instanceof Map) {
+                return COMPOUND;
+            }
+            throw new IllegalArgumentException("Unsupported NBT value " + value);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void writePayload(DataOutputStream out, Object value) throws IOException {
+            switch (type(value)) {
+                case BYTE -> out.writeByte((Byte) value);
+                case INT -> out.writeInt((Integer) value);
+                case STRING -> out.writeUTF((String) value);
+                case LIST -> {
+                    List<Object> list = (List<Object>) value;
+                    out.writeByte(list.isEmpty() ? END : type(list.get(0)));
+                    out.writeInt(list.size());
+                    for (Object element : list) {
+                        writePayload(out, element);
+                    }
+                }
+                default -> {
+                    for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                        out.writeByte(type(entry.getValue()));
+                        out.writeUTF(entry.getKey());
+                        writePayload(out, entry.getValue());
+                    }
+                    out.writeByte(END);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package dev.ua.theroer.doublelife.doublelife.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.Writer;
+import java.util.Base64;
+
+/**
+ * The pretty-printed Gson/Base64 writer that sessions were saved with before the binary format,
+ * kept here so benchmarks can compare against it. Produces the layout {@link LegacyJsonCodec}
+ * reads.
+ */
+final class LegacyJsonWriter {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private LegacyJsonWriter() {
+    }
+
+    static void write(Writer writer, SessionRecord record) {
+        SessionData data = new SessionData();
+        data.playerUuid = record.playerUuid.toString();
+        data.playerName = record.playerName;
+        data.startTime = record.startTime;
+        data.duration = record.duration;
+        data.activeProfiles = record.activeProfiles;
+        data.savedInventory = encodeItems(record.savedInventory);
+        data.savedArmor = encodeItems(record.savedArmor);
+        data.savedEnderChest = encodeItems(record.savedEnderChest);
+        data.savedGameMode = record.savedGameMode;
+        if (record.worldName != null) {
+            LocationData location = new LocationData();
+            location.world = record.worldName;
+            location.x = record.x;
+            location.y = record.y;
+            location.z = record.z;
+            location.yaw = record.yaw;
+            location.pitch = record.pitch;
+            data.savedLocation = location;
+        }
+        data.savedHealth = record.savedHealth;
+        data.savedFoodLevel = record.savedFoodLevel;
+        data.savedExp = record.savedExp;
+        data.savedLevel = record.savedLevel;
+        data.originalGroups = record.originalGroups;
+        data.temporaryGroupName = record.temporaryGroupName;
+        GSON.toJson(data, writer);
+    }
+
+    private static String[] encodeItems(byte[][] items) {
+        String[] encoded = new String[items.length];
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] != null) {
+                encoded[i] = Base64.getEncoder().encodeToString(items[i]);
+            }
+        }
+        return encoded;
+    }
+
+    private static class SessionData {
+        String playerUuid;
+        String playerName;
+        long startTime;
+        int duration;
+        String[] activeProfiles;
+        String[] savedInventory;
+        String[] savedArmor;
+        String[] savedEnderChest;
+        String savedGameMode;
+        LocationData savedLocation;
+        double savedHealth;
+        int savedFoodLevel;
+        float savedExp;
+        int savedLevel;
+        String[] originalGroups;
+        String temporaryGroupName;
+    }
+
+    private static class LocationData {
+        String world;
+        double x;
+        double y;
+        double z;
+        float yaw;
+        float pitch;
+    }
+}
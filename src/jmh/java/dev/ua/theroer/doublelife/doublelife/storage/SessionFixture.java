@@ -0,0 +1,38 @@
+package dev.ua.theroer.doublelife.doublelife.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Checked-in session files used by the benchmarks, stored in the legacy JSON layout so the
+ * benchmarks need nothing but the files themselves. The item payloads are gzip-compressed NBT shaped like Paper's
+ * {@code ItemStack#serializeAsBytes()} output; {@link FixtureGenerator} rebuilds them.
+ */
+enum SessionFixture {
+    /** Everything empty: the smallest possible session. */
+    EMPTY,
+    /** Mixed stacks, worn tools and enchanted diamond armor. */
+    SURVIVAL,
+    /** Inventory and ender chest full of shulker boxes holding enchanted, named gear. */
+    SHULKERS,
+    /** Written books with long pages of text. */
+    BOOKS;
+
+    String resourceName() {
+        return "/fixtures/" + name().toLowerCase(Locale.ROOT) + ".json";
+    }
+
+    SessionRecord load() throws IOException {
+        InputStream in = SessionFixture.class.getResourceAsStream(resourceName());
+        if (in == null) {
+            throw new IOException("Missing benchmark fixture " + resourceName());
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return LegacyJsonCodec.read(reader);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package dev.ua.theroer.doublelife.doublelife.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Session file formats under comparison. Each encodes a {@link SessionRecord} to the exact bytes
+ * {@code InventoryStorage} would write and decodes them back, minus the Bukkit item conversion,
+ * which costs the same for every format.
+ */
+enum SessionFormat {
+    /** Pretty-printed Gson with Base64 item payloads, as written before the binary format. */
+    JSON {
+        @Override
+        byte[] encode(SessionRecord record) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+                LegacyJsonWriter.write(writer, record);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        byte[] reencode(SessionRecord record) throws IOException {
+            // Nothing is cached between saves in the JSON format.
+            return encode(record);
+        }
+
+        @Override
+        SessionRecord decode(byte[] data) throws IOException {
+            try (InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8)) {
+                return LegacyJsonCodec.read(reader);
+            }
+        }
+    },
+    BINARY(false),
+    BINARY_DEFLATE(true);
+
+    private final boolean compress;
+
+    SessionFormat() {
+        this(false);
+    }
+
+    SessionFormat(boolean compress) {
+        this.compress = compress;
+    }
+
+    /**
+     * First save of a session: the body is encoded from scratch.
+     */
+    byte[] encode(SessionRecord record) throws IOException {
+        return write(record, SessionCodec.encodeSnapshot(record, compress));
+    }
+
+    /**
+     * Later save of the same session, reusing the body encoded on the first save.
+     */
+    byte[] reencode(SessionRecord record) throws IOException {
+        if (record.snapshot == null) {
+            record.snapshot = SessionCodec.encodeSnapshot(record, compress);
+        }
+        return write(record, record.snapshot);
+    }
+
+    SessionRecord decode(byte[] data) throws IOException {
+        return SessionCodec.decode(data);
+    }
+
+    private static byte[] write(SessionRecord record, SessionSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(snapshot.size() + 256);
+        SessionCodec.write(bytes, record, snapshot);
+        return bytes.toByteArray();
+    }
+}
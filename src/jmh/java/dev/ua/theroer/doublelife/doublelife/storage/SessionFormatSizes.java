@@ -0,0 +1,31 @@
+package dev.ua.theroer.doublelife.doublelife.storage;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Prints the file size of every benchmark fixture in every format. JMH reports rates, not sizes,
+ * so this runs as its own task ({@code ./gradlew jmhSizes}).
+ */
+public final class SessionFormatSizes {
+
+    private SessionFormatSizes() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        SessionFormat[] formats = SessionFormat.values();
+        StringBuilder header = new StringBuilder(String.format("%-10s", "fixture"));
+        for (SessionFormat format : formats) {
+            header.append(String.format("%16s", format.name().toLowerCase(Locale.ROOT)));
+        }
+        System.out.println(header);
+        for (SessionFixture fixture : SessionFixture.values()) {
+            SessionRecord record = fixture.load();
+            StringBuilder line = new StringBuilder(String.format("%-10s", fixture.name().toLowerCase(Locale.ROOT)));
+            for (SessionFormat format : formats) {
+                line.append(String.format("%16d", format.encode(record).length));
+            }
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package dev.ua.theroer.doublelife.doublelife.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save and load cost of one session file per format and fixture. {@code save} is the first save
+ * of a session, {@code resave} every later one (the binary formats reuse the encoded body) and
+ * {@code load} reads a file back into a record. Run with {@code ./gradlew jmh}; the build enables
+ * the {@code gc} profiler for allocation rates, and {@code ./gradlew jmhSizes} prints file sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SessionStorageBenchmark {
+
+    @Param({"EMPTY", "SURVIVAL", "SHULKERS", "BOOKS"})
+    public SessionFixture fixture;
+
+    @Param({"JSON", "BINARY", "BINARY_DEFLATE"})
+    public SessionFormat format;
+
+    private SessionRecord record;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        record = fixture.load();
+        encoded = format.encode(record);
+        format.reencode(record);
+    }
+
+    @Benchmark
+    public byte[] save() throws IOException {
+        return format.encode(record);
+    }
+
+    @Benchmark
+    public byte[] resave() throws IOException {
+        return format.reencode(record);
+    }
+
+    @Benchmark
+    public SessionRecord load() throws IOException {
+        return format.decode(encoded);
+    }
+}
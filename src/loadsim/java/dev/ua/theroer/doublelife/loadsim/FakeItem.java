@@ -0,0 +1,38 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Random;
+
+/**
+ * Item that is nothing but its serialized payload. Real item stacks need a server behind them;
+ * the storage path only ever asks for the bytes, so that is all a fake item carries.
+ */
+final class FakeItem extends ItemStack {
+
+    private final byte[] payload;
+
+    FakeItem(byte[] payload) {
+        this.payload = payload;
+    }
+
+    /**
+     * Random bytes sized like a compressed NBT item: mostly plain stacks, some heavier gear.
+     */
+    static FakeItem random(Random random) {
+        int size = random.nextInt(10) == 0 ? 600 + random.nextInt(1400) : 80 + random.nextInt(160);
+        byte[] payload = new byte[size];
+        random.nextBytes(payload);
+        return new FakeItem(payload);
+    }
+
+    @Override
+    public byte[] serializeAsBytes() {
+        return payload.clone();
+    }
+
+    @Override
+    public FakeItem clone() {
+        return this;
+    }
+}
@@ -0,0 +1,401 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.event.EventBus;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.model.data.DataMutateResult;
+import net.luckperms.api.model.data.NodeMap;
+import net.luckperms.api.model.group.Group;
+import net.luckperms.api.model.group.GroupManager;
+import net.luckperms.api.model.user.User;
+import net.luckperms.api.model.user.UserManager;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.NodeBuilderRegistry;
+import net.luckperms.api.node.NodeType;
+import net.luckperms.api.node.matcher.NodeMatcher;
+import net.luckperms.api.node.matcher.NodeMatcherFactory;
+import net.luckperms.api.node.types.DisplayNameNode;
+import net.luckperms.api.node.types.InheritanceNode;
+import net.luckperms.api.node.types.PermissionNode;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory LuckPerms: users and groups are plain node lists, and every storage call completes
+ * on a LuckPerms-like async thread after a simulated round trip, so DoubleLife's futures resolve
+ * off the server thread the same way they do against a real backend. Events are never fired.
+ */
+final class FakeLuckPerms {
+
+    private final long latencyMillis;
+    private final Map<UUID, Holder> users = new ConcurrentHashMap<>();
+    private final Map<String, Holder> groups = new ConcurrentHashMap<>();
+    private final Map<Holder, User> userProxies = new ConcurrentHashMap<>();
+    private final Map<Holder, Group> groupProxies = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService storage;
+    private final AtomicLong userWrites = new AtomicLong();
+    private final AtomicLong groupWrites = new AtomicLong();
+    private final AtomicLong searches = new AtomicLong();
+    private final LuckPerms proxy;
+
+    FakeLuckPerms(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        AtomicInteger threads = new AtomicInteger();
+        this.storage = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "doublelife-loadsim-luckperms-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        UserManager userManager = Fakes.of(UserManager.class)
+            .on("isLoaded", args -> users.containsKey((UUID) args[0]))
+            .on("getUser", args -> user((UUID) args[0]))
+            .on("loadUser", args -> later(() -> user((UUID) args[0])))
+            .on("saveUser", args -> later(() -> {
+                userWrites.incrementAndGet();
+                return null;
+            }))
+            .on("modifyUser", args -> modifyUser((UUID) args[0], castConsumer(args[1])))
+            .on("searchAll", args -> searchAll(castMatcher(args[0])))
+            .build();
+        GroupManager groupManager = Fakes.of(GroupManager.class)
+            .on("createAndLoadGroup", args -> later(() -> group(groups.computeIfAbsent((String) args[0], Holder::new))))
+            .on("getGroup", args -> {
+                Holder holder = groups.get((String) args[0]);
+                return holder != null ? group(holder) : null;
+            })
+            .on("getLoadedGroups", args -> groups.values().stream().map(this::group).collect(Collectors.toSet()))
+            .on("saveGroup", args -> later(() -> {
+                groupWrites.incrementAndGet();
+                return null;
+            }))
+            .on("deleteGroup", args -> later(() -> {
+                groupWrites.incrementAndGet();
+                Holder removed = groups.remove(((Group) args[0]).getName());
+                if (removed != null) {
+                    groupProxies.remove(removed);
+                }
+                return null;
+            }))
+            .build();
+        NodeBuilderRegistry builders = Fakes.of(NodeBuilderRegistry.class)
+            .on("forInheritance", args -> new NodeBuilder(InheritanceNode.Builder.class).proxy)
+            .on("forPermission", args -> new NodeBuilder(PermissionNode.Builder.class).proxy)
+            .on("forDisplayName", args -> new NodeBuilder(DisplayNameNode.Builder.class).proxy)
+            .build();
+        NodeMatcherFactory matchers = Fakes.of(NodeMatcherFactory.class)
+            .on("key", args -> keyMatcher(args[0] instanceof Node node ? node.getKey() : (String) args[0]))
+            .build();
+        EventBus eventBus = Fakes.of(EventBus.class)
+            .on("subscribe", args -> Fakes.of(EventSubscription.class).returning("isActive", true).build())
+            .build();
+
+        this.proxy = Fakes.of(LuckPerms.class)
+            .named("FakeLuckPerms")
+            .returning("getServerName", "loadsim")
+            .returning("getUserManager", userManager)
+            .returning("getGroupManager", groupManager)
+            .returning("getNodeBuilderRegistry", builders)
+            .returning("getNodeMatcherFactory", matchers)
+            .returning("getEventBus", eventBus)
+            .build();
+    }
+
+    /**
+     * Registers this instance with {@link LuckPermsProvider}; the static node builders and
+     * matchers ({@code InheritanceNode.builder}, {@code NodeMatcher.key}) resolve through it.
+     */
+    void install() {
+        Reflection.invokeStatic(LuckPermsProvider.class, "register", LuckPerms.class, proxy);
+    }
+
+    LuckPerms proxy() {
+        return proxy;
+    }
+
+    /**
+     * Adds a loaded user inheriting {@code default} and the given groups.
+     */
+    void addUser(UUID uuid, String name, Collection<String> groupNames) {
+        Holder holder = new Holder(name);
+        holder.nodes.add(inheritance("default", null));
+        for (String groupName : groupNames) {
+            holder.nodes.add(inheritance(groupName, null));
+        }
+        users.put(uuid, holder);
+        userProxies.put(holder, Fakes.of(User.class)
+            .named("User(" + name + ")")
+            .returning("getUniqueId", uuid)
+            .returning("getUsername", name)
+            .returning("getFriendlyName", name)
+            .returning("getPrimaryGroup", "default")
+            .on("getNodes", args -> holder.nodes(args))
+            .on("getDistinctNodes", args -> holder.nodes(args))
+            .returning("data", holder.map)
+            .build());
+    }
+
+    long getUserWrites() {
+        return userWrites.get();
+    }
+
+    long getGroupWrites() {
+        return groupWrites.get();
+    }
+
+    long getSearches() {
+        return searches.get();
+    }
+
+    int getGroupCount() {
+        return groups.size();
+    }
+
+    void shutdown() {
+        storage.shutdownNow();
+    }
+
+    private User user(UUID uuid) {
+        Holder holder = users.get(uuid);
+        return holder != null ? userProxies.get(holder) : null;
+    }
+
+    private Group group(Holder holder) {
+        return groupProxies.computeIfAbsent(holder, h -> Fakes.of(Group.class)
+            .named("Group(" + h.name + ")")
+            .returning("getName", h.name)
+            .returning("getFriendlyName", h.name)
+            .on("getDisplayName", args -> h.nodes(new Object[]{NodeType.DISPLAY_NAME}).stream()
+                .map(node -> ((DisplayNameNode) node).getDisplayName())
+                .findFirst()
+                .orElse(null))
+            .on("getNodes", args -> h.nodes(args))
+            .on("getDistinctNodes", args -> h.nodes(args))
+            .returning("data", h.map)
+            .build());
+    }
+
+    private CompletableFuture<Void> modifyUser(UUID uuid, Consumer<User> action) {
+        User user = user(uuid);
+        if (user == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Unknown user " + uuid));
+        }
+        return later(() -> {
+            action.accept(user);
+            userWrites.incrementAndGet();
+            return null;
+        });
+    }
+
+    private CompletableFuture<Map<UUID, Collection<Node>>> searchAll(Predicate<Node> matcher) {
+        searches.incrementAndGet();
+        return later(() -> {
+            Map<UUID, Collection<Node>> result = new HashMap<>();
+            users.forEach((uuid, holder) -> {
+                List<Node> matching = holder.nodes(new Object[0]).stream().filter(matcher).toList();
+                if (!matching.isEmpty()) {
+                    result.put(uuid, matching);
+                }
+            });
+            return result;
+        });
+    }
+
+    /**
+     * Completes on a storage thread after the simulated round trip, with a little jitter.
+     */
+    private <T> CompletableFuture<T> later(Supplier<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long delay = latencyMillis + ThreadLocalRandom.current().nextLong(latencyMillis / 2 + 1);
+        storage.schedule(() -> {
+            try {
+                future.complete(work.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<User> castConsumer(Object action) {
+        return (Consumer<User>) action;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<Node> castMatcher(Object matcher) {
+        return (Predicate<Node>) matcher;
+    }
+
+    private static NodeMatcher<Node> keyMatcher(String key) {
+        Predicate<Node> test = node -> node.getKey().equals(key);
+        @SuppressWarnings("unchecked")
+        NodeMatcher<Node> matcher = Fakes.of(NodeMatcher.class)
+            .named("NodeMatcher(key=" + key + ")")
+            .on("test", args -> test.test((Node) args[0]))
+            .on("match", args -> test.test((Node) args[0]) ? args[0] : null)
+            .build();
+        return matcher;
+    }
+
+    private static InheritanceNode inheritance(String groupName, Instant expiry) {
+        return node(InheritanceNode.class, "group." + groupName, expiry, NodeType.INHERITANCE, "getGroupName", groupName);
+    }
+
+    private static PermissionNode permission(String permission, Instant expiry) {
+        return node(PermissionNode.class, permission, expiry, NodeType.PERMISSION, "getPermission", permission);
+    }
+
+    private static DisplayNameNode displayName(String displayName) {
+        return node(DisplayNameNode.class, "displayname." + displayName, null, NodeType.DISPLAY_NAME,
+            "getDisplayName", displayName);
+    }
+
+    private static <N extends Node> N node(Class<N> type, String key, Instant expiry, NodeType<?> nodeType,
+                                           String valueMethod, String value) {
+        return Fakes.of(type)
+            .named(key + (expiry != null ? " (until " + expiry + ")" : ""))
+            .returning("getKey", key)
+            .returning(valueMethod, value)
+            .returning("getValue", true)
+            .returning("getType", nodeType)
+            .returning("hasExpiry", expiry != null)
+            .returning("getExpiry", expiry)
+            .returning("getExpiryDuration", expiry != null ? Duration.between(Instant.now(), expiry) : null)
+            .returning("hasExpired", expiry != null && expiry.isBefore(Instant.now()))
+            .returning("getContexts", null)
+            .build();
+    }
+
+    /**
+     * Node list of one user or group, guarded by its own monitor since LuckPerms mutates
+     * holders from storage threads while the server thread reads them.
+     */
+    private static final class Holder {
+        private final String name;
+        private final List<Node> nodes = new ArrayList<>();
+        private final NodeMap map;
+
+        private Holder(String name) {
+            this.name = name;
+            this.map = Fakes.of(NodeMap.class)
+                .on("add", args -> {
+                    Node node = (Node) args[0];
+                    synchronized (this) {
+                        nodes.removeIf(existing -> existing.getKey().equals(node.getKey()));
+                        nodes.add(node);
+                    }
+                    return DataMutateResult.SUCCESS;
+                })
+                .on("remove", args -> {
+                    String key = ((Node) args[0]).getKey();
+                    synchronized (this) {
+                        return nodes.removeIf(existing -> existing.getKey().equals(key))
+                            ? DataMutateResult.SUCCESS : DataMutateResult.FAIL_LACKS;
+                    }
+                })
+                .on("clear", args -> {
+                    synchronized (this) {
+                        if (args.length > 0 && args[0] instanceof Predicate<?> predicate) {
+                            @SuppressWarnings("unchecked")
+                            Predicate<? super Node> filter = (Predicate<? super Node>) predicate;
+                            nodes.removeIf(filter);
+                        } else {
+                            nodes.clear();
+                        }
+                    }
+                    return null;
+                })
+                .on("toCollection", args -> nodes(new Object[0]))
+                .build();
+        }
+
+        /**
+         * {@code getNodes()} or {@code getNodes(NodeType)}; always returns a snapshot.
+         */
+        private synchronized Collection<Node> nodes(Object[] args) {
+            if (args.length > 0 && args[0] instanceof NodeType<?> type) {
+                return nodes.stream().filter(type::matches).collect(Collectors.toList());
+            }
+            return new ArrayList<>(nodes);
+        }
+    }
+
+    /**
+     * State behind an {@code InheritanceNode.Builder}, {@code PermissionNode.Builder} or
+     * {@code DisplayNameNode.Builder} proxy.
+     */
+    private static final class NodeBuilder {
+        private final Object proxy;
+        private String group;
+        private String permission;
+        private String displayName;
+        private Instant expiry;
+
+        private NodeBuilder(Class<?> builderType) {
+            Object[] self = new Object[1];
+            this.proxy = Fakes.of(builderType)
+                .on("group", args -> {
+                    group = args[0] instanceof Group g ? g.getName() : (String) args[0];
+                    return self[0];
+                })
+                .on("permission", args -> {
+                    permission = (String) args[0];
+                    return self[0];
+                })
+                .on("displayName", args -> {
+                    displayName = (String) args[0];
+                    return self[0];
+                })
+                .on("expiry", args -> {
+                    expiry = expiryOf(args);
+                    return self[0];
+                })
+                .on("clearExpiry", args -> {
+                    expiry = null;
+                    return self[0];
+                })
+                .on("build", args -> {
+                    if (group != null) {
+                        return inheritance(group, expiry);
+                    }
+                    return displayName != null ? displayName(displayName) : permission(permission, expiry);
+                })
+                .build();
+            self[0] = proxy;
+        }
+
+        private static Instant expiryOf(Object[] args) {
+            if (args[0] instanceof Duration duration) {
+                return Instant.now().plus(duration);
+            }
+            if (args[0] instanceof Instant instant) {
+                return instant;
+            }
+            if (args.length == 2 && args[1] instanceof TimeUnit unit) {
+                return Instant.now().plusMillis(unit.toMillis((Long) args[0]));
+            }
+            return Instant.ofEpochSecond((Long) args[0]);
+        }
+    }
+}
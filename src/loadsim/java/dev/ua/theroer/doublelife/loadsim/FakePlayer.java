@@ -0,0 +1,169 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State behind one simulated player: inventories, stats and location, plus a {@link Player} proxy
+ * exposing the parts DoubleLife reads and writes.
+ */
+final class FakePlayer {
+
+    private static final int INVENTORY_SIZE = 41;
+    private static final int ARMOR_SIZE = 4;
+    private static final int ENDER_CHEST_SIZE = 27;
+
+    private final UUID uuid;
+    private final String name;
+    private final Player proxy;
+    private final AtomicLong messages;
+    private volatile boolean online;
+    private ItemStack[] contents = new ItemStack[INVENTORY_SIZE];
+    private ItemStack[] enderChest = new ItemStack[ENDER_CHEST_SIZE];
+    private GameMode gameMode = GameMode.SURVIVAL;
+    private Location location;
+    private double health = 20.0;
+    private int foodLevel = 20;
+    private float exp;
+    private int level;
+
+    FakePlayer(int index, World world, Random random, AtomicLong messages) {
+        this.uuid = new UUID(0x5eed_0000_0000_0000L | index, random.nextLong());
+        this.name = "sim" + index;
+        this.messages = messages;
+        this.location = new Location(world, random.nextInt(2000) - 1000, 64, random.nextInt(2000) - 1000);
+        for (int slot = 0; slot < INVENTORY_SIZE; slot++) {
+            if (random.nextInt(10) < 6) {
+                contents[slot] = FakeItem.random(random);
+            }
+        }
+        for (int slot = 0; slot < ENDER_CHEST_SIZE; slot++) {
+            if (random.nextBoolean()) {
+                enderChest[slot] = FakeItem.random(random);
+            }
+        }
+        this.level = random.nextInt(40);
+
+        PlayerInventory inventory = Fakes.of(PlayerInventory.class)
+            .on("getContents", args -> contents.clone())
+            .on("getStorageContents", args -> Arrays.copyOf(contents, 36))
+            .on("getArmorContents", args -> Arrays.copyOfRange(contents, 36, 36 + ARMOR_SIZE))
+            .on("setContents", args -> {
+                contents = Arrays.copyOf((ItemStack[]) args[0], INVENTORY_SIZE);
+                return null;
+            })
+            .on("setArmorContents", args -> {
+                ItemStack[] armor = (ItemStack[]) args[0];
+                System.arraycopy(armor, 0, contents, 36, Math.min(armor.length, ARMOR_SIZE));
+                return null;
+            })
+            .on("clear", args -> {
+                contents = new ItemStack[INVENTORY_SIZE];
+                return null;
+            })
+            .returning("getSize", INVENTORY_SIZE)
+            .build();
+        Inventory ender = Fakes.of(Inventory.class)
+            .on("getContents", args -> enderChest.clone())
+            .on("setContents", args -> {
+                enderChest = Arrays.copyOf((ItemStack[]) args[0], ENDER_CHEST_SIZE);
+                return null;
+            })
+            .on("clear", args -> {
+                enderChest = new ItemStack[ENDER_CHEST_SIZE];
+                return null;
+            })
+            .returning("getSize", ENDER_CHEST_SIZE)
+            .build();
+        AttributeInstance maxHealth = Fakes.of(AttributeInstance.class)
+            .returning("getValue", 20.0)
+            .returning("getBaseValue", 20.0)
+            .build();
+
+        this.proxy = Fakes.of(Player.class)
+            .named(name)
+            .returning("getUniqueId", uuid)
+            .returning("getName", name)
+            .on("isOnline", args -> online)
+            .on("isConnected", args -> online)
+            .returning("getInventory", inventory)
+            .returning("getEnderChest", ender)
+            .returning("getWorld", world)
+            .on("getGameMode", args -> gameMode)
+            .on("setGameMode", args -> {
+                gameMode = (GameMode) args[0];
+                return null;
+            })
+            .on("getLocation", args -> location.clone())
+            .on("teleport", args -> {
+                location = ((Location) args[0]).clone();
+                return true;
+            })
+            .on("getHealth", args -> health)
+            .on("setHealth", args -> {
+                health = (Double) args[0];
+                return null;
+            })
+            .on("getFoodLevel", args -> foodLevel)
+            .on("setFoodLevel", args -> {
+                foodLevel = (Integer) args[0];
+                return null;
+            })
+            .on("getExp", args -> exp)
+            .on("setExp", args -> {
+                exp = (Float) args[0];
+                return null;
+            })
+            .on("getLevel", args -> level)
+            .on("setLevel", args -> {
+                level = (Integer) args[0];
+                return null;
+            })
+            .returning("getAttribute", maxHealth)
+            .returning("hasPermission", true)
+            .on("sendMessage", args -> {
+                messages.incrementAndGet();
+                return null;
+            })
+            .on("sendRichMessage", args -> {
+                messages.incrementAndGet();
+                return null;
+            })
+            .build();
+    }
+
+    UUID getUniqueId() {
+        return uuid;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Player proxy() {
+        return proxy;
+    }
+
+    boolean isOnline() {
+        return online;
+    }
+
+    void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    Location getLocation() {
+        return location;
+    }
+}
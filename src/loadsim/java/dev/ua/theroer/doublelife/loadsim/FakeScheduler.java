@@ -0,0 +1,214 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Tick-driven stand-in for the Bukkit scheduler. Sync tasks run on the simulator's server thread
+ * when {@link #runTick(int)} reaches their tick, like on a real server: a task scheduled during a
+ * tick runs on the next one at the earliest. Async tasks go to a shared pool.
+ */
+final class FakeScheduler {
+
+    private final Thread serverThread;
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private final ExecutorService asyncPool;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final AtomicLong failures = new AtomicLong();
+    private final BukkitScheduler proxy;
+    private volatile int currentTick;
+    private long sequence;
+
+    FakeScheduler() {
+        this.serverThread = Thread.currentThread();
+        AtomicInteger threads = new AtomicInteger();
+        this.asyncPool = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "doublelife-loadsim-async-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.proxy = Fakes.of(BukkitScheduler.class)
+            .on("runTask", args -> schedule(args[1], 0L, -1L, false))
+            .on("runTaskAsynchronously", args -> schedule(args[1], 0L, -1L, true))
+            .on("runTaskLater", args -> schedule(args[1], (Long) args[2], -1L, false))
+            .on("runTaskLaterAsynchronously", args -> schedule(args[1], (Long) args[2], -1L, true))
+            .on("runTaskTimer", args -> schedule(args[1], (Long) args[2], (Long) args[3], false))
+            .on("runTaskTimerAsynchronously", args -> schedule(args[1], (Long) args[2], (Long) args[3], true))
+            .on("scheduleSyncDelayedTask", args -> schedule(args[1], args.length > 2 ? (Long) args[2] : 0L, -1L, false).getTaskId())
+            .on("scheduleSyncRepeatingTask", args -> schedule(args[1], (Long) args[2], (Long) args[3], false).getTaskId())
+            .on("callSyncMethod", args -> callSync((Callable<?>) args[1]))
+            .on("getMainThreadExecutor", args -> (Executor) command -> schedule(command, 0L, -1L, false))
+            .on("cancelTask", args -> {
+                cancel((Integer) args[0]);
+                return null;
+            })
+            .on("cancelTasks", args -> {
+                cancelAll();
+                return null;
+            })
+            .build();
+    }
+
+    BukkitScheduler proxy() {
+        return proxy;
+    }
+
+    boolean isServerThread() {
+        return Thread.currentThread() == serverThread;
+    }
+
+    int getCurrentTick() {
+        return currentTick;
+    }
+
+    long getFailureCount() {
+        return failures.get();
+    }
+
+    synchronized int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Runs every task due at {@code tick}. Returns the number of sync tasks that ran.
+     */
+    int runTick(int tick) {
+        currentTick = tick;
+        List<Task> due = new ArrayList<>();
+        synchronized (this) {
+            while (!queue.isEmpty() && queue.peek().dueTick <= tick) {
+                due.add(queue.poll());
+            }
+        }
+        int ran = 0;
+        for (Task task : due) {
+            if (task.cancelled) {
+                continue;
+            }
+            if (task.async) {
+                asyncPool.execute(() -> runSafely(task));
+            } else {
+                runSafely(task);
+                ran++;
+            }
+            if (task.period > 0 && !task.cancelled) {
+                synchronized (this) {
+                    task.dueTick = tick + task.period;
+                    task.order = sequence++;
+                    queue.add(task);
+                }
+            }
+        }
+        return ran;
+    }
+
+    void shutdown() {
+        cancelAll();
+        asyncPool.shutdown();
+        try {
+            asyncPool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runSafely(Task task) {
+        try {
+            task.body.run();
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            System.err.println("[loadsim] Task " + task.id + " failed: " + e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private BukkitTask schedule(Object body, long delay, long period, boolean async) {
+        Task task = new Task(nextId.getAndIncrement(), async, period);
+        if (body instanceof Consumer<?> consumer) {
+            task.body = () -> ((Consumer<BukkitTask>) consumer).accept(task.handle);
+        } else {
+            task.body = (Runnable) body;
+        }
+        synchronized (this) {
+            // Like Bukkit, a zero delay still means the next tick when scheduled from a tick.
+            task.dueTick = currentTick + Math.max(1L, delay);
+            task.order = sequence++;
+            queue.add(task);
+        }
+        return task.handle;
+    }
+
+    private <T> CompletableFuture<T> callSync(Callable<T> callable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        schedule((Runnable) () -> {
+            try {
+                future.complete(callable.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }, 0L, -1L, false);
+        return future;
+    }
+
+    private synchronized void cancel(int taskId) {
+        for (Task task : queue) {
+            if (task.id == taskId) {
+                task.cancelled = true;
+            }
+        }
+        queue.removeIf(task -> task.cancelled);
+    }
+
+    private synchronized void cancelAll() {
+        queue.forEach(task -> task.cancelled = true);
+        queue.clear();
+    }
+
+    private final class Task implements Comparable<Task> {
+        private final int id;
+        private final boolean async;
+        private final long period;
+        private final BukkitTask handle;
+        private Runnable body;
+        private long dueTick;
+        private long order;
+        private volatile boolean cancelled;
+
+        private Task(int id, boolean async, long period) {
+            this.id = id;
+            this.async = async;
+            this.period = period;
+            this.handle = Fakes.of(BukkitTask.class)
+                .returning("getTaskId", id)
+                .returning("isSync", !async)
+                .on("isCancelled", args -> cancelled)
+                .on("cancel", args -> {
+                    cancelled = true;
+                    synchronized (FakeScheduler.this) {
+                        queue.remove(this);
+                    }
+                    return null;
+                })
+                .build();
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byTick = Long.compare(dueTick, other.dueTick);
+            return byTick != 0 ? byTick : Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.UnsafeValues;
+import org.bukkit.World;
+import org.bukkit.boss.BossBar;
+import org.bukkit.command.CommandMap;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * {@link Server} fake with one world, the simulated players and counters for everything
+ * DoubleLife pushes back at the server: console commands, boss bar updates and chat messages.
+ */
+final class FakeServer {
+
+    private final World world;
+    private final Map<UUID, FakePlayer> players = new ConcurrentHashMap<>();
+    private final AtomicLong dispatchedCommands = new AtomicLong();
+    private final AtomicLong bossBarsCreated = new AtomicLong();
+    private final AtomicLong bossBarUpdates = new AtomicLong();
+    private final AtomicLong messages = new AtomicLong();
+    private final Server proxy;
+
+    FakeServer(FakeScheduler scheduler) {
+        this.world = Fakes.of(World.class)
+            .named("world")
+            .returning("getName", "world")
+            .returning("getUID", new UUID(0L, 1L))
+            .build();
+        ConsoleCommandSender console = Fakes.of(ConsoleCommandSender.class)
+            .named("CONSOLE")
+            .returning("getName", "CONSOLE")
+            .returning("isOp", true)
+            .returning("hasPermission", true)
+            .build();
+        CommandMap commandMap = Fakes.of(CommandMap.class).build();
+        PluginManager pluginManager = Fakes.of(PluginManager.class)
+            .returning("isPluginEnabled", true)
+            .build();
+        ServicesManager servicesManager = Fakes.of(ServicesManager.class).build();
+        UnsafeValues unsafe = Fakes.of(UnsafeValues.class)
+            .on("serializeItem", args -> ((FakeItem) args[0]).serializeAsBytes())
+            .on("deserializeItem", args -> new FakeItem((byte[]) args[0]))
+            .build();
+        Logger logger = Logger.getLogger("LoadSim");
+
+        this.proxy = Fakes.of(Server.class)
+            .named("LoadSimServer")
+            .returning("getName", "LoadSim")
+            .returning("getVersion", "loadsim")
+            .returning("getBukkitVersion", "1.21.4-R0.1-SNAPSHOT")
+            .returning("getMinecraftVersion", "1.21.4")
+            .returning("getLogger", logger)
+            .returning("getScheduler", scheduler.proxy())
+            .returning("getPluginManager", pluginManager)
+            .returning("getServicesManager", servicesManager)
+            .returning("getCommandMap", commandMap)
+            .returning("getConsoleSender", console)
+            .returning("getUnsafe", unsafe)
+            .returning("getWorlds", List.of(world))
+            .on("getWorld", args -> args[0] instanceof String name && name.equals("world") ? world : null)
+            .on("isPrimaryThread", args -> scheduler.isServerThread())
+            .on("getCurrentTick", args -> scheduler.getCurrentTick())
+            .on("getOnlinePlayers", args -> onlinePlayers())
+            .on("getPlayer", args -> {
+                FakePlayer player = args[0] instanceof UUID uuid ? players.get(uuid) : null;
+                return player != null && player.isOnline() ? player.proxy() : null;
+            })
+            .on("dispatchCommand", args -> {
+                dispatchedCommands.incrementAndGet();
+                return true;
+            })
+            .on("createBossBar", args -> createBossBar())
+            .build();
+    }
+
+    /**
+     * Installs this server as {@link Bukkit#getServer()}; can only happen once per JVM.
+     */
+    void install() {
+        Bukkit.setServer(proxy);
+    }
+
+    Server proxy() {
+        return proxy;
+    }
+
+    World getWorld() {
+        return world;
+    }
+
+    AtomicLong messageCounter() {
+        return messages;
+    }
+
+    void addPlayer(FakePlayer player) {
+        players.put(player.getUniqueId(), player);
+    }
+
+    long getDispatchedCommands() {
+        return dispatchedCommands.get();
+    }
+
+    long getBossBarsCreated() {
+        return bossBarsCreated.get();
+    }
+
+    long getBossBarUpdates() {
+        return bossBarUpdates.get();
+    }
+
+    long getMessages() {
+        return messages.get();
+    }
+
+    private Collection<Player> onlinePlayers() {
+        return players.values().stream()
+            .filter(FakePlayer::isOnline)
+            .map(FakePlayer::proxy)
+            .toList();
+    }
+
+    private BossBar createBossBar() {
+        bossBarsCreated.incrementAndGet();
+        return Fakes.of(BossBar.class)
+            .on("setTitle", args -> countUpdate())
+            .on("setProgress", args -> countUpdate())
+            .on("setColor", args -> countUpdate())
+            .returning("isVisible", true)
+            .build();
+    }
+
+    private Object countUpdate() {
+        bossBarUpdates.incrementAndGet();
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Builds {@link Proxy}-based fakes of the large Bukkit and LuckPerms interfaces. Only the methods
+ * a fake registers do anything; every other call returns a harmless default, or the proxy itself
+ * for fluent builder methods, so the fakes stay small while the real interfaces keep growing.
+ */
+final class Fakes {
+
+    private Fakes() {
+    }
+
+    static <T> Builder<T> of(Class<T> type) {
+        return new Builder<>(type);
+    }
+
+    static final class Builder<T> {
+        private final Class<T> type;
+        private final Map<String, Function<Object[], Object>> handlers = new HashMap<>();
+        private String description;
+
+        private Builder(Class<T> type) {
+            this.type = type;
+            this.description = "Fake" + type.getSimpleName();
+        }
+
+        /**
+         * Handles every overload of {@code method}; {@code args} is never {@code null}.
+         */
+        Builder<T> on(String method, Function<Object[], Object> handler) {
+            handlers.put(method, handler);
+            return this;
+        }
+
+        Builder<T> returning(String method, Object value) {
+            return on(method, args -> value);
+        }
+
+        Builder<T> named(String description) {
+            this.description = description;
+            return this;
+        }
+
+        T build() {
+            Object[] self = new Object[1];
+            Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (target, method, args) -> {
+                Object[] arguments = args != null ? args : new Object[0];
+                Function<Object[], Object> handler = handlers.get(method.getName());
+                if (handler != null) {
+                    return handler.apply(arguments);
+                }
+                return switch (method.getName()) {
+                    case "equals" -> arguments.length == 1 && arguments[0] == self[0];
+                    case "hashCode" -> System.identityHashCode(self[0]);
+                    case "toString" -> description;
+                    default -> defaultValue(method, self[0]);
+                };
+            });
+            self[0] = proxy;
+            return type.cast(proxy);
+        }
+    }
+
+    private static Object defaultValue(Method method, Object proxy) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType == void.class) {
+            return null;
+        }
+        if (returnType == boolean.class) {
+            return false;
+        }
+        if (returnType == int.class) {
+            return 0;
+        }
+        if (returnType == short.class) {
+            return (short) 0;
+        }
+        if (returnType == byte.class) {
+            return (byte) 0;
+        }
+        if (returnType == long.class) {
+            return 0L;
+        }
+        if (returnType == double.class) {
+            return 0.0;
+        }
+        if (returnType == float.class) {
+            return 0.0f;
+        }
+        if (returnType == char.class) {
+            return '\0';
+        }
+        if (returnType.isInstance(proxy)) {
+            return proxy;
+        }
+        if (returnType == CompletableFuture.class) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (returnType == Optional.class) {
+            return Optional.empty();
+        }
+        if (returnType == List.class || returnType == Collection.class) {
+            return List.of();
+        }
+        if (returnType == Set.class) {
+            return Set.of();
+        }
+        if (returnType == Map.class) {
+            return Map.of();
+        }
+        return null;
+    }
+}
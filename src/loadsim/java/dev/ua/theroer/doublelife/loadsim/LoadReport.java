@@ -0,0 +1,268 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-tick measurements of the simulated server thread plus run-wide totals. Tick CPU and
+ * allocation come from the thread MX bean for the server thread only; everything DoubleLife hands
+ * to its own threads shows up in the process-wide allocation and GC totals instead.
+ */
+final class LoadReport {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    /** Gauges sampled from the plugin's metrics registry while the run is going. */
+    static final List<String> QUEUE_GAUGES = List.of(
+        "doublelife_sessions",
+        "doublelife_commands_queued",
+        "doublelife_webhook_queued_requests",
+        "doublelife_storage_pending_writes");
+
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final long[] cpuNanos;
+    private final long[] wallNanos;
+    private final long[] allocatedBytes;
+    private final int[] syncTasks;
+    private final Map<String, long[]> queues = new LinkedHashMap<>();
+    private final Map<String, Object> totals = new LinkedHashMap<>();
+    private final Map<String, Object> options = new LinkedHashMap<>();
+    private final long startAllocated;
+    private final long startGcCount;
+    private final long startGcMillis;
+    private final long startedAt = System.nanoTime();
+    private List<String> tickCosts = List.of();
+    private int recorded;
+    private long tickCpuStart;
+    private long tickAllocStart;
+    private long tickWallStart;
+
+    LoadReport(int ticks) {
+        this.cpuNanos = new long[ticks];
+        this.wallNanos = new long[ticks];
+        this.allocatedBytes = new long[ticks];
+        this.syncTasks = new int[ticks];
+        for (String gauge : QUEUE_GAUGES) {
+            queues.put(gauge, new long[2]);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        if (threads.isCurrentThreadCpuTimeSupported()) {
+            threads.setThreadCpuTimeEnabled(true);
+        }
+        this.startAllocated = threads.getTotalThreadAllocatedBytes();
+        this.startGcCount = gcCount();
+        this.startGcMillis = gcMillis();
+    }
+
+    /** Starts measuring a tick; call on the server thread. */
+    void beginTick() {
+        tickWallStart = System.nanoTime();
+        tickCpuStart = threads.getCurrentThreadCpuTime();
+        tickAllocStart = threads.getCurrentThreadAllocatedBytes();
+    }
+
+    /** Finishes the tick started by {@link #beginTick()}. Returns its wall time in nanoseconds. */
+    long endTick(int tasks) {
+        long wall = System.nanoTime() - tickWallStart;
+        if (recorded < cpuNanos.length) {
+            cpuNanos[recorded] = threads.getCurrentThreadCpuTime() - tickCpuStart;
+            allocatedBytes[recorded] = threads.getCurrentThreadAllocatedBytes() - tickAllocStart;
+            wallNanos[recorded] = wall;
+            syncTasks[recorded] = tasks;
+            recorded++;
+        }
+        return wall;
+    }
+
+    void sampleQueues(Map<String, Double> values) {
+        queues.forEach((gauge, maxAndLast) -> {
+            Double value = values.get(gauge);
+            if (value != null) {
+                maxAndLast[0] = Math.max(maxAndLast[0], value.longValue());
+                maxAndLast[1] = value.longValue();
+            }
+        });
+    }
+
+    void option(String name, Object value) {
+        options.put(name, value);
+    }
+
+    void total(String name, Object value) {
+        totals.put(name, value);
+    }
+
+    void setTickCosts(List<String> lines) {
+        this.tickCosts = List.copyOf(lines);
+    }
+
+    /**
+     * Records the process-wide totals; call once the run has drained.
+     */
+    void finish() {
+        total("elapsed_seconds", round((System.nanoTime() - startedAt) / 1e9));
+        total("allocated_bytes_all_threads", threads.getTotalThreadAllocatedBytes() - startAllocated);
+        total("gc_collections", gcCount() - startGcCount);
+        total("gc_millis", gcMillis() - startGcMillis);
+    }
+
+    double tickCpuMillis(double quantile) {
+        return quantile(cpuNanos, quantile) / NANOS_PER_MILLI;
+    }
+
+    double tickWallMillis(double quantile) {
+        return quantile(wallNanos, quantile) / NANOS_PER_MILLI;
+    }
+
+    double tickAllocatedKb(double quantile) {
+        return quantile(allocatedBytes, quantile) / 1024.0;
+    }
+
+    long queueMax(String gauge) {
+        long[] maxAndLast = queues.get(gauge);
+        return maxAndLast != null ? maxAndLast[0] : 0L;
+    }
+
+    long queueFinal(String gauge) {
+        long[] maxAndLast = queues.get(gauge);
+        return maxAndLast != null ? maxAndLast[1] : 0L;
+    }
+
+    List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        lines.add("DoubleLife load simulation, " + recorded + " ticks");
+        options.forEach((name, value) -> lines.add("  option " + name + " = " + value));
+        lines.add(String.format(Locale.ROOT, "  tick cpu ms     p50 %.3f  p99 %.3f  max %.3f",
+            tickCpuMillis(0.50), tickCpuMillis(0.99), tickCpuMillis(1.0)));
+        lines.add(String.format(Locale.ROOT, "  tick wall ms    p50 %.3f  p99 %.3f  max %.3f",
+            tickWallMillis(0.50), tickWallMillis(0.99), tickWallMillis(1.0)));
+        lines.add(String.format(Locale.ROOT, "  tick alloc KiB  p50 %.1f  p99 %.1f  max %.1f",
+            tickAllocatedKb(0.50), tickAllocatedKb(0.99), tickAllocatedKb(1.0)));
+        queues.forEach((gauge, maxAndLast) ->
+            lines.add("  queue " + gauge + "  max " + maxAndLast[0] + "  final " + maxAndLast[1]));
+        totals.forEach((name, value) -> lines.add("  " + name + " = " + value));
+        tickCosts.forEach(line -> lines.add("  " + line));
+        return lines;
+    }
+
+    void writeJson(Path file) throws IOException {
+        JsonObject root = new JsonObject();
+        root.addProperty("ticks", recorded);
+        root.add("options", toJson(options));
+        JsonObject tick = new JsonObject();
+        tick.add("cpu_ms", percentiles(cpuNanos, NANOS_PER_MILLI));
+        tick.add("wall_ms", percentiles(wallNanos, NANOS_PER_MILLI));
+        tick.add("allocated_kib", percentiles(allocatedBytes, 1024.0));
+        root.add("tick", tick);
+        JsonObject queueJson = new JsonObject();
+        queues.forEach((gauge, maxAndLast) -> {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("max", maxAndLast[0]);
+            entry.addProperty("final", maxAndLast[1]);
+            queueJson.add(gauge, entry);
+        });
+        root.add("queues", queueJson);
+        root.add("totals", toJson(totals));
+        JsonArray costs = new JsonArray();
+        tickCosts.forEach(costs::add);
+        root.add("tick_costs", costs);
+        JsonArray series = new JsonArray();
+        for (int i = 0; i < recorded; i++) {
+            JsonArray sample = new JsonArray();
+            sample.add(cpuNanos[i]);
+            sample.add(wallNanos[i]);
+            sample.add(allocatedBytes[i]);
+            sample.add(syncTasks[i]);
+            series.add(sample);
+        }
+        root.addProperty("series_columns", "cpu_nanos,wall_nanos,allocated_bytes,sync_tasks");
+        root.add("series", series);
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            gson.toJson(root, writer);
+        }
+    }
+
+    private JsonObject percentiles(long[] values, double unit) {
+        JsonObject json = new JsonObject();
+        json.addProperty("p50", round(quantile(values, 0.50) / unit));
+        json.addProperty("p90", round(quantile(values, 0.90) / unit));
+        json.addProperty("p99", round(quantile(values, 0.99) / unit));
+        json.addProperty("max", round(quantile(values, 1.0) / unit));
+        json.addProperty("mean", round(mean(values) / unit));
+        return json;
+    }
+
+    private static JsonObject toJson(Map<String, Object> values) {
+        JsonObject json = new JsonObject();
+        values.forEach((name, value) -> {
+            if (value instanceof Number number) {
+                json.addProperty(name, number);
+            } else if (value instanceof Boolean bool) {
+                json.addProperty(name, bool);
+            } else {
+                json.addProperty(name, String.valueOf(value));
+            }
+        });
+        return json;
+    }
+
+    private double quantile(long[] values, double quantile) {
+        if (recorded == 0) {
+            return 0.0;
+        }
+        long[] sorted = Arrays.copyOf(values, recorded);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private double mean(long[] values) {
+        if (recorded == 0) {
+            return 0.0;
+        }
+        long sum = 0;
+        for (int i = 0; i < recorded; i++) {
+            sum += values[i];
+        }
+        return (double) sum / recorded;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0L, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0L, gc.getCollectionTime());
+        }
+        return millis;
+    }
+}
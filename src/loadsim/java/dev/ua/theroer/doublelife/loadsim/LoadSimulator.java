@@ -0,0 +1,291 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import dev.ua.theroer.doublelife.config.DoubleLifeProfile;
+import dev.ua.theroer.doublelife.doublelife.DoubleLifeManager;
+import dev.ua.theroer.doublelife.doublelife.TickCostMonitor;
+import dev.ua.theroer.doublelife.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Headless load test: runs the real DoubleLife manager and listener for thousands of simulated
+ * players against in-memory Bukkit and LuckPerms fakes and a local webhook stub, then reports
+ * server-thread CPU and allocation per tick, queue depths and HTTP traffic. Thresholds given on
+ * the command line turn it into a CI gate: any violation exits with status 1.
+ * <p>
+ * Options are {@code --name=value}; see {@link Options#DEFAULTS}. Ticks are paced at 50 ms
+ * unless {@code --realtime=false}, because session expiry follows the wall clock.
+ */
+public final class LoadSimulator {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int QUEUE_SAMPLE_TICKS = 20;
+
+    private final Options options;
+
+    private LoadSimulator(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Options (--name=value): " + Options.DEFAULTS);
+            System.exit(2);
+            return;
+        }
+        System.exit(new LoadSimulator(options).run());
+    }
+
+    private int run() throws IOException, InterruptedException {
+        int players = options.integer("players");
+        int ticks = options.integer("ticks");
+        int drainTicks = options.integer("drain-ticks");
+        long seed = options.longValue("seed");
+        File dataFolder = new File(options.string("data-dir"));
+        deleteRecursively(dataFolder.toPath());
+        Files.createDirectories(dataFolder.toPath());
+
+        FakeScheduler scheduler = new FakeScheduler();
+        FakeServer server = new FakeServer(scheduler);
+        server.install();
+        StubWebhookServer webhook = new StubWebhookServer(options.integer("webhook-limit"),
+            options.longValue("webhook-window-ms"));
+        webhook.start();
+        FakeLuckPerms luckPerms = new FakeLuckPerms(options.longValue("luckperms-latency-ms"));
+        luckPerms.install();
+
+        PluginBootstrap bootstrap = new PluginBootstrap(server, luckPerms, dataFolder, webhook.getUrl());
+        DoubleLifeManager manager = bootstrap.getManager();
+        TickCostMonitor tickCosts = manager.getTickCosts();
+        MetricsRegistry metrics = manager.getMetrics();
+
+        List<String> profileGroups = bootstrap.getPlugin().getDoubleLifeConfig().getProfiles().values().stream()
+            .map(DoubleLifeProfile::getGroupName)
+            .filter(Objects::nonNull)
+            .distinct()
+            .sorted()
+            .toList();
+        Random random = new Random(seed);
+        List<FakePlayer> simulated = new ArrayList<>(players);
+        for (int i = 0; i < players; i++) {
+            FakePlayer player = new FakePlayer(i, server.getWorld(), random, server.messageCounter());
+            server.addPlayer(player);
+            luckPerms.addUser(player.getUniqueId(), player.getName(),
+                List.of(profileGroups.get(random.nextInt(profileGroups.size()))));
+            simulated.add(player);
+        }
+        Scenario scenario = new Scenario(manager, bootstrap.getListener(), simulated, seed,
+            options.integer("ramp-ticks"));
+
+        LoadReport report = new LoadReport(ticks + drainTicks);
+        options.values.forEach(report::option);
+        boolean realtime = options.bool("realtime");
+        long nextTickAt = System.nanoTime();
+        for (int tick = 1; tick <= ticks + drainTicks; tick++) {
+            if (tick == ticks + 1) {
+                scenario.stop();
+            }
+            report.beginTick();
+            scenario.tick(tick);
+            int ran = scheduler.runTick(tick);
+            long spent = System.nanoTime() - nextTickAt;
+            tickCosts.onTickEnd(new ServerTickEndEvent(tick, spent / 1e6, Math.max(0L, TICK_NANOS - spent)));
+            report.endTick(ran);
+            if (tick % QUEUE_SAMPLE_TICKS == 0) {
+                report.sampleQueues(gauges(metrics));
+            }
+            nextTickAt += TICK_NANOS;
+            long sleep = nextTickAt - System.nanoTime();
+            if (!realtime || sleep <= 0) {
+                // Fell behind (or not pacing): carry on from now like an overloaded server does.
+                nextTickAt = System.nanoTime();
+            } else {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+        }
+        report.sampleQueues(gauges(metrics));
+        report.setTickCosts(tickCosts.describe());
+        int openSessions = manager.getActiveSessions().size();
+
+        bootstrap.shutdown();
+        scenario.shutdown();
+        scheduler.shutdown();
+        luckPerms.shutdown();
+        webhook.stop();
+
+        scenario.getCounts().forEach(report::total);
+        report.total("sessions_open_at_shutdown", openSessions);
+        report.total("http_requests", webhook.getRequests());
+        report.total("http_posts", webhook.getPosts());
+        report.total("http_edits", webhook.getEdits());
+        report.total("http_rate_limited", webhook.getRateLimited());
+        report.total("http_embeds", webhook.getEmbeds());
+        report.total("http_request_bytes", webhook.getBytes());
+        report.total("luckperms_user_writes", luckPerms.getUserWrites());
+        report.total("luckperms_group_writes", luckPerms.getGroupWrites());
+        report.total("luckperms_searches", luckPerms.getSearches());
+        report.total("luckperms_groups_left", luckPerms.getGroupCount());
+        report.total("console_commands", server.getDispatchedCommands());
+        report.total("boss_bars_created", server.getBossBarsCreated());
+        report.total("boss_bar_updates", server.getBossBarUpdates());
+        report.total("player_messages", server.getMessages());
+        report.total("scheduler_task_failures", scheduler.getFailureCount());
+        report.finish();
+
+        report.describe().forEach(System.out::println);
+        Path output = Path.of(options.string("report"));
+        report.writeJson(output);
+        System.out.println("Report written to " + output.toAbsolutePath());
+
+        List<String> violations = checkThresholds(report, webhook, scheduler);
+        violations.forEach(violation -> System.err.println("THRESHOLD " + violation));
+        return violations.isEmpty() ? 0 : 1;
+    }
+
+    /**
+     * Thresholds left at {@code -1} are not checked.
+     */
+    private List<String> checkThresholds(LoadReport report, StubWebhookServer webhook, FakeScheduler scheduler) {
+        List<String> violations = new ArrayList<>();
+        check(violations, "max-tick-cpu-p99-ms", report.tickCpuMillis(0.99));
+        check(violations, "max-tick-cpu-ms", report.tickCpuMillis(1.0));
+        check(violations, "max-tick-alloc-p99-kb", report.tickAllocatedKb(0.99));
+        check(violations, "max-http-requests", webhook.getRequests());
+        check(violations, "max-rate-limited", webhook.getRateLimited());
+        check(violations, "max-task-failures", scheduler.getFailureCount());
+        check(violations, "max-commands-queued", report.queueMax("doublelife_commands_queued"));
+        check(violations, "max-webhook-queued", report.queueMax("doublelife_webhook_queued_requests"));
+        check(violations, "max-storage-pending", report.queueMax("doublelife_storage_pending_writes"));
+        return violations;
+    }
+
+    private void check(List<String> violations, String option, double actual) {
+        double limit = options.doubleValue(option);
+        if (limit >= 0 && actual > limit) {
+            violations.add(option + ": " + actual + " > " + limit);
+        }
+    }
+
+    /**
+     * Current value of every label-free series, read through the Prometheus exposition so the
+     * simulator sees exactly what a scrape would.
+     */
+    private static Map<String, Double> gauges(MetricsRegistry metrics) {
+        StringBuilder out = new StringBuilder();
+        metrics.writePrometheus(out);
+        Map<String, Double> values = new HashMap<>();
+        for (String line : out.toString().split("\n")) {
+            int space = line.lastIndexOf(' ');
+            if (line.startsWith("#") || space < 0 || line.indexOf('{') >= 0) {
+                continue;
+            }
+            try {
+                values.put(line.substring(0, space), Double.parseDouble(line.substring(space + 1)));
+            } catch (NumberFormatException ignored) {
+                // Not a plain sample line.
+            }
+        }
+        return values;
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    static final class Options {
+
+        static final Map<String, String> DEFAULTS = defaults();
+
+        private final Map<String, String> values;
+
+        private Options(Map<String, String> values) {
+            this.values = values;
+        }
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+                }
+                String name = arg.substring(2, equals);
+                if (!DEFAULTS.containsKey(name)) {
+                    throw new IllegalArgumentException("Unknown option: " + name);
+                }
+                values.put(name, arg.substring(equals + 1));
+            }
+            return new Options(values);
+        }
+
+        private static Map<String, String> defaults() {
+            Map<String, String> defaults = new LinkedHashMap<>();
+            defaults.put("players", "2000");
+            defaults.put("ticks", "2400");
+            defaults.put("ramp-ticks", "400");
+            defaults.put("drain-ticks", "400");
+            defaults.put("seed", "1");
+            defaults.put("realtime", "true");
+            defaults.put("luckperms-latency-ms", "5");
+            defaults.put("webhook-limit", "5");
+            defaults.put("webhook-window-ms", "2000");
+            defaults.put("data-dir", "build/loadsim/data");
+            defaults.put("report", "build/loadsim/report.json");
+            defaults.put("max-tick-cpu-p99-ms", "-1");
+            defaults.put("max-tick-cpu-ms", "-1");
+            defaults.put("max-tick-alloc-p99-kb", "-1");
+            defaults.put("max-http-requests", "-1");
+            defaults.put("max-rate-limited", "-1");
+            defaults.put("max-task-failures", "0");
+            defaults.put("max-commands-queued", "-1");
+            defaults.put("max-webhook-queued", "-1");
+            defaults.put("max-storage-pending", "-1");
+            return defaults;
+        }
+
+        String string(String name) {
+            return values.get(name);
+        }
+
+        int integer(String name) {
+            return Integer.parseInt(values.get(name));
+        }
+
+        long longValue(String name) {
+            return Long.parseLong(values.get(name));
+        }
+
+        double doubleValue(String name) {
+            return Double.parseDouble(values.get(name));
+        }
+
+        boolean bool(String name) {
+            return Boolean.parseBoolean(values.get(name));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import dev.ua.theroer.doublelife.DoubleLifePlugin;
+import dev.ua.theroer.doublelife.config.AuditSettings;
+import dev.ua.theroer.doublelife.config.CommandSettings;
+import dev.ua.theroer.doublelife.config.DoubleLifeConfig;
+import dev.ua.theroer.doublelife.config.MetricsSettings;
+import dev.ua.theroer.doublelife.config.WebhookSettings;
+import dev.ua.theroer.doublelife.doublelife.DoubleLifeListener;
+import dev.ua.theroer.doublelife.doublelife.DoubleLifeManager;
+import dev.ua.theroer.doublelife.lang.DoubleLifeTranslations;
+import dev.ua.theroer.magicutils.Logger;
+import dev.ua.theroer.magicutils.config.ConfigManager;
+import dev.ua.theroer.magicutils.lang.LanguageManager;
+import dev.ua.theroer.magicutils.lang.Messages;
+import dev.ua.theroer.magicutils.platform.bukkit.BukkitPlatformProvider;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Brings DoubleLife up the way {@link DoubleLifePlugin#onEnable()} does, minus command
+ * registration, against the fake server and LuckPerms. The loaded config is then pointed at the
+ * stub webhook and given lifecycle commands, so every outbound path carries load.
+ */
+final class PluginBootstrap {
+
+    private final DoubleLifePlugin plugin;
+    private final DoubleLifeManager manager;
+    private final DoubleLifeListener listener;
+
+    PluginBootstrap(FakeServer server, FakeLuckPerms luckPerms, File dataFolder, String webhookUrl) {
+        this.plugin = Reflection.allocate(DoubleLifePlugin.class);
+        PluginDescriptionFile description = new PluginDescriptionFile("DoubleLife", "loadsim",
+            DoubleLifePlugin.class.getName());
+        Reflection.set(JavaPlugin.class, plugin, "server", server.proxy());
+        Reflection.set(JavaPlugin.class, plugin, "dataFolder", dataFolder);
+        boolean described = Reflection.trySet(JavaPlugin.class, plugin, "description", description);
+        described |= Reflection.trySet(JavaPlugin.class, plugin, "pluginMeta", description);
+        if (!described) {
+            throw new IllegalStateException("JavaPlugin has no description field to fill in");
+        }
+        Reflection.trySet(JavaPlugin.class, plugin, "logger", java.util.logging.Logger.getLogger("DoubleLife"));
+        Reflection.trySet(JavaPlugin.class, plugin, "isEnabled", true);
+        Reflection.set(DoubleLifePlugin.class, null, "instance", plugin);
+
+        var platform = new BukkitPlatformProvider(plugin);
+        ConfigManager configManager = new ConfigManager(platform);
+        LanguageManager languageManager = new LanguageManager(platform, configManager);
+        languageManager.init("en");
+        DoubleLifeTranslations.register(languageManager);
+        Messages.setLanguageManager(languageManager);
+        Logger logger = new Logger(platform, plugin, configManager);
+        logger.setLanguageManager(languageManager);
+        logger.setAutoLocalization(true);
+
+        DoubleLifeConfig config = configManager.register(DoubleLifeConfig.class);
+        configure(config, webhookUrl);
+
+        Reflection.set(plugin, "configManager", configManager);
+        Reflection.set(plugin, "languageManager", languageManager);
+        Reflection.set(plugin, "mLogger", logger);
+        Reflection.set(plugin, "doubleLifeConfig", config);
+        Reflection.set(plugin, "luckPerms", luckPerms.proxy());
+
+        this.manager = new DoubleLifeManager(plugin, config, luckPerms.proxy());
+        Reflection.set(plugin, "doubleLifeManager", manager);
+        this.listener = new DoubleLifeListener(plugin);
+    }
+
+    DoubleLifePlugin getPlugin() {
+        return plugin;
+    }
+
+    DoubleLifeManager getManager() {
+        return manager;
+    }
+
+    DoubleLifeListener getListener() {
+        return listener;
+    }
+
+    void shutdown() {
+        plugin.onDisable();
+    }
+
+    /**
+     * Overrides the generated defaults in memory; the file on disk is left as written.
+     */
+    private static void configure(DoubleLifeConfig config, String webhookUrl) {
+        Reflection.set(config, "enabled", true);
+
+        WebhookSettings webhooks = config.getWebhooks();
+        Reflection.set(webhooks, "enabled", true);
+        Reflection.set(webhooks, "url", webhookUrl);
+        Reflection.set(webhooks, "actionLog", true);
+
+        AuditSettings audit = config.getAudit();
+        Reflection.set(audit, "enabled", true);
+
+        MetricsSettings metrics = config.getMetrics();
+        Reflection.set(metrics, "httpEnabled", false);
+
+        CommandSettings commands = config.getCommands();
+        Reflection.set(commands, "beforeStart", List.of("say {player} enters DoubleLife"));
+        Reflection.set(commands, "afterStart", List.of("effect give {player} minecraft:night_vision {duration}"));
+        Reflection.set(commands, "beforeEnd", List.of("effect clear {player}"));
+        Reflection.set(commands, "afterEnd", List.of("say {player} left DoubleLife ({profiles})"));
+    }
+}
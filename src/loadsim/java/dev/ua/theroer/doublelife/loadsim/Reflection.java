@@ -0,0 +1,91 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Reflective helpers for wiring the plugin together outside a real server.
+ */
+final class Reflection {
+
+    private static final MethodHandle ALLOCATE_INSTANCE = loadAllocateInstance();
+
+    private Reflection() {
+    }
+
+    /**
+     * Creates an instance without running any constructor. {@code JavaPlugin} refuses to be
+     * constructed outside a plugin class loader, so the simulator fills in its fields instead.
+     */
+    static <T> T allocate(Class<T> type) {
+        try {
+            return type.cast(ALLOCATE_INSTANCE.invoke(type));
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot allocate " + type.getName(), e);
+        }
+    }
+
+    static void set(Object target, String name, Object value) {
+        set(target.getClass(), target, name, value);
+    }
+
+    static void set(Class<?> owner, Object target, String name, Object value) {
+        try {
+            Field field = owner.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + owner.getSimpleName() + "." + name, e);
+        }
+    }
+
+    /**
+     * Sets the field only if it exists and accepts the value; for fields that differ between
+     * server API versions.
+     */
+    static boolean trySet(Class<?> owner, Object target, String name, Object value) {
+        try {
+            Field field = owner.getDeclaredField(name);
+            if (value != null && !field.getType().isInstance(value) && !field.getType().isPrimitive()) {
+                return false;
+            }
+            field.setAccessible(true);
+            field.set(target, value);
+            return true;
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    static void invokeStatic(Class<?> owner, String name, Class<?> parameterType, Object argument) {
+        try {
+            Method method = owner.getDeclaredMethod(name, parameterType);
+            method.setAccessible(true);
+            method.invoke(null, argument);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot call " + owner.getSimpleName() + "." + name, e);
+        }
+    }
+
+    /**
+     * Binds {@code sun.misc.Unsafe.allocateInstance} by name. There is no supported way to skip a
+     * constructor, and referring to {@code Unsafe} directly draws an internal API warning on every
+     * compile that {@code @SuppressWarnings} cannot silence; looked up at runtime it stays confined
+     * to the simulator.
+     */
+    private static MethodHandle loadAllocateInstance() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                .findVirtual(unsafeClass, "allocateInstance", MethodType.methodType(Object.class, Class.class))
+                .bindTo(field.get(null));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
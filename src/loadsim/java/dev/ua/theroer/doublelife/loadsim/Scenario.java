@@ -0,0 +1,207 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import dev.ua.theroer.doublelife.doublelife.DoubleLifeListener;
+import dev.ua.theroer.doublelife.doublelife.DoubleLifeManager;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives the simulated players through DoubleLife: joins spread over a ramp, sessions started
+ * with short durations so many run into expiry, bursts of logged actions, quits mid-session and
+ * rejoins (some after the session expired offline), and voluntary ends. Everything happens
+ * through the real listener and manager entry points, on the server thread, from one seeded
+ * {@link Random}, so two runs with the same options issue the same calls.
+ */
+final class Scenario {
+
+    private static final int PRE_LOGIN_LEAD_TICKS = 2;
+    private static final int START_CHANCE = 200;
+    private static final int ACTION_BURST_CHANCE = 40;
+    private static final int END_CHANCE = 900;
+    private static final int QUIT_CHANCE = 1200;
+    private static final int MIN_DURATION_SECONDS = 15;
+    private static final int MAX_DURATION_SECONDS = 45;
+    private static final int MIN_REJOIN_TICKS = 100;
+    private static final int MAX_REJOIN_TICKS = 1200;
+    private static final String[] COMMANDS = {"/home", "/spawn", "/msg sim0 hello", "/tp sim1", "/gamemode spectator"};
+
+    private final DoubleLifeManager manager;
+    private final DoubleLifeListener listener;
+    private final List<FakePlayer> players;
+    private final Random random;
+    private final int[] joinAt;
+    private final boolean[] joined;
+    private final ExecutorService loginThread;
+    private final Map<String, Long> counts = new LinkedHashMap<>();
+    private final InetAddress address = InetAddress.getLoopbackAddress();
+    private volatile boolean active = true;
+
+    Scenario(DoubleLifeManager manager, DoubleLifeListener listener, List<FakePlayer> players, long seed, int rampTicks) {
+        this.manager = manager;
+        this.listener = listener;
+        this.players = new ArrayList<>(players);
+        this.random = new Random(seed);
+        this.joinAt = new int[players.size()];
+        this.joined = new boolean[players.size()];
+        for (int i = 0; i < joinAt.length; i++) {
+            joinAt[i] = PRE_LOGIN_LEAD_TICKS + 1 + random.nextInt(Math.max(1, rampTicks));
+        }
+        AtomicInteger threads = new AtomicInteger();
+        this.loginThread = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "doublelife-loadsim-login-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (String event : List.of("joins", "rejoins", "quits", "starts", "rejected_starts", "ends",
+            "action_bursts", "actions")) {
+            counts.put(event, 0L);
+        }
+    }
+
+    /**
+     * Stops new activity; players already online stay online so pending work can drain.
+     */
+    void stop() {
+        active = false;
+    }
+
+    Map<String, Long> getCounts() {
+        return counts;
+    }
+
+    void shutdown() {
+        loginThread.shutdown();
+        try {
+            loginThread.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Issues this tick's player activity. Runs on the server thread, before the scheduler.
+     */
+    void tick(int tick) {
+        if (!active) {
+            return;
+        }
+        for (int i = 0; i < players.size(); i++) {
+            FakePlayer player = players.get(i);
+            if (!player.isOnline()) {
+                if (joinAt[i] - PRE_LOGIN_LEAD_TICKS == tick) {
+                    preLogin(player);
+                } else if (joinAt[i] == tick) {
+                    join(i, player);
+                }
+                continue;
+            }
+            act(i, player, tick);
+        }
+    }
+
+    private void act(int index, FakePlayer fake, int tick) {
+        Player player = fake.proxy();
+        boolean hasSession = manager.hasActiveSession(fake.getUniqueId());
+        if (random.nextInt(QUIT_CHANCE) == 0) {
+            quit(index, fake, tick);
+            return;
+        }
+        if (!hasSession) {
+            if (random.nextInt(START_CHANCE) == 0) {
+                int duration = MIN_DURATION_SECONDS + random.nextInt(MAX_DURATION_SECONDS - MIN_DURATION_SECONDS + 1);
+                count(manager.startDoubleLife(player, duration).success() ? "starts" : "rejected_starts");
+            }
+            return;
+        }
+        if (random.nextInt(ACTION_BURST_CHANCE) == 0) {
+            actionBurst(fake);
+        }
+        if (random.nextInt(END_CHANCE) == 0 && manager.endDoubleLife(player)) {
+            count("ends");
+        }
+    }
+
+    private void actionBurst(FakePlayer fake) {
+        Player player = fake.proxy();
+        int actions = 3 + random.nextInt(8);
+        for (int i = 0; i < actions; i++) {
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    Location at = fake.getLocation().clone().add(random.nextInt(5) - 2, random.nextInt(3) - 1, random.nextInt(5) - 2);
+                    listener.onBlockBreak(new BlockBreakEvent(block(at), player));
+                }
+                case 1 -> {
+                    Location from = fake.getLocation().clone();
+                    Location to = from.clone().add(random.nextInt(200) - 100, 0, random.nextInt(200) - 100);
+                    PlayerTeleportEvent event = new PlayerTeleportEvent(player, from, to);
+                    player.teleport(to);
+                    listener.onPlayerTeleport(event);
+                }
+                default -> {
+                    PlayerCommandPreprocessEvent event =
+                        new PlayerCommandPreprocessEvent(player, COMMANDS[random.nextInt(COMMANDS.length)]);
+                    listener.onPlayerCommandAllowlist(event);
+                    if (!event.isCancelled()) {
+                        listener.onPlayerCommand(event);
+                    }
+                }
+            }
+        }
+        count("action_bursts");
+        counts.merge("actions", (long) actions, Long::sum);
+    }
+
+    private void preLogin(FakePlayer player) {
+        loginThread.execute(() -> listener.onPlayerPreLogin(
+            new AsyncPlayerPreLoginEvent(player.getName(), address, player.getUniqueId())));
+    }
+
+    private void join(int index, FakePlayer player) {
+        player.setOnline(true);
+        listener.onPlayerJoin(new PlayerJoinEvent(player.proxy(), Component.empty()));
+        count(joined[index] ? "rejoins" : "joins");
+        joined[index] = true;
+    }
+
+    private void quit(int index, FakePlayer player, int tick) {
+        listener.onPlayerQuit(new PlayerQuitEvent(player.proxy(), Component.empty(), PlayerQuitEvent.QuitReason.DISCONNECTED));
+        player.setOnline(false);
+        joinAt[index] = tick + MIN_REJOIN_TICKS + random.nextInt(MAX_REJOIN_TICKS - MIN_REJOIN_TICKS);
+        count("quits");
+    }
+
+    private void count(String event) {
+        counts.merge(event, 1L, Long::sum);
+    }
+
+    private static Block block(Location location) {
+        return Fakes.of(Block.class)
+            .returning("getType", Material.STONE)
+            .returning("getLocation", location)
+            .returning("getWorld", location.getWorld())
+            .returning("getX", location.getBlockX())
+            .returning("getY", location.getBlockY())
+            .returning("getZ", location.getBlockZ())
+            .build();
+    }
+}
@@ -0,0 +1,192 @@
+package dev.ua.theroer.doublelife.loadsim;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a Discord webhook. Answers execute ({@code POST}, with a message id when
+ * {@code ?wait=true}) and edit ({@code PATCH .../messages/{id}}) requests, and enforces a
+ * per-route limit with Discord's rate-limit headers, so the dispatcher's limiter is exercised
+ * and any request it lets through past the limit shows up as a 429.
+ */
+final class StubWebhookServer {
+
+    private static final String PATH = "/api/webhooks/1/loadsim";
+
+    private final int limit;
+    private final long windowMillis;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Window> windows = new HashMap<>();
+    private final AtomicLong messageIds = new AtomicLong(1_000_000L);
+    private final AtomicLong posts = new AtomicLong();
+    private final AtomicLong edits = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong embeds = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    StubWebhookServer(int limit, long windowMillis) throws IOException {
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "doublelife-loadsim-webhook-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + PATH;
+    }
+
+    long getPosts() {
+        return posts.get();
+    }
+
+    long getEdits() {
+        return edits.get();
+    }
+
+    long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    long getEmbeds() {
+        return embeds.get();
+    }
+
+    long getBytes() {
+        return bytes.get();
+    }
+
+    long getRequests() {
+        return posts.get() + edits.get() + rateLimited.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+            String path = exchange.getRequestURI().getPath();
+            boolean edit = "PATCH".equals(method) && path.startsWith(PATH + "/messages/");
+            if (!edit && !("POST".equals(method) && path.equals(PATH))) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+            bytes.addAndGet(body.length);
+
+            String route = edit ? "PATCH /messages" : "POST";
+            long now = System.currentTimeMillis();
+            int remaining;
+            long resetAfter;
+            synchronized (windows) {
+                Window window = windows.computeIfAbsent(route, key -> new Window());
+                if (now - window.startedAt >= windowMillis) {
+                    window.startedAt = now;
+                    window.used = 0;
+                }
+                resetAfter = window.startedAt + windowMillis - now;
+                remaining = limit - window.used;
+                if (remaining > 0) {
+                    window.used++;
+                    remaining--;
+                } else {
+                    remaining = -1;
+                }
+            }
+
+            exchange.getResponseHeaders().set("X-RateLimit-Bucket", Integer.toHexString(route.hashCode()));
+            exchange.getResponseHeaders().set("X-RateLimit-Limit", Integer.toString(limit));
+            exchange.getResponseHeaders().set("X-RateLimit-Reset-After", seconds(resetAfter));
+            if (remaining < 0) {
+                rateLimited.incrementAndGet();
+                exchange.getResponseHeaders().set("X-RateLimit-Remaining", "0");
+                exchange.getResponseHeaders().set("X-RateLimit-Scope", "user");
+                exchange.getResponseHeaders().set("Retry-After", seconds(resetAfter));
+                send(exchange, 429, "{\"message\":\"You are being rate limited.\",\"retry_after\":"
+                    + seconds(resetAfter) + ",\"global\":false}");
+                return;
+            }
+            exchange.getResponseHeaders().set("X-RateLimit-Remaining", Integer.toString(remaining));
+            embeds.addAndGet(countEmbeds(body));
+
+            if (edit) {
+                edits.incrementAndGet();
+                String id = path.substring(path.lastIndexOf('/') + 1);
+                send(exchange, 200, "{\"id\":\"" + id + "\"}");
+            } else {
+                posts.incrementAndGet();
+                String query = exchange.getRequestURI().getQuery();
+                if (query != null && query.contains("wait=true")) {
+                    send(exchange, 200, "{\"id\":\"" + messageIds.incrementAndGet() + "\"}");
+                } else {
+                    exchange.sendResponseHeaders(204, -1);
+                }
+            }
+        }
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static int countEmbeds(byte[] body) {
+        try {
+            JsonObject payload = JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+            JsonElement embeds = payload.get("embeds");
+            return embeds != null && embeds.isJsonArray() ? embeds.getAsJsonArray().size() : 0;
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] response = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private static String seconds(long millis) {
+        return String.format(Locale.ROOT, "%.3f", Math.max(0L, millis) / 1000.0);
+    }
+
+    private static final class Window {
+        private long startedAt;
+        private int used;
+    }
+}
@@ -65,6 +65,7 @@ public final class DoubleLifePlugin extends JavaPlugin {
 
         doubleLifeManager = new DoubleLifeManager(this, doubleLifeConfig, luckPerms);
         getServer().getPluginManager().registerEvents(new DoubleLifeListener(this), this);
+        getServer().getPluginManager().registerEvents(doubleLifeManager.getTickCosts(), this);
         CommandRegistry.registerAll(
                 new DoubleLifeCommand(this).addSubCommand(
                     HelpCommandSupport.createHelpSubCommand("help",
@@ -79,12 +80,12 @@ public final class DoubleLifePlugin extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        if (doubleLifeManager != null) {
-            doubleLifeManager.shutdown();
-        }
         if (lifecycleNotifier != null) {
             lifecycleNotifier.onDisable();
         }
+        if (doubleLifeManager != null) {
+            doubleLifeManager.shutdown();
+        }
         if (configManager != null) {
             configManager.shutdown();
         }
@@ -4,6 +4,9 @@ import dev.ua.theroer.doublelife.DoubleLifePlugin;
 import dev.ua.theroer.doublelife.config.DoubleLifeConfig;
 import dev.ua.theroer.doublelife.doublelife.DoubleLifeManager;
 import dev.ua.theroer.doublelife.doublelife.DoubleLifeSession;
+import dev.ua.theroer.doublelife.doublelife.TickCostMonitor;
+import dev.ua.theroer.doublelife.doublelife.audit.AuditLog;
+import dev.ua.theroer.doublelife.doublelife.audit.AuditReader;
 import dev.ua.theroer.magicutils.Logger;
 import dev.ua.theroer.magicutils.annotations.CommandInfo;
 import dev.ua.theroer.magicutils.annotations.DefaultValue;
@@ -15,10 +18,16 @@ import dev.ua.theroer.magicutils.commands.CompareMode;
 import dev.ua.theroer.magicutils.commands.MagicCommand;
 import dev.ua.theroer.magicutils.commands.PermissionConditionType;
 
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
 @CommandInfo(
     name = "doublelife",
     aliases = {"dl"},
@@ -130,9 +139,74 @@ public class DoubleLifeCommand extends MagicCommand {
         return CommandResult.success();
     }
 
+    @SubCommand(name = "audit", description = "Search the local DoubleLife audit log")
+    public CommandResult audit(
+        @NotNull CommandSender sender,
+        String player,
+        @DefaultValue("24h") String since
+    ) {
+        AuditLog auditLog = manager.getAuditLog();
+        if (!auditLog.isEnabled()) {
+            return CommandResult.failure("Audit log is disabled", false);
+        }
+        long sinceMillis = AuditReader.parseSince(since, System.currentTimeMillis());
+        if (sinceMillis < 0) {
+            return CommandResult.failure("Invalid time '" + since + "'; use e.g. 30m, 12h or 7d", false);
+        }
+
+        OfflinePlayer cached = Bukkit.getOfflinePlayerIfCached(player);
+        UUID playerUuid = cached != null ? cached.getUniqueId() : null;
+        logger.info().to(sender).send("Searching audit log for " + player + " (last " + since + ")...");
+        auditLog.search(playerUuid, player, sinceMillis).whenComplete((result, error) ->
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    logger.error().to(sender).send("Audit search failed: " + cause.getMessage());
+                    return;
+                }
+                if (result.matched() == 0) {
+                    logger.info().to(sender).send("No audit records for " + player + " in the last " + since);
+                    return;
+                }
+                logger.info().to(sender).send("=== Audit: " + player + " (" + result.lines().size() + " of " + result.matched() + ") ===");
+                result.lines().forEach(line -> logger.info().to(sender).send(line));
+            }));
+        return CommandResult.success();
+    }
+
+    @SubCommand(name = "metrics", description = "Show DoubleLife metrics")
+    public CommandResult metrics(
+        @NotNull CommandSender sender,
+        @DefaultValue("all") String filter
+    ) {
+        boolean all = filter.equalsIgnoreCase("all");
+        String needle = filter.toLowerCase(Locale.ROOT);
+        List<String> lines = manager.getMetrics().describe().stream()
+            .filter(line -> all || line.contains(needle))
+            .toList();
+        if (lines.isEmpty()) {
+            return CommandResult.failure("No metrics recorded" + (all ? "" : " matching '" + filter + "'"), false);
+        }
+        logger.info().to(sender).send("=== DoubleLife Metrics ===");
+        lines.forEach(line -> logger.info().to(sender).send(line));
+        return CommandResult.success();
+    }
+
+    @SubCommand(name = "ticks", description = "Show DoubleLife server-thread time per tick")
+    public CommandResult ticks(@NotNull CommandSender sender) {
+        TickCostMonitor tickCosts = manager.getTickCosts();
+        if (tickCosts.getWindowTicks() == 0) {
+            return CommandResult.failure("No ticks recorded yet", false);
+        }
+        logger.info().to(sender).send("=== DoubleLife Tick Cost (last " + tickCosts.getWindowTicks() + " ticks) ===");
+        tickCosts.describe().forEach(line -> logger.info().to(sender).send(line));
+        return CommandResult.success();
+    }
+
     @SubCommand(name = "reload", description = "Reload DoubleLife configuration")
     public CommandResult reload(@NotNull CommandSender sender) {
         plugin.getConfigManager().reload(DoubleLifeConfig.class);
+        manager.reload();
         return CommandResult.success("DoubleLife configuration reloaded");
     }
 }
@@ -0,0 +1,32 @@
+package dev.ua.theroer.doublelife.config;
+
+import dev.ua.theroer.magicutils.config.annotations.Comment;
+import dev.ua.theroer.magicutils.config.annotations.ConfigValue;
+import lombok.Getter;
+
+@Getter
+public class AuditSettings {
+    @ConfigValue("enabled")
+    @Comment("Write DoubleLife actions and session events to a local NDJSON audit log")
+    private boolean enabled = true;
+
+    @ConfigValue("path")
+    @Comment("Relative path under plugin data folder for audit log segments")
+    private String path = "audit";
+
+    @ConfigValue("max-segment-mb")
+    @Comment("Start a new segment once the current one reaches this size (MiB)")
+    private int maxSegmentMb = 16;
+
+    @ConfigValue("rotate-hours")
+    @Comment("Start a new segment after this many hours even if it is not full")
+    private int rotateHours = 24;
+
+    @ConfigValue("retention-days")
+    @Comment("Delete closed segments older than this many days (0 keeps them forever)")
+    private int retentionDays = 30;
+
+    @ConfigValue("query-limit")
+    @Comment("Maximum number of most recent records shown by /dl audit")
+    private int queryLimit = 50;
+}
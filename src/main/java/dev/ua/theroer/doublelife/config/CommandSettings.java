@@ -12,7 +12,7 @@ import java.util.List;
 @ConfigSerializable
 public class CommandSettings {
     @ConfigValue("before-start")
-    @Comment("Commands to run before DoubleLife starts (console). Placeholders: {player}, {uuid}, {profiles}, {duration}, {remaining}")
+    @Comment("Commands to run before DoubleLife starts (console). Placeholders: {player}, {uuid}, {profiles}, {duration}, {remaining}. Commands of one player always run in order")
     private List<String> beforeStart = new ArrayList<>();
 
     @ConfigValue("after-start")
@@ -26,4 +26,12 @@ public class CommandSettings {
     @ConfigValue("after-end")
     @Comment("Commands to run after DoubleLife ends (console)")
     private List<String> afterEnd = new ArrayList<>();
+
+    @ConfigValue("max-per-tick")
+    @Comment("Most lifecycle commands dispatched per server tick; the rest wait for later ticks (0 = no limit)")
+    private int maxPerTick = 8;
+
+    @ConfigValue("tick-budget-millis")
+    @Comment("Stop dispatching lifecycle commands in a tick once they have used this many milliseconds (0 = no limit)")
+    private int tickBudgetMillis = 5;
 }
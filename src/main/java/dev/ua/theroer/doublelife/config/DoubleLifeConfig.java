@@ -26,10 +26,23 @@ public class DoubleLifeConfig {
     @Comment("Relative path under plugin data folder for saved inventories")
     private String storagePath;
 
+    @ConfigValue("storage-compression")
+    @DefaultValue("false")
+    @Comment("Deflate-compress saved session files (item data is already compressed, so gains are small)")
+    private boolean storageCompression;
+
     @ConfigSection("webhooks")
     @Comment("Discord webhook settings")
     private WebhookSettings webhooks = new WebhookSettings();
 
+    @ConfigSection("audit")
+    @Comment("Local audit log settings")
+    private AuditSettings audit = new AuditSettings();
+
+    @ConfigSection("metrics")
+    @Comment("Metrics endpoint and tick cost monitoring settings")
+    private MetricsSettings metrics = new MetricsSettings();
+
     @ConfigSection("commands")
     @Comment("Console commands to execute on DoubleLife lifecycle")
     private CommandSettings commands = new CommandSettings();
@@ -1,5 +1,6 @@
 package dev.ua.theroer.doublelife.config;
 
+import dev.ua.theroer.magicutils.config.annotations.Comment;
 import dev.ua.theroer.magicutils.config.annotations.ConfigSerializable;
 import dev.ua.theroer.magicutils.config.annotations.ConfigSection;
 import dev.ua.theroer.magicutils.config.annotations.ConfigValue;
@@ -21,6 +22,7 @@ public class DoubleLifeProfile {
     private List<String> permissions;
 
     @ConfigValue("allowed-commands")
+    @Comment("Commands this profile may run while active, e.g. 'tp', 'gamemode spec*', 'co * inspect'. '*' matches one argument; empty means unrestricted")
     private List<String> allowedCommands;
 
     @ConfigSection("commands")
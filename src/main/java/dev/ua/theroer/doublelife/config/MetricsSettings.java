@@ -0,0 +1,32 @@
+package dev.ua.theroer.doublelife.config;
+
+import dev.ua.theroer.magicutils.config.annotations.Comment;
+import dev.ua.theroer.magicutils.config.annotations.ConfigValue;
+import lombok.Getter;
+
+@Getter
+public class MetricsSettings {
+    @ConfigValue("http-enabled")
+    @Comment("Serve metrics in the Prometheus text format over HTTP")
+    private boolean httpEnabled = false;
+
+    @ConfigValue("http-host")
+    @Comment("Address the metrics endpoint binds to; keep it on loopback unless the port is firewalled")
+    private String httpHost = "127.0.0.1";
+
+    @ConfigValue("http-port")
+    @Comment("Port of the metrics endpoint (served at /metrics)")
+    private int httpPort = 9464;
+
+    @ConfigValue("tick-budget-micros")
+    @Comment("Warn when DoubleLife spends more than this much server-thread time in one tick (0 disables the alert)")
+    private int tickBudgetMicros = 2000;
+
+    @ConfigValue("tick-alert-cooldown-seconds")
+    @Comment("Minimum time between two tick budget alerts; ticks over budget in between are only counted")
+    private int tickAlertCooldownSeconds = 60;
+
+    @ConfigValue("tick-alert-webhook")
+    @Comment("Also send tick budget alerts to the webhook")
+    private boolean tickAlertWebhook = false;
+}
@@ -5,6 +5,9 @@ import dev.ua.theroer.magicutils.config.annotations.ConfigValue;
 import dev.ua.theroer.magicutils.config.annotations.DefaultValue;
 import lombok.Getter;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Getter
 public class WebhookSettings {
     @ConfigValue("enabled")
@@ -48,4 +51,24 @@ public class WebhookSettings {
     @ConfigValue("action-batch-edit")
     @Comment("If true, reuse/edit the last Discord message for the batch to reduce spam")
     private boolean actionBatchEdit = true;
+
+    @ConfigValue("pack-embeds")
+    @Comment("Pack messages from several players into one request (up to 10 embeds); when on, action-batch-edit is ignored")
+    private boolean packEmbeds = true;
+
+    @ConfigValue("pack-linger-millis")
+    @Comment("How long a message may wait for others to share its request when packing")
+    private int packLingerMillis = 1000;
+
+    @ConfigValue("action-aggregation")
+    @Comment("Merge repeated actions of the same type and material in a batch into a count and bounding box")
+    private boolean actionAggregation = true;
+
+    @ConfigValue("action-aggregation-types")
+    @Comment("Action types to merge: BLOCK_PLACE, BLOCK_BREAK, INTERACT, ATTACK. Commands, game mode changes, teleports and attacks on players are never merged")
+    private List<String> actionAggregationTypes = new ArrayList<>(List.of("BLOCK_PLACE", "BLOCK_BREAK", "INTERACT", "ATTACK"));
+
+    @ConfigValue("action-aggregation-max-buffered")
+    @Comment("With aggregation on, flush a player's actions before the window ends once this many are buffered")
+    private int actionAggregationMaxBuffered = 2048;
 }
@@ -0,0 +1,126 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+/**
+ * One recorded player action, captured on the main thread with nothing but field writes: enum
+ * constants, the world's own name string, block coordinates packed into a long and a timestamp.
+ * {@link #render} turns it into text later on whichever thread flushes it.
+ *
+ * @param type      kind of action
+ * @param timestamp epoch millis when it happened
+ * @param world     world name, or null when the action has no location
+ * @param position  packed block position, see {@link #pack}
+ * @param toWorld   destination world of a teleport, otherwise null
+ * @param toPosition packed destination of a teleport
+ * @param subject   material, entity type or game mode the action applies to
+ * @param detail    interaction type for {@link ActionType#INTERACT}, otherwise null
+ * @param text      command line for {@link ActionType#COMMAND}, otherwise null
+ * @param amount    damage for {@link ActionType#ATTACK}
+ */
+public record ActionEvent(ActionType type, long timestamp, String world, long position,
+                          String toWorld, long toPosition, Enum<?> subject, Enum<?> detail,
+                          String text, double amount) {
+
+    public static ActionEvent command(String commandLine) {
+        return new ActionEvent(ActionType.COMMAND, System.currentTimeMillis(), null, 0L, null, 0L, null, null, commandLine, 0.0);
+    }
+
+    public static ActionEvent teleport(Location from, Location to) {
+        return new ActionEvent(ActionType.TELEPORT, System.currentTimeMillis(),
+            worldName(from), pack(from), worldName(to), pack(to), null, null, null, 0.0);
+    }
+
+    public static ActionEvent gameMode(Enum<?> mode) {
+        return new ActionEvent(ActionType.GAME_MODE, System.currentTimeMillis(), null, 0L, null, 0L, mode, null, null, 0.0);
+    }
+
+    public static ActionEvent block(ActionType type, Enum<?> material, Location location) {
+        return new ActionEvent(type, System.currentTimeMillis(), worldName(location), pack(location), null, 0L, material, null, null, 0.0);
+    }
+
+    public static ActionEvent interact(Enum<?> action, Enum<?> material, Location location) {
+        return new ActionEvent(ActionType.INTERACT, System.currentTimeMillis(),
+            worldName(location), pack(location), null, 0L, material, action, null, 0.0);
+    }
+
+    public static ActionEvent attack(Enum<?> entityType, double damage) {
+        return new ActionEvent(ActionType.ATTACK, System.currentTimeMillis(), null, 0L, null, 0L, entityType, null, null, damage);
+    }
+
+    /**
+     * Packs block coordinates the way Minecraft does: 26 bits of x, 26 of z and 12 of y.
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFFL);
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    public static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    private static long pack(Location location) {
+        return location == null ? 0L : pack(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    private static String worldName(Location location) {
+        if (location == null) {
+            return null;
+        }
+        World world = location.getWorld();
+        return world != null ? world.getName() : "null";
+    }
+
+    public int x() {
+        return unpackX(position);
+    }
+
+    public int y() {
+        return unpackY(position);
+    }
+
+    public int z() {
+        return unpackZ(position);
+    }
+
+    /**
+     * Appends the log line for this action, e.g. {@code BlockBreak: STONE at world:1,64,-3}.
+     */
+    public StringBuilder render(StringBuilder out) {
+        return renderDetails(out.append(type.getLabel()).append(": "));
+    }
+
+    /**
+     * Appends the log line without the leading type label.
+     */
+    public StringBuilder renderDetails(StringBuilder out) {
+        switch (type) {
+            case COMMAND -> out.append(text);
+            case TELEPORT -> appendLocation(appendLocation(out, world, position).append(" -> "), toWorld, toPosition);
+            case GAME_MODE -> out.append(subject.name());
+            case BLOCK_BREAK, BLOCK_PLACE -> appendLocation(out.append(subject.name()).append(" at "), world, position);
+            case INTERACT -> appendLocation(out.append(detail.name()).append(' ').append(subject.name()).append(" at "), world, position);
+            case ATTACK -> out.append(subject.name()).append(" (").append(amount).append(" damage)");
+        }
+        return out;
+    }
+
+    private static StringBuilder appendLocation(StringBuilder out, String world, long packed) {
+        if (world == null) {
+            return out.append("null");
+        }
+        return out.append(world).append(':')
+            .append(unpackX(packed)).append(',')
+            .append(unpackY(packed)).append(',')
+            .append(unpackZ(packed));
+    }
+}
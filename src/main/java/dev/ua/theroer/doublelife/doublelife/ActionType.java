@@ -0,0 +1,27 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+/**
+ * Kinds of player actions recorded during a DoubleLife session.
+ */
+public enum ActionType {
+    COMMAND("Command"),
+    TELEPORT("Teleport"),
+    GAME_MODE("GameMode"),
+    BLOCK_BREAK("BlockBreak"),
+    BLOCK_PLACE("BlockPlace"),
+    INTERACT("Interact"),
+    ATTACK("Attack");
+
+    private final String label;
+
+    ActionType(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Name shown in webhook messages.
+     */
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,163 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Precompiled command allowlist. Patterns are space-separated tokens matched case-insensitively
+ * against the start of a command line, so {@code tp} allows {@code /tp Steve}. A {@code *} token
+ * matches any single argument, a token ending in {@code *} matches by prefix, and a lone {@code *}
+ * allows every command. The command label is canonicalized on both sides (e.g. aliases and
+ * {@code plugin:} prefixes resolved to the registered command name), so a pattern covers all of a
+ * command's aliases.
+ * <p>
+ * Patterns are compiled into a token trie; a lookup tokenizes at most as many tokens as the
+ * deepest pattern and walks the trie once, without regular expressions.
+ */
+public final class CommandAllowlist {
+
+    private final Node root;
+    private final boolean allowAll;
+    private final int depth;
+    private final UnaryOperator<String> canonicalizer;
+
+    private CommandAllowlist(Node root, boolean allowAll, int depth, UnaryOperator<String> canonicalizer) {
+        this.root = root;
+        this.allowAll = allowAll;
+        this.depth = depth;
+        this.canonicalizer = canonicalizer;
+    }
+
+    /**
+     * Allowlist that permits every command.
+     */
+    public static CommandAllowlist unrestricted() {
+        return new CommandAllowlist(new Node(), true, 0, UnaryOperator.identity());
+    }
+
+    /**
+     * Compiles {@code patterns}. {@code canonicalizer} maps a lower-case command label to the name
+     * it should be matched as.
+     */
+    public static CommandAllowlist compile(Collection<String> patterns, UnaryOperator<String> canonicalizer) {
+        Node root = new Node();
+        int depth = 0;
+        for (String pattern : patterns) {
+            if (pattern == null) {
+                continue;
+            }
+            List<String> tokens = tokenize(pattern, Integer.MAX_VALUE);
+            if (tokens.isEmpty()) {
+                continue;
+            }
+            if (tokens.size() == 1 && tokens.get(0).equals("*")) {
+                return unrestricted();
+            }
+            Node node = root;
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                if (i == 0 && !token.endsWith("*")) {
+                    token = canonicalizer.apply(token);
+                }
+                node = node.child(token);
+            }
+            node.terminal = true;
+            depth = Math.max(depth, tokens.size());
+        }
+        return new CommandAllowlist(root, false, depth, canonicalizer);
+    }
+
+    public boolean allows(String commandLine) {
+        if (allowAll) {
+            return true;
+        }
+        List<String> tokens = tokenize(commandLine, depth);
+        if (tokens.isEmpty()) {
+            return false;
+        }
+        tokens.set(0, canonicalizer.apply(tokens.get(0)));
+        return matches(root, tokens, 0);
+    }
+
+    private static boolean matches(Node node, List<String> tokens, int index) {
+        if (node.terminal) {
+            return true;
+        }
+        if (index == tokens.size()) {
+            return false;
+        }
+        String token = tokens.get(index);
+        Node exact = node.exact.get(token);
+        if (exact != null && matches(exact, tokens, index + 1)) {
+            return true;
+        }
+        if (node.any != null && matches(node.any, tokens, index + 1)) {
+            return true;
+        }
+        if (node.prefixes != null) {
+            for (Map.Entry<String, Node> entry : node.prefixes.entrySet()) {
+                if (token.startsWith(entry.getKey()) && matches(entry.getValue(), tokens, index + 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits on spaces into lower-case tokens, dropping a leading slash and stopping after
+     * {@code limit} tokens.
+     */
+    private static List<String> tokenize(String line, int limit) {
+        List<String> tokens = new ArrayList<>(Math.min(limit, 4));
+        int length = line.length();
+        int i = 0;
+        while (i < length && line.charAt(i) == ' ') {
+            i++;
+        }
+        if (i < length && line.charAt(i) == '/') {
+            i++;
+        }
+        while (i < length && tokens.size() < limit) {
+            while (i < length && line.charAt(i) == ' ') {
+                i++;
+            }
+            int start = i;
+            while (i < length && line.charAt(i) != ' ') {
+                i++;
+            }
+            if (i > start) {
+                tokens.add(line.substring(start, i).toLowerCase(Locale.ROOT));
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> exact = new HashMap<>();
+        private Node any;
+        private Map<String, Node> prefixes;
+        private boolean terminal;
+
+        Node child(String token) {
+            if (token.equals("*")) {
+                if (any == null) {
+                    any = new Node();
+                }
+                return any;
+            }
+            if (token.endsWith("*")) {
+                if (prefixes == null) {
+                    prefixes = new HashMap<>();
+                }
+                return prefixes.computeIfAbsent(token.substring(0, token.length() - 1), key -> new Node());
+            }
+            return exact.computeIfAbsent(token, key -> new Node());
+        }
+    }
+}
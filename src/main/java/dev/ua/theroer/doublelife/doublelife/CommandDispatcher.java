@@ -0,0 +1,212 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import dev.ua.theroer.doublelife.config.CommandSettings;
+import dev.ua.theroer.doublelife.metrics.Histogram;
+import dev.ua.theroer.doublelife.metrics.MetricsRegistry;
+import dev.ua.theroer.magicutils.Logger;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs lifecycle console commands within a per-tick budget. Each player has a FIFO queue, so one
+ * player's commands always run in submission order, and players are served round-robin so one
+ * large batch cannot hold back everybody else. Whatever does not fit into the current tick's
+ * budget is carried over to the next ticks.
+ * <p>
+ * Not thread-safe; all calls are expected on the server thread.
+ */
+public class CommandDispatcher {
+
+    private final JavaPlugin plugin;
+    private final Logger logger;
+    private final Supplier<CommandSettings> settings;
+    private final Histogram commandLatency;
+    private final TickCostMonitor tickCosts;
+    private final Map<UUID, OwnerQueue> queues = new HashMap<>();
+    private final ArrayDeque<OwnerQueue> ready = new ArrayDeque<>();
+    private BukkitTask ticker;
+    private boolean pumping;
+    private int budgetTick = -1;
+    private int usedCount;
+    private long usedNanos;
+    // Written on the server thread only; read by metrics scrapes.
+    private volatile int queued;
+
+    public CommandDispatcher(JavaPlugin plugin, Logger logger, Supplier<CommandSettings> settings, MetricsRegistry metrics,
+                             TickCostMonitor tickCosts) {
+        this.plugin = plugin;
+        this.logger = logger;
+        this.settings = settings;
+        this.tickCosts = tickCosts;
+        this.commandLatency = metrics.histogram("doublelife_command_seconds", "Time spent dispatching one lifecycle command");
+        metrics.gauge("doublelife_commands_queued", "Lifecycle commands waiting for a later tick", this::getQueuedCount);
+    }
+
+    /**
+     * Queues {@code commands} behind any earlier commands of {@code owner}. As much as fits into
+     * the current tick's budget runs right away; the returned future completes on the server
+     * thread once the last of them has been dispatched. Commands that gate a lifecycle step
+     * ({@code discardOnShutdown}) are dropped rather than run if the plugin shuts down first.
+     */
+    public CompletableFuture<Void> submit(UUID owner, List<String> commands, boolean discardOnShutdown) {
+        if (commands.isEmpty()) {
+            OwnerQueue queue = queues.get(owner);
+            return queue != null ? queue.lastBatch().thenRun(() -> { }) : CompletableFuture.completedFuture(null);
+        }
+        OwnerQueue queue = queues.get(owner);
+        if (queue == null) {
+            queue = new OwnerQueue(owner);
+            queues.put(owner, queue);
+            ready.addLast(queue);
+        }
+        Batch batch = new Batch(commands, discardOnShutdown);
+        queue.batches.addLast(batch);
+        queued += commands.size();
+        pump(false);
+        if (!ready.isEmpty()) {
+            ensureTicker();
+        }
+        return batch.done;
+    }
+
+    public int getQueuedCount() {
+        return queued;
+    }
+
+    /**
+     * Dispatches the commands still queued, ignoring the budget, and drops the batches marked
+     * {@code discardOnShutdown}. No future completes, so nothing waiting on a batch runs while the
+     * plugin is being disabled.
+     */
+    public void shutdown() {
+        stopTicker();
+        int dropped = 0;
+        for (OwnerQueue queue : ready) {
+            for (Batch batch : queue.batches) {
+                int remaining = batch.commands.size() - batch.next;
+                if (batch.discardOnShutdown) {
+                    dropped += remaining;
+                    continue;
+                }
+                while (batch.next < batch.commands.size()) {
+                    dispatch(batch.commands.get(batch.next++));
+                }
+            }
+        }
+        ready.clear();
+        queues.clear();
+        queued = 0;
+        if (dropped > 0) {
+            logger.warn("Dropped " + dropped + " queued lifecycle command(s) of sessions that had not switched yet");
+        }
+    }
+
+    private void ensureTicker() {
+        if (ticker == null) {
+            ticker = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    private void stopTicker() {
+        if (ticker != null) {
+            ticker.cancel();
+            ticker = null;
+        }
+    }
+
+    private void tick() {
+        pump(false);
+        if (ready.isEmpty()) {
+            stopTicker();
+        }
+    }
+
+    private void pump(boolean unbounded) {
+        if (pumping) {
+            return;
+        }
+        pumping = true;
+        tickCosts.enter(TickCostMonitor.Subsystem.COMMANDS);
+        try {
+            int tick = Bukkit.getCurrentTick();
+            if (tick != budgetTick) {
+                budgetTick = tick;
+                usedCount = 0;
+                usedNanos = 0;
+            }
+            CommandSettings current = settings.get();
+            int maxCount = current.getMaxPerTick();
+            long maxNanos = TimeUnit.MILLISECONDS.toNanos(current.getTickBudgetMillis());
+            while (!ready.isEmpty()) {
+                if (!unbounded && usedCount > 0
+                    && ((maxCount > 0 && usedCount >= maxCount) || (maxNanos > 0 && usedNanos >= maxNanos))) {
+                    return;
+                }
+                OwnerQueue queue = ready.pollFirst();
+                Batch batch = queue.batches.peekFirst();
+                long started = System.nanoTime();
+                dispatch(batch.commands.get(batch.next++));
+                long elapsed = System.nanoTime() - started;
+                commandLatency.record(elapsed);
+                usedNanos += elapsed;
+                usedCount++;
+                queued--;
+                if (batch.next == batch.commands.size()) {
+                    queue.batches.pollFirst();
+                    batch.done.complete(null);
+                }
+                if (queue.batches.isEmpty()) {
+                    queues.remove(queue.owner, queue);
+                } else {
+                    ready.addLast(queue);
+                }
+            }
+        } finally {
+            tickCosts.exit();
+            pumping = false;
+        }
+    }
+
+    private void dispatch(String command) {
+        try {
+            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
+        } catch (RuntimeException e) {
+            logger.warn("Lifecycle command failed: " + command + ": " + e.getMessage());
+        }
+    }
+
+    private static final class OwnerQueue {
+        private final UUID owner;
+        private final ArrayDeque<Batch> batches = new ArrayDeque<>();
+
+        private OwnerQueue(UUID owner) {
+            this.owner = owner;
+        }
+
+        CompletableFuture<Void> lastBatch() {
+            return batches.peekLast().done;
+        }
+    }
+
+    private static final class Batch {
+        private final List<String> commands;
+        private final boolean discardOnShutdown;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private int next;
+
+        private Batch(List<String> commands, boolean discardOnShutdown) {
+            this.commands = commands;
+            this.discardOnShutdown = discardOnShutdown;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lifecycle command with its placeholders parsed once, so rendering is a single pass over literal
+ * parts and placeholder slots. Unknown {@code {...}} sequences are kept as literal text.
+ */
+public final class CommandTemplate {
+
+    /**
+     * Supported placeholders; {@link #render(String[])} takes values indexed by ordinal.
+     */
+    public enum Placeholder {
+        PLAYER("{player}"),
+        UUID("{uuid}"),
+        PROFILES("{profiles}"),
+        DURATION("{duration}"),
+        REMAINING("{remaining}");
+
+        private final String token;
+
+        Placeholder(String token) {
+            this.token = token;
+        }
+    }
+
+    private static final Placeholder[] PLACEHOLDERS = Placeholder.values();
+
+    private final String[] literals;
+    private final Placeholder[] slots;
+    private final int literalLength;
+
+    private CommandTemplate(String[] literals, Placeholder[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static CommandTemplate parse(String command) {
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> slots = new ArrayList<>();
+        int start = 0;
+        int i = command.indexOf('{');
+        while (i >= 0) {
+            Placeholder placeholder = match(command, i);
+            if (placeholder == null) {
+                i = command.indexOf('{', i + 1);
+                continue;
+            }
+            literals.add(command.substring(start, i));
+            slots.add(placeholder);
+            start = i + placeholder.token.length();
+            i = command.indexOf('{', start);
+        }
+        literals.add(command.substring(start));
+        return new CommandTemplate(literals.toArray(new String[0]), slots.toArray(new Placeholder[0]));
+    }
+
+    private static Placeholder match(String command, int offset) {
+        for (Placeholder placeholder : PLACEHOLDERS) {
+            if (command.startsWith(placeholder.token, offset)) {
+                return placeholder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds the values array for {@link #render(String[])}.
+     */
+    public static String[] values(String player, String uuid, String profiles, String duration, String remaining) {
+        String[] values = new String[PLACEHOLDERS.length];
+        values[Placeholder.PLAYER.ordinal()] = player;
+        values[Placeholder.UUID.ordinal()] = uuid;
+        values[Placeholder.PROFILES.ordinal()] = profiles;
+        values[Placeholder.DURATION.ordinal()] = duration;
+        values[Placeholder.REMAINING.ordinal()] = remaining;
+        return values;
+    }
+
+    public String render(String[] values) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        StringBuilder builder = new StringBuilder(literalLength + slots.length * 16);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]).append(values[slots[i].ordinal()]);
+        }
+        return builder.append(literals[slots.length]).toString();
+    }
+}
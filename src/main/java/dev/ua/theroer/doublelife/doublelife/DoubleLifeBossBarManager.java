@@ -9,100 +9,145 @@ import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitTask;
 
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Boss bars for active sessions. A single ticker updates every bar in one pass and only pushes
+ * a title, progress or color change to the client when the visible value actually changed.
+ */
 public class DoubleLifeBossBarManager {
 
+    private static final String UNLIMITED_TITLE = "§aDoubleLife Mode §7- §eUnlimited";
+    private static final long UPDATE_PERIOD_TICKS = 20L;
+    private static final int PROGRESS_STEPS = 100;
+
     private final JavaPlugin plugin;
     private final DoubleLifeConfig config;
-    private final Map<UUID, BossBar> activeBossBars;
-    private final Map<UUID, BukkitTask> updateTasks;
+    private final TickCostMonitor tickCosts;
+    private final Map<UUID, BarState> activeBossBars;
+    private final Map<String, TitleCache> titleCaches;
+    private BukkitTask ticker;
 
-    public DoubleLifeBossBarManager(JavaPlugin plugin, DoubleLifeConfig config) {
+    public DoubleLifeBossBarManager(JavaPlugin plugin, DoubleLifeConfig config, TickCostMonitor tickCosts) {
         this.plugin = plugin;
         this.config = config;
+        this.tickCosts = tickCosts;
         this.activeBossBars = new ConcurrentHashMap<>();
-        this.updateTasks = new ConcurrentHashMap<>();
+        this.titleCaches = new HashMap<>();
     }
 
     public void createBossBar(Player player, DoubleLifeSession session) {
         if (!config.isShowBossBar()) {
             return;
         }
+        tickCosts.run(TickCostMonitor.Subsystem.BOSS_BAR, () -> showBossBar(player, session));
+    }
 
+    private void showBossBar(Player player, DoubleLifeSession session) {
         removeBossBar(player.getUniqueId());
 
         BarColor color = parseBarColor(config.getBossBarColor());
         BarStyle style = parseBarStyle(config.getBossBarStyle());
 
-        BossBar bossBar = Bukkit.createBossBar(formatTitle(session), color, style);
+        String profiles = String.join(", ", session.getActiveProfiles());
+        TitleCache titles = titleCaches.computeIfAbsent(profiles, TitleCache::new);
+        BarState state = new BarState(player, session, titles, color);
+        String title = UNLIMITED_TITLE;
+        if (session.getDuration() > 0) {
+            state.lastRemaining = session.getRemainingSeconds();
+            title = titles.get(state.lastRemaining);
+        }
+
+        BossBar bossBar = Bukkit.createBossBar(title, color, style);
         bossBar.addPlayer(player);
         bossBar.setVisible(true);
-        activeBossBars.put(player.getUniqueId(), bossBar);
+        state.bar = bossBar;
+        activeBossBars.put(player.getUniqueId(), state);
 
         if (session.getDuration() > 0) {
-            BukkitTask task = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
-                if (!player.isOnline() || !session.isActive()) {
-                    removeBossBar(player.getUniqueId());
-                    return;
-                }
-                updateBossBar(player.getUniqueId(), session);
-            }, 0L, 20L);
+            update(state, Instant.now().getEpochSecond());
+            ensureTicker();
+        }
+    }
 
-            updateTasks.put(player.getUniqueId(), task);
+    private void ensureTicker() {
+        if (ticker == null) {
+            ticker = Bukkit.getScheduler().runTaskTimer(plugin,
+                () -> tickCosts.run(TickCostMonitor.Subsystem.BOSS_BAR, this::tick), UPDATE_PERIOD_TICKS, UPDATE_PERIOD_TICKS);
         }
     }
 
-    private void updateBossBar(UUID playerUuid, DoubleLifeSession session) {
-        BossBar bossBar = activeBossBars.get(playerUuid);
-        if (bossBar == null) {
+    private void tick() {
+        if (activeBossBars.isEmpty()) {
+            stopTicker();
             return;
         }
+        long now = Instant.now().getEpochSecond();
+        Iterator<BarState> iterator = activeBossBars.values().iterator();
+        while (iterator.hasNext()) {
+            BarState state = iterator.next();
+            if (!state.player.isOnline() || !state.session.isActive()) {
+                iterator.remove();
+                state.bar.removeAll();
+                continue;
+            }
+            if (state.session.getDuration() > 0) {
+                update(state, now);
+            }
+        }
+    }
 
-        bossBar.setTitle(formatTitle(session));
+    private void update(BarState state, long nowEpochSecond) {
+        DoubleLifeSession session = state.session;
+        long remaining = session.getRemainingSeconds(nowEpochSecond);
+        if (remaining != state.lastRemaining) {
+            state.lastRemaining = remaining;
+            state.bar.setTitle(state.titles.get(remaining));
+        }
 
-        if (session.getDuration() > 0) {
-            double progress = (double) session.getRemainingSeconds() / session.getDuration();
-            bossBar.setProgress(Math.max(0.0, Math.min(1.0, progress)));
+        double progress = Math.max(0.0, Math.min(1.0, (double) remaining / session.getDuration()));
+        int step = (int) Math.ceil(progress * PROGRESS_STEPS);
+        if (step != state.lastStep) {
+            state.lastStep = step;
+            state.bar.setProgress((double) step / PROGRESS_STEPS);
+        }
 
-            if (progress < 0.1) {
-                bossBar.setColor(BarColor.RED);
-            } else if (progress < 0.25) {
-                bossBar.setColor(BarColor.YELLOW);
-            }
-        } else {
-            bossBar.setProgress(1.0);
+        BarColor color = state.color;
+        if (progress < 0.1) {
+            color = BarColor.RED;
+        } else if (progress < 0.25) {
+            color = BarColor.YELLOW;
+        }
+        if (color != state.color) {
+            state.color = color;
+            state.bar.setColor(color);
         }
     }
 
     public void removeBossBar(UUID playerUuid) {
-        BukkitTask task = updateTasks.remove(playerUuid);
-        if (task != null) {
-            task.cancel();
-        }
-
-        BossBar bossBar = activeBossBars.remove(playerUuid);
-        if (bossBar != null) {
-            bossBar.removeAll();
+        BarState state = activeBossBars.remove(playerUuid);
+        if (state != null) {
+            state.bar.removeAll();
         }
     }
 
     public void removeAllBossBars() {
-        updateTasks.values().forEach(BukkitTask::cancel);
-        updateTasks.clear();
-        activeBossBars.values().forEach(BossBar::removeAll);
+        stopTicker();
+        activeBossBars.values().forEach(state -> state.bar.removeAll());
         activeBossBars.clear();
+        titleCaches.clear();
     }
 
-    private String formatTitle(DoubleLifeSession session) {
-        if (session.getDuration() == 0) {
-            return "§aDoubleLife Mode §7- §eUnlimited";
+    private void stopTicker() {
+        if (ticker != null) {
+            ticker.cancel();
+            ticker = null;
         }
-        String time = session.getFormattedRemainingTime();
-        String profiles = String.join(", ", session.getActiveProfiles());
-        return "§aDoubleLife §7[§f" + profiles + "§7] §7- §e" + time;
     }
 
     private BarColor parseBarColor(String colorName) {
@@ -120,4 +165,68 @@ public class DoubleLifeBossBarManager {
             return BarStyle.SOLID;
         }
     }
+
+    private static final class BarState {
+        private final Player player;
+        private final DoubleLifeSession session;
+        private final TitleCache titles;
+        private BossBar bar;
+        private BarColor color;
+        private long lastRemaining = -1;
+        private int lastStep = -1;
+
+        private BarState(Player player, DoubleLifeSession session, TitleCache titles, BarColor color) {
+            this.player = player;
+            this.session = session;
+            this.titles = titles;
+            this.color = color;
+        }
+    }
+
+    /**
+     * Rendered titles for one profile set, keyed by remaining seconds. Bars of sessions that share
+     * a profile set and tick down in step reuse the same strings.
+     */
+    private static final class TitleCache {
+        private static final int SIZE = 64;
+
+        private final String prefix;
+        private final long[] keys = new long[SIZE];
+        private final String[] titles = new String[SIZE];
+
+        private TitleCache(String profiles) {
+            this.prefix = "§aDoubleLife §7[§f" + profiles + "§7] §7- §e";
+        }
+
+        String get(long seconds) {
+            int slot = (int) (seconds & (SIZE - 1));
+            String title = titles[slot];
+            if (title != null && keys[slot] == seconds) {
+                return title;
+            }
+            title = render(seconds);
+            keys[slot] = seconds;
+            titles[slot] = title;
+            return title;
+        }
+
+        private String render(long seconds) {
+            long hours = seconds / 3600;
+            long minutes = (seconds % 3600) / 60;
+            long secs = seconds % 60;
+            StringBuilder builder = new StringBuilder(prefix.length() + 8).append(prefix);
+            if (hours > 0) {
+                appendTwoDigits(builder, hours).append(':');
+            }
+            appendTwoDigits(builder, minutes).append(':');
+            return appendTwoDigits(builder, secs).toString();
+        }
+
+        private static StringBuilder appendTwoDigits(StringBuilder builder, long value) {
+            if (value < 10) {
+                builder.append('0');
+            }
+            return builder.append(value);
+        }
+    }
 }
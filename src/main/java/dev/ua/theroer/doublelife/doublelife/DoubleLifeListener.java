@@ -1,8 +1,10 @@
 package dev.ua.theroer.doublelife.doublelife;
 
 import dev.ua.theroer.doublelife.DoubleLifePlugin;
+import dev.ua.theroer.doublelife.metrics.Histogram;
+import dev.ua.theroer.doublelife.metrics.MetricsRegistry;
 
-import org.bukkit.Location;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -11,6 +13,7 @@ import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.Event;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerGameModeChangeEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
@@ -22,75 +25,134 @@ import org.bukkit.event.block.Action;
 public class DoubleLifeListener implements Listener {
 
     private final DoubleLifeManager manager;
+    private final TickCostMonitor tickCosts;
+    private final Histogram joinTimer;
+    private final Histogram quitTimer;
+    private final Histogram allowlistTimer;
+    private final Histogram commandTimer;
+    private final Histogram teleportTimer;
+    private final Histogram gameModeTimer;
+    private final Histogram blockBreakTimer;
+    private final Histogram blockPlaceTimer;
+    private final Histogram interactTimer;
+    private final Histogram attackTimer;
 
     public DoubleLifeListener(DoubleLifePlugin plugin) {
         this.manager = plugin.getDoubleLifeManager();
         if (this.manager == null) {
             throw new IllegalStateException("DoubleLifeManager is not initialized");
         }
+        this.tickCosts = manager.getTickCosts();
+        MetricsRegistry metrics = manager.getMetrics();
+        this.joinTimer = handlerTimer(metrics, "join");
+        this.quitTimer = handlerTimer(metrics, "quit");
+        this.allowlistTimer = handlerTimer(metrics, "command_allowlist");
+        this.commandTimer = handlerTimer(metrics, "command");
+        this.teleportTimer = handlerTimer(metrics, "teleport");
+        this.gameModeTimer = handlerTimer(metrics, "game_mode");
+        this.blockBreakTimer = handlerTimer(metrics, "block_break");
+        this.blockPlaceTimer = handlerTimer(metrics, "block_place");
+        this.interactTimer = handlerTimer(metrics, "interact");
+        this.attackTimer = handlerTimer(metrics, "attack");
+    }
+
+    /**
+     * Action handlers are only timed when they actually record something; the common path for
+     * players without a session is a single map lookup.
+     */
+    private static Histogram handlerTimer(MetricsRegistry metrics, String handler) {
+        return metrics.histogram("doublelife_listener_seconds", "Time spent in DoubleLife event handlers",
+            "handler", handler);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            manager.prefetchSession(event.getUniqueId());
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent event) {
+        tickCosts.enter(TickCostMonitor.Subsystem.LISTENERS);
         manager.handlePlayerJoin(event.getPlayer());
+        joinTimer.record(tickCosts.exit());
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent event) {
+        tickCosts.enter(TickCostMonitor.Subsystem.LISTENERS);
         manager.handlePlayerQuit(event.getPlayer());
+        quitTimer.record(tickCosts.exit());
+    }
+
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onPlayerCommandAllowlist(PlayerCommandPreprocessEvent event) {
+        tickCosts.enter(TickCostMonitor.Subsystem.LISTENERS);
+        if (!manager.isCommandAllowed(event.getPlayer(), event.getMessage())) {
+            event.setCancelled(true);
+            manager.notifyCommandBlocked(event.getPlayer());
+        }
+        allowlistTimer.record(tickCosts.exit());
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
         Player player = event.getPlayer();
-        if (manager.getSession(player.getUniqueId()) != null) {
-            String command = event.getMessage().trim();
-            manager.logAction(player, "Command", command);
+        if (manager.isLoggingActions(player)) {
+            tickCosts.enter(TickCostMonitor.Subsystem.LISTENERS);
+            manager.logAction(player, ActionEvent.command(event.getMessage().trim()));
+            commandTimer.record(tickCosts.exit());
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerTeleport(PlayerTeleportEvent event) {
         Player player = event.getPlayer();
-        if (manager.getSession(player.getUniqueId()) != null) {
-            String from = formatLocation(event.getFrom());
-            String to = formatLocation(event.getTo());
-            manager.logAction(player, "Teleport", from + " -> " + to);
+        if (manager.isLoggingActions(player)) {
+            tickCosts.enter(TickCostMonitor.Subsystem.LISTENERS);
+            manager.logAction(player, ActionEvent.teleport(event.getFrom(), event.getTo()));
+            teleportTimer.record(tickCosts.exit());
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerGameModeChange(PlayerGameModeChangeEvent event) {
         Player player = event.getPlayer();
-        if (manager.getSession(player.getUniqueId()) != null) {
-            manager.logAction(player, "GameMode", event.getNewGameMode().name());
+        if (manager.isLoggingActions(player)) {
+            tickCosts.enter(TickCostMonitor.Subsystem.LISTENERS);
+            manager.logAction(player, ActionEvent.gameMode(event.getNewGameMode()));
+            gameModeTimer.record(tickCosts.exit());
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
         Player player = event.getPlayer();
-        if (manager.getSession(player.getUniqueId()) != null) {
-            String block = event.getBlock().getType().name();
-            String loc = formatLocation(event.getBlock().getLocation());
-            manager.logAction(player, "BlockBreak", block + " at " + loc);
+        if (manager.isLoggingActions(player)) {
+            tickCosts.enter(TickCostMonitor.Subsystem.LISTENERS);
+            Block block = event.getBlock();
+            manager.logAction(player, ActionEvent.block(ActionType.BLOCK_BREAK, block.getType(), block.getLocation()));
+            blockBreakTimer.record(tickCosts.exit());
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockPlace(BlockPlaceEvent event) {
         Player player = event.getPlayer();
-        if (manager.getSession(player.getUniqueId()) != null) {
-            String block = event.getBlock().getType().name();
-            String loc = formatLocation(event.getBlock().getLocation());
-            manager.logAction(player, "BlockPlace", block + " at " + loc);
+        if (manager.isLoggingActions(player)) {
+            tickCosts.enter(TickCostMonitor.Subsystem.LISTENERS);
+            Block block = event.getBlock();
+            manager.logAction(player, ActionEvent.block(ActionType.BLOCK_PLACE, block.getType(), block.getLocation()));
+            blockPlaceTimer.record(tickCosts.exit());
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerInteract(PlayerInteractEvent event) {
         Player player = event.getPlayer();
-        if (manager.getSession(player.getUniqueId()) != null && event.getClickedBlock() != null) {
+        Block clicked = event.getClickedBlock();
+        if (clicked != null && manager.isLoggingActions(player)) {
             Action action = event.getAction();
             if (action == Action.LEFT_CLICK_BLOCK) {
                 return;
@@ -103,32 +165,20 @@ public class DoubleLifeListener implements Listener {
                     return;
                 }
             }
-            String block = event.getClickedBlock().getType().name();
-            String loc = formatLocation(event.getClickedBlock().getLocation());
-            manager.logAction(player, "Interact", action.name() + " " + block + " at " + loc);
+            tickCosts.enter(TickCostMonitor.Subsystem.LISTENERS);
+            manager.logAction(player, ActionEvent.interact(action, clicked.getType(), clicked.getLocation()));
+            interactTimer.record(tickCosts.exit());
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onEntityDamage(EntityDamageByEntityEvent event) {
         if (event.getDamager() instanceof Player player) {
-            if (manager.getSession(player.getUniqueId()) != null) {
-                String entity = event.getEntity().getType().name();
-                manager.logAction(player, "Attack", entity + " (" + event.getFinalDamage() + " damage)");
+            if (manager.isLoggingActions(player)) {
+                tickCosts.enter(TickCostMonitor.Subsystem.LISTENERS);
+                manager.logAction(player, ActionEvent.attack(event.getEntity().getType(), event.getFinalDamage()));
+                attackTimer.record(tickCosts.exit());
             }
         }
     }
-
-    private String formatLocation(Location loc) {
-        if (loc == null) {
-            return "null";
-        }
-        return String.format(
-            "%s:%d,%d,%d",
-            loc.getWorld() != null ? loc.getWorld().getName() : "null",
-            loc.getBlockX(),
-            loc.getBlockY(),
-            loc.getBlockZ()
-        );
-    }
 }
@@ -3,54 +3,159 @@ package dev.ua.theroer.doublelife.doublelife;
 import dev.ua.theroer.doublelife.DoubleLifePlugin;
 import dev.ua.theroer.doublelife.config.DoubleLifeConfig;
 import dev.ua.theroer.doublelife.config.DoubleLifeProfile;
+import dev.ua.theroer.doublelife.config.MetricsSettings;
+import dev.ua.theroer.doublelife.doublelife.audit.AuditLog;
 import dev.ua.theroer.doublelife.doublelife.storage.InventoryStorage;
 import dev.ua.theroer.doublelife.doublelife.webhook.WebhookManager;
+import dev.ua.theroer.doublelife.jfr.SessionLifecycleEvent;
+import dev.ua.theroer.doublelife.metrics.Histogram;
+import dev.ua.theroer.doublelife.metrics.MetricsRegistry;
+import dev.ua.theroer.doublelife.metrics.MetricsServer;
 import dev.ua.theroer.magicutils.Logger;
 import net.luckperms.api.LuckPerms;
 import org.bukkit.Bukkit;
 import org.bukkit.attribute.Attribute;
+import org.bukkit.command.Command;
 import org.bukkit.entity.Player;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-import java.util.function.Function;
-
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the DoubleLife session lifecycle. Starting and ending run as small state machines: Bukkit
+ * steps (inventory, teleport, commands, boss bar) execute on the server thread, LuckPerms writes run
+ * on async threads, and the session stays in {@link SessionState#STARTING} or
+ * {@link SessionState#ENDING} until both halves are done.
+ */
 public class DoubleLifeManager {
 
+    private static final long GROUP_IDLE_GRACE_MILLIS = 5 * 60 * 1000L;
+    private static final long GROUP_CLEANUP_PERIOD_TICKS = 20L * 60;
+    private static final long AUDIT_CLOSE_SECONDS = 5L;
+
     private final DoubleLifePlugin plugin;
     private final DoubleLifeConfig config;
     private final Map<UUID, DoubleLifeSession> activeSessions;
     private final InventoryStorage inventoryStorage;
     private final WebhookManager webhookManager;
+    private final AuditLog auditLog;
     private final DoubleLifeBossBarManager bossBarManager;
+    private final TickCostMonitor tickCosts;
     private final LuckPermsHandler luckPermsHandler;
+    private final TemporaryGroupPool groupPool;
+    private final ProfileResolver profileResolver;
+    private final SessionExpiryScheduler expiryScheduler;
+    private final Map<Set<String>, CommandAllowlist> commandAllowlists;
+    private final CommandDispatcher commandDispatcher;
+    private volatile LifecycleCommands lifecycleCommands;
+    private final Executor mainThread;
+    private final Executor asyncThread;
     private final Logger logger;
+    private final MetricsRegistry metrics;
+    private final MetricsServer metricsServer;
+    private final Histogram startLatency;
+    private final Histogram startCommandsLatency;
+    private final Histogram startStateLatency;
+    private final Histogram endLatency;
+    private final Histogram endCommandsLatency;
+    private final Histogram endRestoreLatency;
+    private final Histogram luckPermsApplyLatency;
+    private final Histogram luckPermsRemoveLatency;
 
     public DoubleLifeManager(DoubleLifePlugin plugin, DoubleLifeConfig config, LuckPerms luckPerms) {
         this.plugin = plugin;
         this.config = config;
         this.logger = plugin.getMLogger();
         this.activeSessions = new ConcurrentHashMap<>();
-        this.inventoryStorage = new InventoryStorage(plugin, config.getStoragePath());
-        this.webhookManager = new WebhookManager(logger, config.getWebhooks());
-        this.bossBarManager = new DoubleLifeBossBarManager(plugin, config);
+        this.metrics = new MetricsRegistry();
+        this.startLatency = lifecycleHistogram("start");
+        this.startCommandsLatency = lifecycleHistogram("start_commands");
+        this.startStateLatency = lifecycleHistogram("start_state");
+        this.endLatency = lifecycleHistogram("end");
+        this.endCommandsLatency = lifecycleHistogram("end_commands");
+        this.endRestoreLatency = lifecycleHistogram("end_restore");
+        this.luckPermsApplyLatency = metrics.histogram("doublelife_luckperms_seconds",
+            "LuckPerms group and user update time", "op", "apply");
+        this.luckPermsRemoveLatency = metrics.histogram("doublelife_luckperms_seconds",
+            "LuckPerms group and user update time", "op", "remove");
+        metrics.gauge("doublelife_sessions", "Registered DoubleLife sessions, including starting and ending ones",
+            activeSessions::size);
+        this.inventoryStorage = new InventoryStorage(plugin, config.getStoragePath(), config.isStorageCompression(), metrics);
+        this.webhookManager = new WebhookManager(logger, config.getWebhooks(), new File(plugin.getDataFolder(), "webhook-outbox"), metrics);
+        this.auditLog = new AuditLog(logger, config.getAudit(), new File(plugin.getDataFolder(), config.getAudit().getPath()));
+        metrics.counter("doublelife_audit_dropped_records", "Audit records dropped because the writer queue was full",
+            auditLog::getDroppedCount);
+        this.tickCosts = new TickCostMonitor(logger, config::getMetrics, webhookManager, metrics);
+        this.bossBarManager = new DoubleLifeBossBarManager(plugin, config, tickCosts);
         this.luckPermsHandler = new LuckPermsHandler(luckPerms);
+        this.groupPool = new TemporaryGroupPool(luckPermsHandler, config.getTemporaryGroup());
+        this.profileResolver = new ProfileResolver(config, luckPermsHandler);
+        profileResolver.subscribe(plugin, luckPerms);
+        this.expiryScheduler = new SessionExpiryScheduler(this::expireSession);
+        this.commandAllowlists = new ConcurrentHashMap<>();
+        this.commandDispatcher = new CommandDispatcher(plugin, logger, config::getCommands, metrics, tickCosts);
+        this.lifecycleCommands = LifecycleCommands.compile(config);
+        this.mainThread = task -> Bukkit.getScheduler().runTask(plugin,
+            () -> tickCosts.run(TickCostMonitor.Subsystem.LIFECYCLE, task));
+        this.asyncThread = task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+
+        this.metricsServer = new MetricsServer(metrics, logger);
+        configureMetricsServer();
 
         startSessionChecker();
     }
 
+    private Histogram lifecycleHistogram(String phase) {
+        return metrics.histogram("doublelife_lifecycle_seconds",
+            "Time spent in each DoubleLife start/end phase", "phase", phase);
+    }
+
+    private void configureMetricsServer() {
+        MetricsSettings settings = config.getMetrics();
+        if (settings != null && settings.isHttpEnabled()) {
+            metricsServer.start(settings.getHttpHost(), settings.getHttpPort());
+        } else {
+            metricsServer.stop();
+        }
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public TickCostMonitor getTickCosts() {
+        return tickCosts;
+    }
+
     public WebhookManager getWebhookManager() {
         return webhookManager;
     }
 
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+
     public StartResult startDoubleLife(Player player, int durationOverride) {
+        tickCosts.enter(TickCostMonitor.Subsystem.LIFECYCLE);
+        try {
+            return tryStart(player, durationOverride);
+        } finally {
+            tickCosts.exit();
+        }
+    }
+
+    private StartResult tryStart(Player player, int durationOverride) {
         if (!config.isEnabled()) {
             String reason = "DoubleLife is disabled.";
             logger.error().to(player).send(reason);
@@ -58,8 +163,11 @@ public class DoubleLifeManager {
             return StartResult.error(reason);
         }
 
-        if (activeSessions.containsKey(player.getUniqueId())) {
-            String reason = "You already have an active DoubleLife session!";
+        DoubleLifeSession existing = activeSessions.get(player.getUniqueId());
+        if (existing != null) {
+            String reason = existing.getState() == SessionState.ACTIVE
+                ? "You already have an active DoubleLife session!"
+                : "Your DoubleLife session is still switching, please wait.";
             logger.error().to(player).send(reason);
             logger.warn("Failed to start DoubleLife for " + player.getName() + ": " + reason);
             return StartResult.error(reason);
@@ -81,64 +189,231 @@ public class DoubleLifeManager {
             duration,
             applicableProfiles
         );
+        activeSessions.put(player.getUniqueId(), session);
 
-        runCommands(config.getCommands().getBeforeStart(), player, session);
-        runCommands(collectProfileCommands(session, p -> p.getCommands().getBeforeStart()), player, session);
+        Span span = new Span();
+        runCommands(LifecycleCommands.Stage.BEFORE_START, player, session)
+            .thenRun(() -> tickCosts.run(TickCostMonitor.Subsystem.LIFECYCLE, () -> beginStart(player, session, span)))
+            .exceptionally(error -> failStart(player, session, span, error));
+        return StartResult.ok();
+    }
 
+    private void beginStart(Player player, DoubleLifeSession session, Span span) {
+        startCommandsLatency.recordSince(span.startedAt);
+        if (!player.isOnline()) {
+            // Left while the before-start commands were queued; nothing has been changed yet.
+            activeSessions.remove(player.getUniqueId(), session);
+            session.transition(SessionState.STARTING, SessionState.ENDED);
+            commitLifecycle(span.event, SessionLifecycleEvent.START, session, false);
+            return;
+        }
+        long stateStartedAt = System.nanoTime();
         savePlayerState(player, session);
         clearPlayer(player);
-        applyDoubleLifePermissions(player, session);
+        startStateLatency.recordSince(stateStartedAt);
+
+        applyDoubleLifePermissions(player, session)
+            .<Void>handleAsync((ignored, error) -> {
+                completeStart(player, session, error, span);
+                return null;
+            }, mainThread)
+            .exceptionally(error -> failStart(player, session, span, error));
+    }
 
-        activeSessions.put(player.getUniqueId(), session);
+    private void completeStart(Player player, DoubleLifeSession session, Throwable error, Span span) {
+        if (error != null) {
+            logger.error("Failed to apply DoubleLife permissions for " + player.getName() + ": " + error.getMessage());
+            commitLifecycle(span.event, SessionLifecycleEvent.START, session, false);
+            rollbackStart(player, session);
+            return;
+        }
+        if (!session.transition(SessionState.STARTING, SessionState.ACTIVE)) {
+            return;
+        }
+        startLatency.recordSince(span.startedAt);
+        commitLifecycle(span.event, SessionLifecycleEvent.START, session, true);
 
         if (session.getDuration() > 0) {
-            session.scheduleEnd(() -> endDoubleLife(player), plugin);
+            expiryScheduler.schedule(player.getUniqueId(), session.getDeadlineMillis());
         }
 
-        bossBarManager.createBossBar(player, session);
-
-        logger.success().to(player).send("DoubleLife activated! Duration: " + session.getFormattedRemainingTime());
-        String profiles = String.join(", ", applicableProfiles);
+        if (player.isOnline()) {
+            bossBarManager.createBossBar(player, session);
+            logger.success().to(player).send("DoubleLife activated! Duration: " + session.getFormattedRemainingTime());
+        }
+        String profiles = String.join(", ", session.getActiveProfiles());
         webhookManager.sendStartNotification(player.getName(), player.getUniqueId(), profiles, session.getFormattedRemainingTime());
+        auditLog.recordEvent(player.getUniqueId(), player.getName(), "SessionStart",
+            "profiles: " + profiles + ", duration: " + session.getFormattedRemainingTime());
 
-        runCommands(config.getCommands().getAfterStart(), player, session);
-        runCommands(collectProfileCommands(session, p -> p.getCommands().getAfterStart()), player, session);
+        runCommands(LifecycleCommands.Stage.AFTER_START, player, session);
 
         logger.info("DoubleLife started for " + player.getName() + " with profiles: " + profiles);
-        return StartResult.ok();
+
+        if (session.isEndRequested() && player.isOnline()) {
+            endDoubleLife(player);
+        }
     }
 
+    /**
+     * Terminal handler of the start pipeline: something threw, or the server thread refused a step.
+     * A session that never became active is rolled back so the player can start again.
+     */
+    private Void failStart(Player player, DoubleLifeSession session, Span span, Throwable error) {
+        logger.error("DoubleLife start failed for " + player.getName() + ": " + describe(error));
+        onMainThread(() -> {
+            if (session.getState() != SessionState.STARTING) {
+                return;
+            }
+            commitLifecycle(span.event, SessionLifecycleEvent.START, session, false);
+            try {
+                rollbackStart(player, session);
+            } catch (RuntimeException e) {
+                activeSessions.remove(player.getUniqueId(), session);
+                session.transition(SessionState.STARTING, SessionState.ENDED);
+                logger.error("Failed to roll back DoubleLife start for " + player.getName() + ": " + describe(e));
+            }
+        });
+        return null;
+    }
+
+    private void rollbackStart(Player player, DoubleLifeSession session) {
+        session.end();
+        // Nothing was saved, or cleared, if the start failed before the inventory was captured.
+        if (player.isOnline() && session.getSavedInventory() != null) {
+            restorePlayerState(player, session);
+            logger.error().to(player).send("Failed to start DoubleLife; your inventory has been restored.");
+        }
+        removeDoubleLifePermissions(player, session)
+            .whenCompleteAsync((ignored, error) -> {
+                activeSessions.remove(player.getUniqueId(), session);
+                session.transition(SessionState.STARTING, SessionState.ENDED);
+            }, mainThread);
+    }
+
+    /**
+     * Begins ending the player's session. Returns {@code false} when there is nothing to end or
+     * the session is already ending; a session that is still starting is ended once it is active.
+     */
     public boolean endDoubleLife(Player player) {
-        DoubleLifeSession session = activeSessions.remove(player.getUniqueId());
+        tickCosts.enter(TickCostMonitor.Subsystem.LIFECYCLE);
+        try {
+            return tryEnd(player);
+        } finally {
+            tickCosts.exit();
+        }
+    }
+
+    private boolean tryEnd(Player player) {
+        DoubleLifeSession session = activeSessions.get(player.getUniqueId());
         if (session == null) {
             return false;
         }
+        if (session.getState() == SessionState.STARTING) {
+            session.setEndRequested(true);
+            return true;
+        }
+        if (!session.transition(SessionState.ACTIVE, SessionState.ENDING)) {
+            return false;
+        }
 
-        runCommands(config.getCommands().getBeforeEnd(), player, session);
-        runCommands(collectProfileCommands(session, p -> p.getCommands().getBeforeEnd()), player, session);
+        Span span = new Span();
+        runCommands(LifecycleCommands.Stage.BEFORE_END, player, session)
+            .thenRun(() -> tickCosts.run(TickCostMonitor.Subsystem.LIFECYCLE, () -> finishEnd(player, session, span)))
+            .exceptionally(error -> failEnd(player, session, span, error));
+        return true;
+    }
 
+    private void finishEnd(Player player, DoubleLifeSession session, Span span) {
+        endCommandsLatency.recordSince(span.startedAt);
+        if (!player.isOnline()) {
+            // Left while the before-end commands were queued; the quit handler saved the session,
+            // so it stays active while the player is offline. An expiry-triggered end already
+            // consumed the expiry entry, so re-register it (or expire right away if it is due).
+            session.transition(SessionState.ENDING, SessionState.ACTIVE);
+            commitLifecycle(span.event, SessionLifecycleEvent.END, session, false);
+            if (session.isExpired()) {
+                expireSession(player.getUniqueId());
+            } else if (session.getDuration() > 0) {
+                expiryScheduler.schedule(player.getUniqueId(), session.getDeadlineMillis());
+            }
+            return;
+        }
         session.end();
+        expiryScheduler.cancel(player.getUniqueId());
         bossBarManager.removeBossBar(player.getUniqueId());
+        long restoreStartedAt = System.nanoTime();
         restorePlayerState(player, session);
-        removeDoubleLifePermissions(player, session);
+        endRestoreLatency.recordSince(restoreStartedAt);
+
+        removeDoubleLifePermissions(player, session)
+            .<Void>handleAsync((ignored, error) -> {
+                completeEnd(player, session, error, span);
+                return null;
+            }, mainThread)
+            .exceptionally(error -> failEnd(player, session, span, error));
+    }
+
+    /**
+     * Terminal handler of the end pipeline. A session whose inventory was not restored yet goes
+     * back to active so it can be ended again; one that was already restored is finished off,
+     * since reviving it would hand out the saved inventory a second time.
+     */
+    private Void failEnd(Player player, DoubleLifeSession session, Span span, Throwable error) {
+        logger.error("DoubleLife end failed for " + player.getName() + ": " + describe(error));
+        onMainThread(() -> {
+            if (session.getState() != SessionState.ENDING) {
+                return;
+            }
+            commitLifecycle(span.event, SessionLifecycleEvent.END, session, false);
+            if (session.isActive()) {
+                session.transition(SessionState.ENDING, SessionState.ACTIVE);
+                if (session.getDuration() > 0 && !session.isExpired()) {
+                    expiryScheduler.schedule(player.getUniqueId(), session.getDeadlineMillis());
+                }
+                logger.error().to(player).send("Failed to end DoubleLife; please try again.");
+            } else {
+                activeSessions.remove(player.getUniqueId(), session);
+                session.transition(SessionState.ENDING, SessionState.ENDED);
+                expiryScheduler.cancel(player.getUniqueId());
+            }
+        });
+        return null;
+    }
+
+    private void completeEnd(Player player, DoubleLifeSession session, Throwable error, Span span) {
+        if (error != null) {
+            logger.error("Failed to remove DoubleLife permissions for " + player.getName() + ": " + error.getMessage());
+        }
+        activeSessions.remove(player.getUniqueId(), session);
+        session.transition(SessionState.ENDING, SessionState.ENDED);
+        endLatency.recordSince(span.startedAt);
+        commitLifecycle(span.event, SessionLifecycleEvent.END, session, error == null);
 
         logger.info().to(player).send("DoubleLife ended.");
         webhookManager.sendEndNotification(player.getName(), session.getPlayerUuid(), String.join(", ", session.getActiveProfiles()));
+        webhookManager.releaseActions(session.getPlayerUuid());
+        auditLog.recordEvent(session.getPlayerUuid(), player.getName(), "SessionEnd",
+            "profiles: " + String.join(", ", session.getActiveProfiles()));
 
-        runCommands(config.getCommands().getAfterEnd(), player, session);
-        runCommands(collectProfileCommands(session, p -> p.getCommands().getAfterEnd()), player, session);
+        runCommands(LifecycleCommands.Stage.AFTER_END, player, session);
 
         logger.info("DoubleLife ended for " + player.getName());
-        return true;
     }
 
     private Set<String> getApplicableProfiles(Player player) {
-        Set<String> playerGroups = luckPermsHandler.getPlayerGroups(player.getUniqueId());
+        return profileResolver.getApplicableProfiles(player.getUniqueId());
+    }
 
-        return config.getProfiles().entrySet().stream()
-            .filter(entry -> playerGroups.contains(entry.getValue().getGroupName()))
-            .map(Map.Entry::getKey)
-            .collect(Collectors.toSet());
+    /**
+     * Recomputes state derived from {@link DoubleLifeConfig} after it has been reloaded.
+     */
+    public void reload() {
+        profileResolver.rebuildIndex();
+        groupPool.setBaseName(config.getTemporaryGroup());
+        commandAllowlists.clear();
+        lifecycleCommands = LifecycleCommands.compile(config);
+        configureMetricsServer();
     }
 
     private int resolveDuration(Set<String> profiles) {
@@ -201,9 +476,9 @@ public class DoubleLifeManager {
         inventoryStorage.deleteSession(player.getUniqueId());
     }
 
-    private void applyDoubleLifePermissions(Player player, DoubleLifeSession session) {
-        String uniqueGroupName = config.getTemporaryGroup() + "-" + player.getName();
-        luckPermsHandler.createTemporaryGroup(uniqueGroupName, session.getDuration());
+    private CompletableFuture<Void> applyDoubleLifePermissions(Player player, DoubleLifeSession session) {
+        UUID playerUuid = player.getUniqueId();
+        int duration = session.getDuration();
 
         List<String> allPermissions = new ArrayList<>();
         for (String profileName : session.getActiveProfiles()) {
@@ -212,24 +487,56 @@ public class DoubleLifeManager {
                 allPermissions.addAll(profile.getPermissions());
             }
         }
-
-        if (!allPermissions.isEmpty()) {
-            luckPermsHandler.addPermissionsToGroup(uniqueGroupName, allPermissions, session.getDuration());
-        }
-
-        luckPermsHandler.addTemporaryGroup(player.getUniqueId(), uniqueGroupName, session.getDuration());
-        session.setTemporaryGroupName(uniqueGroupName);
+        // A restored session may still inherit a group under another name: a per-player group from
+        // before pooling, which nothing else would clean up and is deleted here, or a pooled group
+        // named by an older scheme, which is only dropped from the user and left to cleanupIdle.
+        String groupName = groupPool.groupName(session.getActiveProfiles());
+        String previousGroup = session.getTemporaryGroupName();
+        String staleGroup = previousGroup != null && !previousGroup.isEmpty() && !previousGroup.equalsIgnoreCase(groupName)
+            ? previousGroup
+            : null;
+        String legacyGroup = staleGroup != null && !groupPool.isPooled(staleGroup) ? staleGroup : null;
+        session.setTemporaryGroupName(groupName);
+
+        long startedAt = System.nanoTime();
+        return CompletableFuture.completedFuture(null)
+            .thenComposeAsync(ignored -> groupPool.acquire(playerUuid, session.getActiveProfiles(), allPermissions), asyncThread)
+            .thenCompose(pooledGroup -> {
+                UserMutation mutation = luckPermsHandler.mutateUser(playerUuid).addGroup(pooledGroup, duration);
+                if (staleGroup != null) {
+                    mutation.clearGroup(staleGroup);
+                }
+                return mutation.apply();
+            })
+            .thenCompose(ignored -> legacyGroup != null
+                ? luckPermsHandler.deleteGroup(legacyGroup)
+                : CompletableFuture.<Void>completedFuture(null))
+            .whenComplete((ignored, error) -> luckPermsApplyLatency.recordSince(startedAt));
     }
 
-    private void removeDoubleLifePermissions(Player player, DoubleLifeSession session) {
+    private CompletableFuture<Void> removeDoubleLifePermissions(Player player, DoubleLifeSession session) {
         String groupName = session.getTemporaryGroupName();
         if (groupName == null || groupName.isEmpty()) {
             groupName = config.getTemporaryGroup() + "-" + player.getName();
         }
+        String temporaryGroup = groupName;
+        UUID playerUuid = player.getUniqueId();
+        boolean pooled = groupPool.isPooled(temporaryGroup);
+        if (pooled) {
+            groupPool.release(playerUuid, temporaryGroup);
+        }
 
-        luckPermsHandler.removeTemporaryGroup(player.getUniqueId(), groupName);
-        luckPermsHandler.deleteGroup(groupName);
-        luckPermsHandler.clearTemporaryNodes(player.getUniqueId());
+        // Sessions saved before group pooling own a per-player group that is still deleted outright.
+        long startedAt = System.nanoTime();
+        return CompletableFuture.completedFuture(null)
+            .thenComposeAsync(ignored -> luckPermsHandler.mutateUser(playerUuid)
+                .removeGroup(temporaryGroup)
+                .clearTemporaryNodes()
+                .apply(), asyncThread)
+            .thenCompose(ignored -> pooled
+                ? CompletableFuture.completedFuture(null)
+                : luckPermsHandler.deleteGroup(temporaryGroup))
+            .whenComplete((ignored, error) -> luckPermsRemoveLatency.recordSince(startedAt));
     }
 
     private double clampHealth(Player player, double desired) {
@@ -266,21 +573,34 @@ public class DoubleLifeManager {
 
     private void startSessionChecker() {
         Bukkit.getScheduler().runTaskTimer(plugin, () -> {
-            for (Map.Entry<UUID, DoubleLifeSession> entry : new HashSet<>(activeSessions.entrySet())) {
-                DoubleLifeSession session = entry.getValue();
-                if (session.isExpired()) {
-                    Player player = Bukkit.getPlayer(entry.getKey());
-                    if (player != null && player.isOnline()) {
-                        endDoubleLife(player);
-                    } else {
-                        session.end();
-                        inventoryStorage.saveSession(session);
-                        activeSessions.remove(entry.getKey());
-                        logger.info("DoubleLife session expired offline for " + session.getPlayerName() + "; inventory will be restored on next login");
-                    }
-                }
+            tickCosts.enter(TickCostMonitor.Subsystem.SESSION_CHECKER);
+            try {
+                expiryScheduler.tick(System.currentTimeMillis());
+            } finally {
+                tickCosts.exit();
             }
-        }, 20L, 20L);
+        }, 1L, 1L);
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> groupPool.cleanupIdle(GROUP_IDLE_GRACE_MILLIS),
+            GROUP_CLEANUP_PERIOD_TICKS, GROUP_CLEANUP_PERIOD_TICKS);
+    }
+
+    private void expireSession(UUID playerUuid) {
+        DoubleLifeSession session = activeSessions.get(playerUuid);
+        if (session == null) {
+            return;
+        }
+        Player player = Bukkit.getPlayer(playerUuid);
+        if (player != null && player.isOnline()) {
+            endDoubleLife(player);
+        } else if (session.transition(SessionState.ACTIVE, SessionState.ENDED)) {
+            session.end();
+            groupPool.release(playerUuid, session.getTemporaryGroupName());
+            inventoryStorage.saveSession(session);
+            activeSessions.remove(playerUuid, session);
+            logger.info("DoubleLife session expired offline for " + session.getPlayerName() + "; inventory will be restored on next login");
+            auditLog.recordEvent(playerUuid, session.getPlayerName(), "SessionExpired", "expired while offline");
+            commitLifecycle(beginLifecycleEvent(), SessionLifecycleEvent.EXPIRE_OFFLINE, session, true);
+        }
     }
 
     public DoubleLifeSession getSession(UUID playerUuid) {
@@ -295,53 +615,164 @@ public class DoubleLifeManager {
         return activeSessions.containsKey(playerUuid);
     }
 
+    /**
+     * Called from the async pre-login thread so the join handler can restore without disk I/O.
+     */
+    public void prefetchSession(UUID playerUuid) {
+        inventoryStorage.prefetchSession(playerUuid);
+    }
+
     public void handlePlayerJoin(Player player) {
-        DoubleLifeSession savedSession = inventoryStorage.loadSession(player.getUniqueId());
+        DoubleLifeSession savedSession = inventoryStorage.claimSession(player.getUniqueId());
         if (savedSession == null) {
             return;
         }
 
         if (!savedSession.isExpired()) {
+            SessionLifecycleEvent event = beginLifecycleEvent();
             activeSessions.put(player.getUniqueId(), savedSession);
-            applyDoubleLifePermissions(player, savedSession);
-
-            if (savedSession.getDuration() > 0) {
-                savedSession.scheduleEnd(() -> endDoubleLife(player), plugin);
-            }
-
-            bossBarManager.createBossBar(player, savedSession);
-            logger.success().to(player).send("Your DoubleLife session has been restored. Time remaining: " + savedSession.getFormattedRemainingTime());
-            logger.info("Restored active DoubleLife session for " + player.getName());
+            applyDoubleLifePermissions(player, savedSession)
+                .whenCompleteAsync((ignored, error) -> completeRestore(player, savedSession, error, event), mainThread);
         } else {
+            SessionLifecycleEvent event = beginLifecycleEvent();
             logger.info("Expired DoubleLife session found for " + player.getName() + ", restoring inventory only");
+            // Drop a session that was still held in memory (e.g. its end was reverted while offline).
+            activeSessions.remove(player.getUniqueId());
+            expiryScheduler.cancel(player.getUniqueId());
             restorePlayerState(player, savedSession);
-            removeDoubleLifePermissions(player, savedSession);
+            removeDoubleLifePermissions(player, savedSession).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    logger.warn("Failed to clean up DoubleLife permissions for " + player.getName() + ": " + error.getMessage());
+                }
+            });
             inventoryStorage.deleteSession(player.getUniqueId());
             logger.warn().to(player).send("Your DoubleLife session expired while you were offline. Your inventory has been restored.");
             webhookManager.sendEndNotification(player.getName(), player.getUniqueId(), "Session expired (offline)");
+            auditLog.recordEvent(player.getUniqueId(), player.getName(), "SessionRestored", "expired while offline; inventory restored");
+            commitLifecycle(event, SessionLifecycleEvent.RESTORE_EXPIRED, savedSession, true);
+        }
+    }
+
+    private void completeRestore(Player player, DoubleLifeSession session, Throwable error, SessionLifecycleEvent event) {
+        if (error != null) {
+            logger.warn("Failed to re-apply DoubleLife permissions for " + player.getName() + ": " + error.getMessage());
+        }
+        commitLifecycle(event, SessionLifecycleEvent.RESTORE, session, error == null);
+        if (!session.transition(SessionState.STARTING, SessionState.ACTIVE)) {
+            return;
+        }
+        if (session.getDuration() > 0) {
+            expiryScheduler.schedule(player.getUniqueId(), session.getDeadlineMillis());
+        }
+        if (player.isOnline()) {
+            bossBarManager.createBossBar(player, session);
+            logger.success().to(player).send("Your DoubleLife session has been restored. Time remaining: " + session.getFormattedRemainingTime());
+        }
+        logger.info("Restored active DoubleLife session for " + player.getName());
+
+        if (session.isEndRequested() && player.isOnline()) {
+            endDoubleLife(player);
         }
     }
 
     public void handlePlayerQuit(Player player) {
+        profileResolver.invalidate(player.getUniqueId());
+        webhookManager.releaseActions(player.getUniqueId());
         DoubleLifeSession session = activeSessions.get(player.getUniqueId());
-        if (session != null && session.isActive()) {
+        // A session still waiting for its before-start commands has no saved inventory yet.
+        if (session != null && session.isActive() && session.getSavedInventory() != null) {
             inventoryStorage.saveSession(session);
             bossBarManager.removeBossBar(player.getUniqueId());
         }
     }
 
-    public void logAction(Player player, String action, String details) {
-        if (activeSessions.containsKey(player.getUniqueId())) {
-            webhookManager.sendActionLog(player.getName(), player.getUniqueId(), action, details);
+    /**
+     * Whether actions of {@code player} are recorded right now; lets listeners skip building an
+     * {@link ActionEvent} when nothing would consume it.
+     */
+    public boolean isLoggingActions(Player player) {
+        return (webhookManager.isActionLogEnabled() || auditLog.isEnabled()) && activeSessions.containsKey(player.getUniqueId());
+    }
+
+    /**
+     * Whether {@code player} may run {@code commandLine} under the allowlists of their active
+     * profiles. Players without a session, and sessions with any profile that has no allowlist,
+     * are unrestricted. The DoubleLife command itself is always allowed so a session can be ended.
+     */
+    public boolean isCommandAllowed(Player player, String commandLine) {
+        DoubleLifeSession session = activeSessions.get(player.getUniqueId());
+        if (session == null) {
+            return true;
+        }
+        return commandAllowlists.computeIfAbsent(Set.copyOf(session.getActiveProfiles()), this::compileAllowlist)
+            .allows(commandLine);
+    }
+
+    public void notifyCommandBlocked(Player player) {
+        logger.error().to(player).send("This command is not available in DoubleLife mode.");
+    }
+
+    private CommandAllowlist compileAllowlist(Set<String> profiles) {
+        List<String> patterns = new ArrayList<>();
+        for (String profileName : profiles) {
+            DoubleLifeProfile profile = config.getProfiles().get(profileName);
+            if (profile == null) {
+                continue;
+            }
+            List<String> allowed = profile.getAllowedCommands();
+            if (allowed == null || allowed.isEmpty()) {
+                return CommandAllowlist.unrestricted();
+            }
+            patterns.addAll(allowed);
+        }
+        if (patterns.isEmpty()) {
+            return CommandAllowlist.unrestricted();
+        }
+        patterns.add("doublelife");
+        return CommandAllowlist.compile(patterns, DoubleLifeManager::canonicalCommand);
+    }
+
+    private static String canonicalCommand(String label) {
+        Command command = Bukkit.getCommandMap().getCommand(label);
+        if (command == null) {
+            int namespace = label.indexOf(':');
+            return namespace >= 0 ? label.substring(namespace + 1) : label;
         }
+        return command.getName().toLowerCase(Locale.ROOT);
+    }
+
+    public void logAction(Player player, ActionEvent action) {
+        webhookManager.sendActionLog(player.getName(), player.getUniqueId(), action);
+        auditLog.recordAction(player.getUniqueId(), player.getName(), action);
     }
 
     public void shutdown() {
+        commandDispatcher.shutdown();
+        expiryScheduler.clear();
+        profileResolver.close();
         bossBarManager.removeAllBossBars();
         for (DoubleLifeSession session : activeSessions.values()) {
-            inventoryStorage.saveSession(session);
+            // The dispatcher dropped before-start and before-end commands still queued, so those
+            // steps never run: a start that has not captured the inventory is simply forgotten,
+            // and an end that has not restored it stays active and is saved.
+            if (session.getState() == SessionState.STARTING && session.getSavedInventory() == null) {
+                activeSessions.remove(session.getPlayerUuid(), session);
+                session.transition(SessionState.STARTING, SessionState.ENDED);
+                continue;
+            }
+            if (session.getState() == SessionState.ENDING && session.isActive()) {
+                session.transition(SessionState.ENDING, SessionState.ACTIVE);
+            }
+            // Ending sessions already had their inventory restored and their file deleted.
+            SessionState state = session.getState();
+            if (state == SessionState.STARTING || state == SessionState.ACTIVE) {
+                inventoryStorage.saveSession(session);
+            }
         }
+        inventoryStorage.shutdown();
         webhookManager.shutdown();
+        auditLog.close(AUDIT_CLOSE_SECONDS, TimeUnit.SECONDS);
+        metricsServer.stop();
     }
 
     public record StartResult(boolean success, String reason) {
@@ -354,40 +785,72 @@ public class DoubleLifeManager {
         }
     }
 
-    private void runCommands(List<String> commands, Player player, DoubleLifeSession session) {
-        if (commands == null || commands.isEmpty()) {
-            return;
+    private static SessionLifecycleEvent beginLifecycleEvent() {
+        SessionLifecycleEvent event = new SessionLifecycleEvent();
+        event.begin();
+        return event;
+    }
+
+    private static void commitLifecycle(SessionLifecycleEvent event, String action, DoubleLifeSession session, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.action = action;
+            event.playerUuid = session.getPlayerUuid().toString();
+            event.playerName = session.getPlayerName();
+            event.profiles = String.join(",", session.getActiveProfiles());
+            event.sessionDuration = session.getDuration();
+            event.success = success;
+            event.commit();
         }
-        String profiles = session != null ? String.join(",", session.getActiveProfiles()) : "";
-        String duration = session != null ? String.valueOf(session.getDuration()) : "0";
-        String remaining = session != null ? String.valueOf(session.getRemainingSeconds()) : duration;
+    }
 
-        for (String raw : commands) {
-            String cmd = raw
-                .replace("{player}", player.getName())
-                .replace("{uuid}", player.getUniqueId().toString())
-                .replace("{profiles}", profiles)
-                .replace("{duration}", duration)
-                .replace("{remaining}", remaining);
-            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), cmd);
+    /**
+     * Timing of one start or end across its asynchronous steps, for the lifecycle histograms and
+     * the JFR event.
+     */
+    /**
+     * Runs {@code task} on the server thread, inline when already there. Once the plugin is disabled
+     * the scheduler refuses new tasks; there is nothing left to clean up then, so it is only logged.
+     */
+    private void onMainThread(Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+            return;
+        }
+        try {
+            mainThread.execute(task);
+        } catch (RuntimeException e) {
+            logger.warn("Could not schedule DoubleLife cleanup: " + e.getMessage());
         }
     }
 
-    private List<String> collectProfileCommands(DoubleLifeSession session, Function<DoubleLifeProfile, List<String>> extractor) {
-        List<String> list = new ArrayList<>();
-        if (session == null) {
-            return list;
+    private static String describe(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return String.valueOf(cause);
+    }
+
+    private static final class Span {
+        private final long startedAt = System.nanoTime();
+        private final SessionLifecycleEvent event = beginLifecycleEvent();
+    }
+
+    private CompletableFuture<Void> runCommands(LifecycleCommands.Stage stage, Player player, DoubleLifeSession session) {
+        List<CommandTemplate> templates = lifecycleCommands.templates(stage, session.getActiveProfiles());
+        boolean gatesStep = stage == LifecycleCommands.Stage.BEFORE_START || stage == LifecycleCommands.Stage.BEFORE_END;
+        if (templates.isEmpty()) {
+            return commandDispatcher.submit(player.getUniqueId(), List.of(), gatesStep);
         }
-        for (String profileName : session.getActiveProfiles()) {
-            DoubleLifeProfile profile = config.getProfiles().get(profileName);
-            if (profile == null) {
-                continue;
-            }
-            List<String> cmds = extractor.apply(profile);
-            if (cmds != null && !cmds.isEmpty()) {
-                list.addAll(cmds);
-            }
+        String duration = String.valueOf(session.getDuration());
+        String[] values = CommandTemplate.values(
+            player.getName(),
+            player.getUniqueId().toString(),
+            String.join(",", session.getActiveProfiles()),
+            duration,
+            String.valueOf(session.getRemainingSeconds()));
+        List<String> commands = new ArrayList<>(templates.size());
+        for (CommandTemplate template : templates) {
+            commands.add(template.render(values));
         }
-        return list;
+        return commandDispatcher.submit(player.getUniqueId(), commands, gatesStep);
     }
 }
@@ -1,13 +1,12 @@
 package dev.ua.theroer.doublelife.doublelife;
 
+import dev.ua.theroer.doublelife.doublelife.storage.SessionSnapshot;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
-import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -36,9 +35,12 @@ public class DoubleLifeSession {
     private List<String> originalGroups;
 
     private boolean active;
+    @Setter(AccessLevel.NONE)
+    private volatile SessionState state = SessionState.STARTING;
+    private volatile boolean endRequested;
     private Instant endTime;
-    private BukkitTask endTask;
     private String temporaryGroupName;
+    private volatile SessionSnapshot snapshot;
 
     public DoubleLifeSession(UUID playerUuid, String playerName, int duration, Set<String> activeProfiles) {
         this(playerUuid, playerName, Instant.now(), duration, activeProfiles);
@@ -61,8 +63,19 @@ public class DoubleLifeSession {
         return Instant.now().isAfter(startTime.plusSeconds(duration));
     }
 
+    /**
+     * Epoch millisecond at which a timed session expires.
+     */
+    public long getDeadlineMillis() {
+        return startTime.toEpochMilli() + duration * 1000L;
+    }
+
     public long getRemainingSeconds() {
-        long elapsed = Instant.now().getEpochSecond() - startTime.getEpochSecond();
+        return getRemainingSeconds(Instant.now().getEpochSecond());
+    }
+
+    public long getRemainingSeconds(long nowEpochSecond) {
+        long elapsed = nowEpochSecond - startTime.getEpochSecond();
         return Math.max(0, duration - elapsed);
     }
 
@@ -78,26 +91,19 @@ public class DoubleLifeSession {
         return String.format("%02d:%02d", minutes, secs);
     }
 
-    public void end() {
-        this.active = false;
-        this.endTime = Instant.now();
-        cancel();
-    }
-
-    public void cancel() {
-        if (endTask != null && !endTask.isCancelled()) {
-            endTask.cancel();
-            endTask = null;
+    /**
+     * Moves the session to {@code next} if it is currently in {@code expected}.
+     */
+    public synchronized boolean transition(SessionState expected, SessionState next) {
+        if (state != expected) {
+            return false;
         }
+        state = next;
+        return true;
     }
 
-    public void scheduleEnd(Runnable endAction, JavaPlugin plugin) {
-        cancel();
-        if (duration > 0) {
-            long remainingSeconds = getRemainingSeconds();
-            if (remainingSeconds > 0) {
-                endTask = Bukkit.getScheduler().runTaskLater(plugin, endAction, remainingSeconds * 20L);
-            }
-        }
+    public void end() {
+        this.active = false;
+        this.endTime = Instant.now();
     }
 }
@@ -0,0 +1,100 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import dev.ua.theroer.doublelife.config.CommandSettings;
+import dev.ua.theroer.doublelife.config.DoubleLifeConfig;
+import dev.ua.theroer.doublelife.config.DoubleLifeProfile;
+import dev.ua.theroer.doublelife.config.ProfileCommandSettings;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Global and per-profile lifecycle commands, compiled into {@link CommandTemplate}s when the
+ * config is loaded or reloaded.
+ */
+public final class LifecycleCommands {
+
+    public enum Stage {
+        BEFORE_START(CommandSettings::getBeforeStart, ProfileCommandSettings::getBeforeStart),
+        AFTER_START(CommandSettings::getAfterStart, ProfileCommandSettings::getAfterStart),
+        BEFORE_END(CommandSettings::getBeforeEnd, ProfileCommandSettings::getBeforeEnd),
+        AFTER_END(CommandSettings::getAfterEnd, ProfileCommandSettings::getAfterEnd);
+
+        private final Function<CommandSettings, List<String>> global;
+        private final Function<ProfileCommandSettings, List<String>> profile;
+
+        Stage(Function<CommandSettings, List<String>> global, Function<ProfileCommandSettings, List<String>> profile) {
+            this.global = global;
+            this.profile = profile;
+        }
+    }
+
+    private final Map<Stage, List<CommandTemplate>> global = new EnumMap<>(Stage.class);
+    private final Map<String, Map<Stage, List<CommandTemplate>>> profiles = new HashMap<>();
+
+    private LifecycleCommands() {
+    }
+
+    public static LifecycleCommands compile(DoubleLifeConfig config) {
+        LifecycleCommands commands = new LifecycleCommands();
+        CommandSettings settings = config.getCommands();
+        for (Stage stage : Stage.values()) {
+            commands.global.put(stage, settings != null ? parseAll(stage.global.apply(settings)) : List.of());
+        }
+        for (Map.Entry<String, DoubleLifeProfile> entry : config.getProfiles().entrySet()) {
+            ProfileCommandSettings profileSettings = entry.getValue().getCommands();
+            if (profileSettings == null) {
+                continue;
+            }
+            Map<Stage, List<CommandTemplate>> stages = new EnumMap<>(Stage.class);
+            for (Stage stage : Stage.values()) {
+                List<CommandTemplate> templates = parseAll(stage.profile.apply(profileSettings));
+                if (!templates.isEmpty()) {
+                    stages.put(stage, templates);
+                }
+            }
+            if (!stages.isEmpty()) {
+                commands.profiles.put(entry.getKey(), stages);
+            }
+        }
+        return commands;
+    }
+
+    private static List<CommandTemplate> parseAll(List<String> raw) {
+        if (raw == null || raw.isEmpty()) {
+            return List.of();
+        }
+        List<CommandTemplate> templates = new ArrayList<>(raw.size());
+        for (String command : raw) {
+            if (command != null && !command.isBlank()) {
+                templates.add(CommandTemplate.parse(command));
+            }
+        }
+        return List.copyOf(templates);
+    }
+
+    /**
+     * Global commands of {@code stage} followed by those of each active profile.
+     */
+    public List<CommandTemplate> templates(Stage stage, Collection<String> activeProfiles) {
+        List<CommandTemplate> globalTemplates = global.get(stage);
+        List<CommandTemplate> result = null;
+        for (String profileName : activeProfiles) {
+            Map<Stage, List<CommandTemplate>> stages = profiles.get(profileName);
+            List<CommandTemplate> profileTemplates = stages != null ? stages.get(stage) : null;
+            if (profileTemplates == null) {
+                continue;
+            }
+            if (result == null) {
+                result = new ArrayList<>(globalTemplates);
+            }
+            result.addAll(profileTemplates);
+        }
+        return result != null ? result : globalTemplates;
+    }
+}
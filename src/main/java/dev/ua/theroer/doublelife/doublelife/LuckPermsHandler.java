@@ -1,19 +1,25 @@
 package dev.ua.theroer.doublelife.doublelife;
 
+import dev.ua.theroer.doublelife.jfr.LuckPermsEvent;
 import net.luckperms.api.LuckPerms;
 import net.luckperms.api.model.group.Group;
 import net.luckperms.api.model.user.User;
-import net.luckperms.api.node.Node;
 import net.luckperms.api.node.NodeType;
+import net.luckperms.api.node.matcher.NodeMatcher;
+import net.luckperms.api.node.types.DisplayNameNode;
 import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.node.types.PermissionNode;
 
-import java.time.Duration;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+/**
+ * Thin wrapper over the LuckPerms API. Lookups read the in-memory user cache; every mutation
+ * returns the storage future instead of blocking on it and is traced as a {@link LuckPermsEvent}.
+ */
 public class LuckPermsHandler {
 
     private final LuckPerms luckPerms;
@@ -22,6 +28,10 @@ public class LuckPermsHandler {
         this.luckPerms = luckPerms;
     }
 
+    public boolean isUserLoaded(UUID playerUuid) {
+        return luckPerms.getUserManager().isLoaded(playerUuid);
+    }
+
     public Set<String> getPlayerGroups(UUID playerUuid) {
         User user = luckPerms.getUserManager().getUser(playerUuid);
         if (user == null) {
@@ -46,79 +56,71 @@ public class LuckPermsHandler {
             .collect(Collectors.toList());
     }
 
-    public void addTemporaryGroup(UUID playerUuid, String groupName, int durationSeconds) {
-        User user = luckPerms.getUserManager().getUser(playerUuid);
-        if (user == null) {
-            return;
-        }
-        InheritanceNode.Builder builder = InheritanceNode.builder(groupName);
-        if (durationSeconds > 0) {
-            builder.expiry(Duration.ofSeconds(durationSeconds));
-        }
-        Node groupNode = builder.build();
-        user.data().add(groupNode);
-        luckPerms.getUserManager().saveUser(user);
+    /**
+     * Starts a batch of node changes for the user; nothing is written until {@link UserMutation#apply()}.
+     */
+    public UserMutation mutateUser(UUID playerUuid) {
+        return new UserMutation(luckPerms, playerUuid);
     }
 
-    public void addTemporaryPermission(UUID playerUuid, String permission, int durationSeconds) {
-        User user = luckPerms.getUserManager().getUser(playerUuid);
-        if (user == null) {
-            return;
-        }
-        PermissionNode.Builder builder = PermissionNode.builder(permission);
-        if (durationSeconds > 0) {
-            builder.expiry(Duration.ofSeconds(durationSeconds));
-        }
-        Node permNode = builder.build();
-        user.data().add(permNode);
-        luckPerms.getUserManager().saveUser(user);
+    /**
+     * Creates the group if needed and makes its permission nodes match {@code permissions} and its
+     * display name match {@code displayName}. The group is only saved when something differs.
+     */
+    public CompletableFuture<Void> ensureGroup(String groupName, String displayName, Set<String> permissions) {
+        return LuckPermsEvent.trace("ensureGroup", groupName, permissions.size(),
+            () -> doEnsureGroup(groupName, displayName, permissions));
     }
 
-    public void removeTemporaryGroup(UUID playerUuid, String groupName) {
-        User user = luckPerms.getUserManager().getUser(playerUuid);
-        if (user == null) {
-            return;
-        }
-        user.data().remove(InheritanceNode.builder(groupName).build());
-        luckPerms.getUserManager().saveUser(user);
+    private CompletableFuture<Void> doEnsureGroup(String groupName, String displayName, Set<String> permissions) {
+        return luckPerms.getGroupManager().createAndLoadGroup(groupName).thenCompose(group -> {
+            Set<String> current = group.getNodes(NodeType.PERMISSION).stream()
+                .map(PermissionNode::getPermission)
+                .collect(Collectors.toSet());
+            boolean displayNameCurrent = displayName.equals(group.getDisplayName());
+            if (current.equals(permissions) && displayNameCurrent) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (!current.equals(permissions)) {
+                group.data().clear(NodeType.PERMISSION::matches);
+                for (String permission : permissions) {
+                    group.data().add(PermissionNode.builder(permission).build());
+                }
+            }
+            if (!displayNameCurrent) {
+                group.data().clear(NodeType.DISPLAY_NAME::matches);
+                group.data().add(DisplayNameNode.builder(displayName).build());
+            }
+            return luckPerms.getGroupManager().saveGroup(group);
+        });
     }
 
-    public void clearTemporaryNodes(UUID playerUuid) {
-        User user = luckPerms.getUserManager().getUser(playerUuid);
-        if (user == null) {
-            return;
-        }
-        user.data().clear(Node::hasExpiry);
-        luckPerms.getUserManager().saveUser(user);
+    /**
+     * Deletes the group unless some user in storage still inherits it, e.g. an offline player
+     * or a player on another server of the network.
+     */
+    public CompletableFuture<Boolean> deleteGroupIfUnused(String groupName) {
+        return LuckPermsEvent.trace("searchGroupHolders", groupName, 0,
+                () -> luckPerms.getUserManager().searchAll(NodeMatcher.key(InheritanceNode.builder(groupName).build())))
+            .thenCompose(holders -> {
+                if (!holders.isEmpty()) {
+                    return CompletableFuture.completedFuture(false);
+                }
+                return deleteGroup(groupName).thenApply(ignored -> true);
+            });
     }
 
-    public void createTemporaryGroup(String groupName, int durationSeconds) {
-        luckPerms.getGroupManager().createAndLoadGroup(groupName).join();
-        if (durationSeconds > 0) {
-            // Expiry is handled on assignment; group itself stays temporary by cleanup.
-        }
+    public List<String> getLoadedGroupNames() {
+        return luckPerms.getGroupManager().getLoadedGroups().stream()
+            .map(Group::getName)
+            .collect(Collectors.toList());
     }
 
-    public void addPermissionsToGroup(String groupName, List<String> permissions, int durationSeconds) {
+    public CompletableFuture<Void> deleteGroup(String groupName) {
         Group group = luckPerms.getGroupManager().getGroup(groupName);
         if (group == null) {
-            return;
-        }
-        for (String permission : permissions) {
-            PermissionNode.Builder builder = PermissionNode.builder(permission);
-            if (durationSeconds > 0) {
-                builder.expiry(Duration.ofSeconds(durationSeconds));
-            }
-            Node permNode = builder.build();
-            group.data().add(permNode);
-        }
-        luckPerms.getGroupManager().saveGroup(group);
-    }
-
-    public void deleteGroup(String groupName) {
-        Group group = luckPerms.getGroupManager().getGroup(groupName);
-        if (group != null) {
-            luckPerms.getGroupManager().deleteGroup(group).join();
+            return CompletableFuture.completedFuture(null);
         }
+        return LuckPermsEvent.trace("deleteGroup", groupName, 0, () -> luckPerms.getGroupManager().deleteGroup(group));
     }
 }
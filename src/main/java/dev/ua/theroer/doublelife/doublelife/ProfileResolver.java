@@ -0,0 +1,113 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import dev.ua.theroer.doublelife.config.DoubleLifeConfig;
+import dev.ua.theroer.doublelife.config.DoubleLifeProfile;
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.event.EventBus;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.node.NodeMutateEvent;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
+import net.luckperms.api.model.user.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves which profiles a player may use. Profiles are indexed by LuckPerms group once per
+ * config load, and each player's result is cached until LuckPerms reports a change to that user.
+ */
+public class ProfileResolver {
+
+    private final DoubleLifeConfig config;
+    private final LuckPermsHandler luckPermsHandler;
+    private final Map<UUID, Set<String>> cache = new ConcurrentHashMap<>();
+    private final List<EventSubscription<?>> subscriptions = new ArrayList<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile Index index;
+
+    public ProfileResolver(DoubleLifeConfig config, LuckPermsHandler luckPermsHandler) {
+        this.config = config;
+        this.luckPermsHandler = luckPermsHandler;
+        rebuildIndex();
+    }
+
+    public void subscribe(Object plugin, LuckPerms luckPerms) {
+        EventBus eventBus = luckPerms.getEventBus();
+        subscriptions.add(eventBus.subscribe(plugin, UserDataRecalculateEvent.class,
+            event -> invalidate(event.getUser().getUniqueId())));
+        subscriptions.add(eventBus.subscribe(plugin, NodeMutateEvent.class, event -> {
+            if (event.isUser()) {
+                invalidate(((User) event.getTarget()).getUniqueId());
+            }
+        }));
+    }
+
+    /**
+     * Rebuilds the group-to-profile index from the current config and drops all cached results.
+     */
+    public void rebuildIndex() {
+        Map<String, DoubleLifeProfile> profiles = config.getProfiles();
+        Map<String, List<String>> byGroup = new HashMap<>();
+        if (profiles != null) {
+            for (Map.Entry<String, DoubleLifeProfile> entry : profiles.entrySet()) {
+                String groupName = entry.getValue() != null ? entry.getValue().getGroupName() : null;
+                if (groupName != null) {
+                    byGroup.computeIfAbsent(groupName, key -> new ArrayList<>()).add(entry.getKey());
+                }
+            }
+        }
+        index = new Index(profiles, byGroup);
+        invalidations.incrementAndGet();
+        cache.clear();
+    }
+
+    public Set<String> getApplicableProfiles(UUID playerUuid) {
+        Index current = index;
+        if (current.source != config.getProfiles()) {
+            // The config was reloaded behind our back; the old index no longer applies.
+            rebuildIndex();
+            current = index;
+        }
+        Set<String> cached = cache.get(playerUuid);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = invalidations.get();
+        Set<String> groups = luckPermsHandler.getPlayerGroups(playerUuid);
+        Set<String> applicable = new HashSet<>();
+        for (String group : groups) {
+            List<String> profiles = current.byGroup.get(group);
+            if (profiles != null) {
+                applicable.addAll(profiles);
+            }
+        }
+        Set<String> result = Set.copyOf(applicable);
+        // Skip caching if the user isn't loaded yet or changed while we were reading it.
+        if (luckPermsHandler.isUserLoaded(playerUuid) && invalidations.get() == generation) {
+            cache.put(playerUuid, result);
+        }
+        return result;
+    }
+
+    public void invalidate(UUID playerUuid) {
+        invalidations.incrementAndGet();
+        cache.remove(playerUuid);
+    }
+
+    public void close() {
+        subscriptions.forEach(EventSubscription::close);
+        subscriptions.clear();
+        cache.clear();
+    }
+
+    private record Index(Map<String, DoubleLifeProfile> source, Map<String, List<String>> byGroup) {
+    }
+}
@@ -0,0 +1,105 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Deadline-ordered expiry queue for DoubleLife sessions. Each tick only inspects the head of the
+ * queue, so the per-tick cost does not depend on how many sessions are running. Cancelled entries
+ * are dropped lazily and purged once they make up most of the queue.
+ * <p>
+ * Not thread-safe; all calls are expected on the server thread.
+ */
+public class SessionExpiryScheduler {
+
+    private static final int PURGE_THRESHOLD = 64;
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final Consumer<UUID> onExpire;
+    private int cancelled;
+
+    public SessionExpiryScheduler(Consumer<UUID> onExpire) {
+        this.onExpire = onExpire;
+    }
+
+    /**
+     * Schedules (or reschedules) expiry of the player's session at the given epoch millisecond.
+     */
+    public void schedule(UUID playerUuid, long deadlineMillis) {
+        cancel(playerUuid);
+        Entry entry = new Entry(playerUuid, deadlineMillis);
+        entries.put(playerUuid, entry);
+        queue.add(entry);
+    }
+
+    public void cancel(UUID playerUuid) {
+        Entry entry = entries.remove(playerUuid);
+        if (entry == null) {
+            return;
+        }
+        entry.cancelled = true;
+        cancelled++;
+        if (cancelled > PURGE_THRESHOLD && cancelled > queue.size() / 2) {
+            purge();
+        }
+    }
+
+    public boolean isScheduled(UUID playerUuid) {
+        return entries.containsKey(playerUuid);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Fires every entry whose deadline is not after {@code nowMillis}.
+     */
+    public void tick(long nowMillis) {
+        Entry head;
+        while ((head = queue.peek()) != null && head.deadline <= nowMillis) {
+            queue.poll();
+            if (head.cancelled) {
+                cancelled--;
+                continue;
+            }
+            entries.remove(head.playerUuid);
+            onExpire.accept(head.playerUuid);
+        }
+    }
+
+    public void clear() {
+        queue.clear();
+        entries.clear();
+        cancelled = 0;
+    }
+
+    private void purge() {
+        List<Entry> live = new ArrayList<>(entries.values());
+        queue.clear();
+        queue.addAll(live);
+        cancelled = 0;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final UUID playerUuid;
+        private final long deadline;
+        private boolean cancelled;
+
+        private Entry(UUID playerUuid, long deadline) {
+            this.playerUuid = playerUuid;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(deadline, other.deadline);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+/**
+ * Lifecycle of a {@link DoubleLifeSession}. Starting and ending span asynchronous LuckPerms work,
+ * so a session stays registered in an intermediate state until the transition has completed.
+ */
+public enum SessionState {
+    /** Inventory saved and cleared; permissions are being applied. */
+    STARTING,
+    /** Fully applied; expiry and boss bar are running. */
+    ACTIVE,
+    /** Inventory restored; permissions are being removed. */
+    ENDING,
+    /** Finished and no longer registered. */
+    ENDED
+}
@@ -0,0 +1,178 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared LuckPerms groups, one per combination of active profiles. The group name is derived from
+ * a hash of the sorted profile names, so every session with the same profiles inherits the same group and
+ * starting a session only adds one inheritance node to the user.
+ * <p>
+ * Each pooled group tracks the players currently holding it. Groups nobody holds are deleted lazily
+ * by {@link #cleanupIdle(long)}, and only when no user in LuckPerms storage still inherits them.
+ */
+public class TemporaryGroupPool {
+
+    private static final String POOL_MARKER = "-pool-";
+    private static final int HASH_BYTES = 6;
+
+    private final LuckPermsHandler luckPermsHandler;
+    private final Map<String, PooledGroup> groups = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> retiring = new ConcurrentHashMap<>();
+    private volatile String baseName;
+
+    public TemporaryGroupPool(LuckPermsHandler luckPermsHandler, String baseName) {
+        this.luckPermsHandler = luckPermsHandler;
+        this.baseName = baseName;
+    }
+
+    public void setBaseName(String baseName) {
+        this.baseName = baseName;
+    }
+
+    /**
+     * Deterministic group name for a profile set, e.g. {@code doublelife-pool-3f2a9c01b4de}. The
+     * suffix hashes the exact profile names, so the name stays within LuckPerms' 36 character limit
+     * however many profiles there are, and distinct sets never share a group. Player names cannot
+     * contain {@code -}, so these never collide with legacy per-player groups.
+     */
+    public String groupName(Collection<String> profiles) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (String profile : sorted(profiles)) {
+            digest.update(profile.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return baseName.toLowerCase(Locale.ROOT) + POOL_MARKER + HexFormat.of().formatHex(digest.digest(), 0, HASH_BYTES);
+    }
+
+    /**
+     * Readable label stored as the group's display name, since the name itself is only a hash.
+     */
+    public static String displayName(Collection<String> profiles) {
+        return "DoubleLife: " + String.join(", ", sorted(profiles));
+    }
+
+    /**
+     * Whether the group was created by a pool, under any base name; {@code temporary-group} can
+     * change on reload while groups made under the old base are still inherited.
+     */
+    public boolean isPooled(String groupName) {
+        return groupName != null && groupName.toLowerCase(Locale.ROOT).contains(POOL_MARKER);
+    }
+
+    /**
+     * Registers {@code playerUuid} as a holder of the group for {@code profiles} and completes with the
+     * group name once the group exists with the given permissions. Only the first holder (or a
+     * permission change) touches LuckPerms storage.
+     */
+    public CompletableFuture<String> acquire(UUID playerUuid, Collection<String> profiles, List<String> permissions) {
+        String name = groupName(profiles);
+        String displayName = displayName(profiles);
+        Set<String> wanted = new HashSet<>(permissions);
+        while (true) {
+            PooledGroup group = groups.computeIfAbsent(name, PooledGroup::new);
+            synchronized (group) {
+                if (groups.get(name) != group) {
+                    // Retired by cleanup while we were waiting; start over with a fresh entry.
+                    continue;
+                }
+                group.holders.add(playerUuid);
+                group.idleSince = 0L;
+                if (group.ready == null || group.ready.isCompletedExceptionally() || !wanted.equals(group.permissions)) {
+                    group.permissions = wanted;
+                    CompletableFuture<Void> previous = retiring.getOrDefault(name, CompletableFuture.completedFuture(null));
+                    group.ready = previous.thenCompose(ignored -> luckPermsHandler.ensureGroup(name, displayName, wanted));
+                }
+                return group.ready.thenApply(ignored -> name);
+            }
+        }
+    }
+
+    public void release(UUID playerUuid, String groupName) {
+        if (groupName == null) {
+            return;
+        }
+        PooledGroup group = groups.get(groupName);
+        if (group == null) {
+            return;
+        }
+        synchronized (group) {
+            if (group.holders.remove(playerUuid) && group.holders.isEmpty()) {
+                group.idleSince = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Deletes pooled groups that have had no holders for at least {@code graceMillis}. Pooled groups left
+     * over from a previous run are picked up as idle the first time they are seen.
+     */
+    public void cleanupIdle(long graceMillis) {
+        long now = System.currentTimeMillis();
+        for (String name : luckPermsHandler.getLoadedGroupNames()) {
+            if (isPooled(name) && !retiring.containsKey(name)) {
+                groups.computeIfAbsent(name, key -> {
+                    PooledGroup adopted = new PooledGroup(key);
+                    adopted.idleSince = now;
+                    return adopted;
+                });
+            }
+        }
+
+        for (PooledGroup group : groups.values()) {
+            CompletableFuture<Void> gate = new CompletableFuture<>();
+            synchronized (group) {
+                if (!group.holders.isEmpty() || group.idleSince == 0L || now - group.idleSince < graceMillis) {
+                    continue;
+                }
+                // Published before the entry disappears so a concurrent acquire waits for the deletion.
+                retiring.put(group.name, gate);
+                groups.remove(group.name, group);
+            }
+            String name = group.name;
+            luckPermsHandler.deleteGroupIfUnused(name).whenComplete((deleted, error) -> {
+                retiring.remove(name, gate);
+                gate.complete(null);
+            });
+        }
+    }
+
+    public int size() {
+        return groups.size();
+    }
+
+    private static List<String> sorted(Collection<String> profiles) {
+        List<String> sorted = new ArrayList<>(profiles);
+        sorted.sort(null);
+        return sorted;
+    }
+
+    private static final class PooledGroup {
+        private final String name;
+        private final Set<UUID> holders = new HashSet<>();
+        private Set<String> permissions = Set.of();
+        private CompletableFuture<Void> ready;
+        private long idleSince;
+
+        private PooledGroup(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import dev.ua.theroer.doublelife.config.MetricsSettings;
+import dev.ua.theroer.doublelife.doublelife.webhook.WebhookManager;
+import dev.ua.theroer.doublelife.metrics.Counter;
+import dev.ua.theroer.doublelife.metrics.MetricsRegistry;
+import dev.ua.theroer.magicutils.Logger;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Accounts the server-thread time DoubleLife spends in each tick, per subsystem. Callers bracket
+ * their work with {@link #enter} and {@link #exit}; nested scopes are charged exclusively, so a
+ * boss bar created during a lifecycle step counts as boss bar time only. The last minute of ticks
+ * is kept in a ring for p50/p99/max, and a tick over the configured budget raises an alert.
+ * <p>
+ * Scopes opened off the server thread are ignored. Summaries may be read from any thread; they
+ * are computed from a racy copy of the ring, which is fine for monitoring.
+ */
+public class TickCostMonitor implements Listener {
+
+    private static final int WINDOW_TICKS = 1200;
+    private static final long SUMMARY_CACHE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Subsystem[] SUBSYSTEMS = Subsystem.values();
+    private static final int TOTAL = SUBSYSTEMS.length;
+
+    public enum Subsystem {
+        LISTENERS("listeners"),
+        SESSION_CHECKER("session_checker"),
+        BOSS_BAR("boss_bar"),
+        COMMANDS("commands"),
+        LIFECYCLE("lifecycle");
+
+        private final String label;
+
+        Subsystem(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final Thread serverThread;
+    private final Logger logger;
+    private final Supplier<MetricsSettings> settings;
+    private final WebhookManager webhookManager;
+    private final Counter overBudget;
+    private final long[] current = new long[SUBSYSTEMS.length];
+    private final long[][] window = new long[TOTAL + 1][WINDOW_TICKS];
+    private Subsystem[] stack = new Subsystem[8];
+    private long[] enteredAt = new long[8];
+    private int depth;
+    private long segmentStartedAt;
+    private int cursor;
+    private volatile int filled;
+    private long lastAlertMillis;
+    private int suppressedAlerts;
+    private Summary[] cachedSummaries;
+    private long cachedAt;
+
+    /**
+     * Must be created on the server thread.
+     */
+    public TickCostMonitor(Logger logger, Supplier<MetricsSettings> settings, WebhookManager webhookManager,
+                           MetricsRegistry metrics) {
+        this.serverThread = Thread.currentThread();
+        this.logger = logger;
+        this.settings = settings;
+        this.webhookManager = webhookManager;
+        this.overBudget = metrics.counter("doublelife_tick_budget_exceeded",
+            "Ticks in which DoubleLife used more server-thread time than the configured budget");
+        for (int column = 0; column <= TOTAL; column++) {
+            String subsystem = column == TOTAL ? "total" : SUBSYSTEMS[column].label;
+            int index = column;
+            costGauge(metrics, subsystem, "p50", () -> summaries()[index].p50());
+            costGauge(metrics, subsystem, "p99", () -> summaries()[index].p99());
+            costGauge(metrics, subsystem, "max", () -> summaries()[index].max());
+        }
+    }
+
+    private static void costGauge(MetricsRegistry metrics, String subsystem, String stat, LongSupplier value) {
+        metrics.gauge("doublelife_tick_cost_nanoseconds", "Server-thread time per tick over the last minute",
+            value, "subsystem", subsystem, "stat", stat);
+    }
+
+    public void enter(Subsystem subsystem) {
+        if (Thread.currentThread() != serverThread) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (depth > 0) {
+            current[stack[depth - 1].ordinal()] += now - segmentStartedAt;
+        }
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+            enteredAt = Arrays.copyOf(enteredAt, depth * 2);
+        }
+        stack[depth] = subsystem;
+        enteredAt[depth] = now;
+        depth++;
+        segmentStartedAt = now;
+    }
+
+    /**
+     * Closes the innermost scope and returns its inclusive duration, so callers that also keep
+     * a latency histogram need not read the clock twice. Returns 0 off the server thread.
+     */
+    public long exit() {
+        if (Thread.currentThread() != serverThread || depth == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        depth--;
+        current[stack[depth].ordinal()] += now - segmentStartedAt;
+        segmentStartedAt = now;
+        return now - enteredAt[depth];
+    }
+
+    public void run(Subsystem subsystem, Runnable task) {
+        enter(subsystem);
+        try {
+            task.run();
+        } finally {
+            exit();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTickEnd(ServerTickEndEvent event) {
+        // A scope left open by an exception must not leak into the next tick.
+        depth = 0;
+        long total = 0;
+        for (int i = 0; i < current.length; i++) {
+            window[i][cursor] = current[i];
+            total += current[i];
+            current[i] = 0;
+        }
+        window[TOTAL][cursor] = total;
+        cursor = (cursor + 1) % WINDOW_TICKS;
+        if (filled < WINDOW_TICKS) {
+            filled++;
+        }
+
+        MetricsSettings monitoring = settings.get();
+        if (monitoring == null || monitoring.getTickBudgetMicros() <= 0
+            || total <= TimeUnit.MICROSECONDS.toNanos(monitoring.getTickBudgetMicros())) {
+            return;
+        }
+        overBudget.increment();
+        long now = System.currentTimeMillis();
+        if (now - lastAlertMillis < TimeUnit.SECONDS.toMillis(monitoring.getTickAlertCooldownSeconds())) {
+            suppressedAlerts++;
+            return;
+        }
+        lastAlertMillis = now;
+        String message = describeTick(event.getTickNumber(), total, monitoring.getTickBudgetMicros());
+        suppressedAlerts = 0;
+        logger.warn(message);
+        if (monitoring.isTickAlertWebhook()) {
+            webhookManager.sendAlert(message);
+        }
+    }
+
+    private String describeTick(int tick, long total, int budgetMicros) {
+        int previous = (cursor + WINDOW_TICKS - 1) % WINDOW_TICKS;
+        StringBuilder builder = new StringBuilder("DoubleLife used ").append(millis(total))
+            .append(" of server-thread time in tick ").append(tick)
+            .append(" (budget ").append(millis(TimeUnit.MICROSECONDS.toNanos(budgetMicros))).append("):");
+        for (Subsystem subsystem : SUBSYSTEMS) {
+            long nanos = window[subsystem.ordinal()][previous];
+            if (nanos > 0) {
+                builder.append(' ').append(subsystem.label).append('=').append(millis(nanos));
+            }
+        }
+        if (suppressedAlerts > 0) {
+            builder.append("; ").append(suppressedAlerts).append(" more tick(s) over budget since the last alert");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * One line per subsystem plus the total, for the in-game command.
+     */
+    public List<String> describe() {
+        Summary[] summaries = summaries();
+        List<String> lines = new ArrayList<>(summaries.length);
+        for (int column = 0; column <= TOTAL; column++) {
+            Summary summary = summaries[column];
+            String name = column == TOTAL ? "total" : SUBSYSTEMS[column].label;
+            lines.add(name + ": p50=" + millis(summary.p50()) + " p99=" + millis(summary.p99()) + " max=" + millis(summary.max()));
+        }
+        return lines;
+    }
+
+    public int getWindowTicks() {
+        return filled;
+    }
+
+    private synchronized Summary[] summaries() {
+        long now = System.nanoTime();
+        if (cachedSummaries != null && now - cachedAt < SUMMARY_CACHE_NANOS) {
+            return cachedSummaries;
+        }
+        int count = filled;
+        Summary[] summaries = new Summary[TOTAL + 1];
+        long[] sorted = new long[count];
+        for (int column = 0; column <= TOTAL; column++) {
+            System.arraycopy(window[column], 0, sorted, 0, count);
+            Arrays.sort(sorted);
+            summaries[column] = count == 0
+                ? new Summary(0, 0, 0)
+                : new Summary(sorted[rank(count, 0.5)], sorted[rank(count, 0.99)], sorted[count - 1]);
+        }
+        cachedSummaries = summaries;
+        cachedAt = now;
+        return summaries;
+    }
+
+    private static int rank(int count, double quantile) {
+        return Math.min(count - 1, (int) Math.ceil(quantile * count) - 1);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000.0);
+    }
+
+    private record Summary(long p50, long p99, long max) {
+    }
+}
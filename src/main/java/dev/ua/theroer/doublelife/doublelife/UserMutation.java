@@ -0,0 +1,98 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import dev.ua.theroer.doublelife.jfr.LuckPermsEvent;
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.types.InheritanceNode;
+import net.luckperms.api.node.types.PermissionNode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Collects node changes for one user and applies them in a single {@code modifyUser} call,
+ * so a lifecycle step costs one save and one network sync message.
+ */
+public final class UserMutation {
+
+    private final LuckPerms luckPerms;
+    private final UUID playerUuid;
+    private final List<Node> removals = new ArrayList<>();
+    private final List<Predicate<? super Node>> clears = new ArrayList<>();
+    private final List<Node> additions = new ArrayList<>();
+
+    UserMutation(LuckPerms luckPerms, UUID playerUuid) {
+        this.luckPerms = luckPerms;
+        this.playerUuid = playerUuid;
+    }
+
+    public UserMutation addGroup(String groupName, int durationSeconds) {
+        InheritanceNode.Builder builder = InheritanceNode.builder(groupName);
+        if (durationSeconds > 0) {
+            builder.expiry(Duration.ofSeconds(durationSeconds));
+        }
+        additions.add(builder.build());
+        return this;
+    }
+
+    public UserMutation addPermission(String permission, int durationSeconds) {
+        PermissionNode.Builder builder = PermissionNode.builder(permission);
+        if (durationSeconds > 0) {
+            builder.expiry(Duration.ofSeconds(durationSeconds));
+        }
+        additions.add(builder.build());
+        return this;
+    }
+
+    public UserMutation removeGroup(String groupName) {
+        removals.add(InheritanceNode.builder(groupName).build());
+        return this;
+    }
+
+    /**
+     * Removes every membership of {@code groupName}, whatever its expiry.
+     */
+    public UserMutation clearGroup(String groupName) {
+        clears.add(node -> node instanceof InheritanceNode inheritance
+            && inheritance.getGroupName().equalsIgnoreCase(groupName));
+        return this;
+    }
+
+    public UserMutation clearTemporaryNodes() {
+        clears.add(Node::hasExpiry);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return removals.isEmpty() && clears.isEmpty() && additions.isEmpty();
+    }
+
+    /**
+     * Applies removals, then clears, then additions, and saves the user once.
+     */
+    public CompletableFuture<Void> apply() {
+        if (isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int changes = removals.size() + clears.size() + additions.size();
+        return LuckPermsEvent.trace("modifyUser", playerUuid, changes, this::modifyUser);
+    }
+
+    private CompletableFuture<Void> modifyUser() {
+        return luckPerms.getUserManager().modifyUser(playerUuid, user -> {
+            for (Node node : removals) {
+                user.data().remove(node);
+            }
+            for (Predicate<? super Node> clear : clears) {
+                user.data().clear(clear);
+            }
+            for (Node node : additions) {
+                user.data().add(node);
+            }
+        });
+    }
+}
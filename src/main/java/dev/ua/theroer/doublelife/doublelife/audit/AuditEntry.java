@@ -0,0 +1,11 @@
+package dev.ua.theroer.doublelife.doublelife.audit;
+
+import dev.ua.theroer.doublelife.doublelife.ActionEvent;
+
+import java.util.UUID;
+
+/**
+ * One queued audit record: either a player action or a session lifecycle event.
+ */
+record AuditEntry(long timestamp, UUID playerUuid, String playerName, ActionEvent action, String event, String details) {
+}
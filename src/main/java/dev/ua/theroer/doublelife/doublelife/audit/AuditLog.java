@@ -0,0 +1,293 @@
+package dev.ua.theroer.doublelife.doublelife.audit;
+
+import com.google.gson.stream.JsonWriter;
+import dev.ua.theroer.doublelife.config.AuditSettings;
+import dev.ua.theroer.doublelife.doublelife.ActionEvent;
+import dev.ua.theroer.magicutils.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local audit trail of DoubleLife sessions, written as newline-delimited JSON. Callers only enqueue;
+ * a single writer thread serializes records into a buffered segment file, flushing after each burst.
+ * Segments rotate by size and age, closed segments are gzip-compressed, and segments past the
+ * retention period are deleted.
+ */
+public class AuditLog {
+
+    private static final int QUEUE_CAPACITY = 65_536;
+    private static final int WRITE_BATCH = 512;
+    private static final long IDLE_POLL_MILLIS = 1000L;
+    private static final long DROP_WARN_INTERVAL_MILLIS = 60_000L;
+
+    private final Logger logger;
+    private final AuditSettings settings;
+    private final File directory;
+    private final BlockingQueue<AuditEntry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder dropped = new LongAdder();
+    private final ExecutorService queryExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "doublelife-audit-query");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private volatile long lastDropWarnAt;
+
+    // Writer thread state.
+    private final StringWriter line = new StringWriter(256);
+    private final StringBuilder details = new StringBuilder(128);
+    private Writer out;
+    private File segment;
+    private long segmentBytes;
+    private long segmentOpenedAt;
+
+    public AuditLog(Logger logger, AuditSettings settings, File directory) {
+        this.logger = logger;
+        this.settings = settings;
+        this.directory = directory;
+        this.writerThread = new Thread(this::runWriter, "doublelife-audit-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    public void recordAction(UUID playerUuid, String playerName, ActionEvent action) {
+        offer(new AuditEntry(action.timestamp(), playerUuid, playerName, action, null, null));
+    }
+
+    public void recordEvent(UUID playerUuid, String playerName, String event, String details) {
+        offer(new AuditEntry(System.currentTimeMillis(), playerUuid, playerName, null, event, details));
+    }
+
+    /**
+     * Records dropped because the writer fell behind.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Streams the segments on a background thread and returns the most recent matching records.
+     */
+    public CompletableFuture<AuditReader.Result> search(UUID playerUuid, String playerName, long sinceMillis) {
+        int limit = Math.max(1, settings.getQueryLimit());
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return AuditReader.search(directory, playerUuid, playerName, sinceMillis, limit);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read audit log: " + e.getMessage(), e);
+            }
+        }, queryExecutor);
+    }
+
+    /**
+     * Writes everything still queued, closes the active segment and stops the writer.
+     */
+    public void close(long timeout, TimeUnit unit) {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queryExecutor.shutdownNow();
+    }
+
+    private void offer(AuditEntry entry) {
+        if (!settings.isEnabled() || !running) {
+            return;
+        }
+        if (!queue.offer(entry)) {
+            dropped.increment();
+            long now = System.currentTimeMillis();
+            if (now - lastDropWarnAt >= DROP_WARN_INTERVAL_MILLIS) {
+                lastDropWarnAt = now;
+                logger.warn("Audit log writer is falling behind; " + dropped.sum() + " records dropped so far");
+            }
+        }
+    }
+
+    private void runWriter() {
+        compressLeftovers();
+        applyRetention();
+        List<AuditEntry> batch = new ArrayList<>(WRITE_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEntry first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, WRITE_BATCH - 1);
+                }
+            } catch (InterruptedException e) {
+                // close() interrupts to wake us; keep draining until the queue is empty.
+                queue.drainTo(batch, WRITE_BATCH);
+            }
+            try {
+                for (AuditEntry entry : batch) {
+                    write(entry);
+                }
+                if (out != null) {
+                    out.flush();
+                }
+                if (out != null && System.currentTimeMillis() - segmentOpenedAt >= rotateAfterMillis()) {
+                    rotate();
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to write audit log: " + e.getMessage());
+                closeSegment();
+            }
+            batch.clear();
+        }
+        closeSegment();
+    }
+
+    private void write(AuditEntry entry) throws IOException {
+        line.getBuffer().setLength(0);
+        JsonWriter json = new JsonWriter(line);
+        json.beginObject();
+        json.name("ts").value(entry.timestamp());
+        json.name("time").value(Instant.ofEpochMilli(entry.timestamp()).toString());
+        json.name("uuid").value(entry.playerUuid() != null ? entry.playerUuid().toString() : null);
+        json.name("player").value(entry.playerName());
+        ActionEvent action = entry.action();
+        if (action != null) {
+            details.setLength(0);
+            json.name("event").value(action.type().getLabel());
+            json.name("details").value(action.renderDetails(details).toString());
+            if (action.world() != null) {
+                json.name("world").value(action.world());
+                json.name("x").value(action.x());
+                json.name("y").value(action.y());
+                json.name("z").value(action.z());
+            }
+        } else {
+            json.name("event").value(entry.event());
+            json.name("details").value(entry.details());
+        }
+        json.endObject();
+        line.write('\n');
+
+        if (out == null) {
+            openSegment();
+        }
+        StringBuffer buffer = line.getBuffer();
+        out.append(buffer);
+        segmentBytes += buffer.length();
+        if (segmentBytes >= Math.max(1, settings.getMaxSegmentMb()) * 1024L * 1024L) {
+            rotate();
+        }
+    }
+
+    private long rotateAfterMillis() {
+        return Math.max(1, settings.getRotateHours()) * 3_600_000L;
+    }
+
+    private void openSegment() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        segmentOpenedAt = System.currentTimeMillis();
+        segment = new File(directory, AuditReader.segmentName(segmentOpenedAt));
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(segment, true), StandardCharsets.UTF_8), 64 * 1024);
+        segmentBytes = segment.length();
+    }
+
+    private void rotate() {
+        File closed = segment;
+        closeSegment();
+        if (closed != null) {
+            compress(closed);
+        }
+        applyRetention();
+    }
+
+    private void closeSegment() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close audit segment: " + e.getMessage());
+            }
+        }
+        out = null;
+        segment = null;
+        segmentBytes = 0;
+    }
+
+    /**
+     * Compresses plain segments left behind by an earlier run, which may have stopped mid-rotation.
+     */
+    private void compressLeftovers() {
+        File[] files = directory.listFiles((dir, name) -> AuditReader.isSegment(name) && !name.endsWith(AuditReader.GZIP_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                compress(file);
+            }
+        }
+    }
+
+    private void compress(File plain) {
+        File target = new File(plain.getPath() + AuditReader.GZIP_SUFFIX);
+        File temp = new File(target.getPath() + ".tmp");
+        try (InputStream in = new FileInputStream(plain);
+             OutputStream gzip = new GZIPOutputStream(new FileOutputStream(temp), 64 * 1024)) {
+            in.transferTo(gzip);
+        } catch (IOException e) {
+            logger.warn("Failed to compress audit segment " + plain.getName() + ": " + e.getMessage());
+            temp.delete();
+            return;
+        }
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(plain.toPath());
+        } catch (IOException e) {
+            logger.warn("Failed to finish compressing audit segment " + plain.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void applyRetention() {
+        int days = settings.getRetentionDays();
+        if (days <= 0) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - days * 86_400_000L;
+        File[] files = directory.listFiles((dir, name) -> AuditReader.isSegment(name) && name.endsWith(AuditReader.GZIP_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.lastModified() < cutoff && !file.delete()) {
+                logger.warn("Failed to delete expired audit segment " + file.getName());
+            }
+        }
+    }
+}
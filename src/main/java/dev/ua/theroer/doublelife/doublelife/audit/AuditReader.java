@@ -0,0 +1,163 @@
+package dev.ua.theroer.doublelife.doublelife.audit;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads audit segments line by line. Segments are named after the time they were opened, so
+ * segments that ended before the requested start are skipped without being opened, and only the
+ * last {@code limit} matches are kept in memory.
+ */
+public final class AuditReader {
+
+    static final String GZIP_SUFFIX = ".gz";
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".ndjson";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS")
+        .withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+        .withZone(ZoneId.systemDefault());
+
+    /**
+     * Most recent matching records, oldest first, and how many matched in total.
+     */
+    public record Result(List<String> lines, long matched) {
+    }
+
+    private AuditReader() {
+    }
+
+    static String segmentName(long openedAtMillis) {
+        return PREFIX + NAME_FORMAT.format(Instant.ofEpochMilli(openedAtMillis)) + SUFFIX;
+    }
+
+    static boolean isSegment(String name) {
+        return name.startsWith(PREFIX) && (name.endsWith(SUFFIX) || name.endsWith(SUFFIX + GZIP_SUFFIX));
+    }
+
+    /**
+     * Parses a look-back such as {@code 90s}, {@code 30m}, {@code 12h} or {@code 7d} into the
+     * epoch millis it starts at, or -1 when it cannot be parsed.
+     */
+    public static long parseSince(String value, long nowMillis) {
+        if (value == null || value.length() < 2) {
+            return -1;
+        }
+        long unit = switch (Character.toLowerCase(value.charAt(value.length() - 1))) {
+            case 's' -> 1000L;
+            case 'm' -> 60_000L;
+            case 'h' -> 3_600_000L;
+            case 'd' -> 86_400_000L;
+            default -> -1L;
+        };
+        if (unit < 0) {
+            return -1;
+        }
+        try {
+            long amount = Long.parseLong(value.substring(0, value.length() - 1));
+            return amount < 0 ? -1 : Math.max(0L, nowMillis - amount * unit);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static Result search(File directory, UUID playerUuid, String playerName, long sinceMillis, int limit) throws IOException {
+        Deque<String> recent = new ArrayDeque<>(limit);
+        long matched = 0;
+        File[] files = directory.listFiles((dir, name) -> isSegment(name));
+        if (files == null) {
+            return new Result(List.of(), 0);
+        }
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+
+        String needle = playerUuid != null ? playerUuid.toString() : null;
+        for (int i = 0; i < files.length; i++) {
+            // A segment ends where the next one begins.
+            if (i + 1 < files.length && openedAt(files[i + 1].getName()) < sinceMillis) {
+                continue;
+            }
+            try (BufferedReader reader = open(files[i])) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (needle != null && !line.contains(needle)) {
+                        continue;
+                    }
+                    JsonObject record = parse(line);
+                    if (record == null || !matches(record, needle, playerName) || record.get("ts").getAsLong() < sinceMillis) {
+                        continue;
+                    }
+                    matched++;
+                    if (recent.size() == limit) {
+                        recent.removeFirst();
+                    }
+                    recent.addLast(format(record));
+                }
+            }
+        }
+        return new Result(List.copyOf(recent), matched);
+    }
+
+    private static BufferedReader open(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        if (file.getName().endsWith(GZIP_SUFFIX)) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private static long openedAt(String name) {
+        int end = name.indexOf(SUFFIX);
+        try {
+            return Instant.from(NAME_FORMAT.parse(name.substring(PREFIX.length(), end))).toEpochMilli();
+        } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static JsonObject parse(String line) {
+        try {
+            JsonElement element = JsonParser.parseString(line);
+            return element.isJsonObject() && element.getAsJsonObject().has("ts") ? element.getAsJsonObject() : null;
+        } catch (RuntimeException e) {
+            // A torn last line in the active segment.
+            return null;
+        }
+    }
+
+    private static boolean matches(JsonObject record, String uuid, String playerName) {
+        if (uuid != null) {
+            return uuid.equals(string(record, "uuid"));
+        }
+        return playerName.equalsIgnoreCase(string(record, "player"));
+    }
+
+    private static String format(JsonObject record) {
+        String time = DISPLAY_FORMAT.format(Instant.ofEpochMilli(record.get("ts").getAsLong()));
+        return "[" + time + "] " + string(record, "player") + " " + string(record, "event") + ": " + string(record, "details");
+    }
+
+    private static String string(JsonObject record, String key) {
+        JsonElement value = record.get(key);
+        return value == null || value.isJsonNull() ? "" : value.getAsString();
+    }
+}
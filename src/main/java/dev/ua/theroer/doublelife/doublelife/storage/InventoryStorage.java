@@ -1,10 +1,10 @@
 package dev.ua.theroer.doublelife.doublelife.storage;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
 import dev.ua.theroer.doublelife.DoubleLifePlugin;
 import dev.ua.theroer.doublelife.doublelife.DoubleLifeSession;
+import dev.ua.theroer.doublelife.jfr.StorageEvent;
+import dev.ua.theroer.doublelife.metrics.Histogram;
+import dev.ua.theroer.doublelife.metrics.MetricsRegistry;
 import dev.ua.theroer.magicutils.Logger;
 
 import org.bukkit.Bukkit;
@@ -13,119 +13,382 @@ import org.bukkit.Location;
 import org.bukkit.inventory.ItemStack;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.Reader;
-import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Session persistence with write-behind semantics. Saves and deletes are queued per player and
+ * applied on a dedicated I/O thread; repeated writes for the same player collapse into the latest one.
+ */
 public class InventoryStorage {
 
+    private static final long FLUSH_TIMEOUT_SECONDS = 10;
+    private static final long PREFETCH_TTL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final String EXTENSION = ".dls";
+    private static final String LEGACY_EXTENSION = ".json";
+
     private final File storageDir;
-    private final Gson gson;
+    private final boolean compress;
     private final Logger logger;
+    private final Histogram readLatency;
+    private final Histogram writeLatency;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "doublelife-storage-io");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<UUID, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    private final Set<UUID> persistedSessions = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Prefetch> prefetched = new ConcurrentHashMap<>();
 
-    public InventoryStorage(DoubleLifePlugin plugin, String storagePath) {
+    public InventoryStorage(DoubleLifePlugin plugin, String storagePath, boolean compress, MetricsRegistry metrics) {
         this.storageDir = new File(plugin.getDataFolder(), storagePath);
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.compress = compress;
+        this.readLatency = metrics.histogram("doublelife_storage_seconds", "Session file read/write time", "op", "read");
+        this.writeLatency = metrics.histogram("doublelife_storage_seconds", "Session file read/write time", "op", "write");
+        metrics.gauge("doublelife_storage_pending_writes", "Session writes waiting for the I/O thread", pendingWrites::size);
         if (!storageDir.exists()) {
             storageDir.mkdirs();
         }
         this.logger = plugin.getMLogger();
+        indexSessions();
     }
 
+    /**
+     * Captures the session state on the calling thread and persists it asynchronously.
+     */
     public void saveSession(DoubleLifeSession session) {
-        File sessionFile = new File(storageDir, session.getPlayerUuid() + ".json");
+        UUID playerUuid = session.getPlayerUuid();
+        persistedSessions.add(playerUuid);
+        prefetched.remove(playerUuid);
+        enqueue(playerUuid, PendingWrite.save(session));
+    }
+
+    public void deleteSession(UUID playerUuid) {
+        persistedSessions.remove(playerUuid);
+        prefetched.remove(playerUuid);
+        enqueue(playerUuid, PendingWrite.delete());
+    }
+
+    public boolean hasSession(UUID playerUuid) {
+        return persistedSessions.contains(playerUuid);
+    }
+
+    /**
+     * Loads and decodes a player's session ahead of the join. Meant for the async pre-login thread;
+     * players without a stored session cost a single set lookup.
+     */
+    public void prefetchSession(UUID playerUuid) {
+        pruneExpiredPrefetches();
+        if (!persistedSessions.contains(playerUuid)) {
+            return;
+        }
+        // Registered before loading so that a save or delete racing with the read discards it.
+        Prefetch prefetch = new Prefetch();
+        prefetched.put(playerUuid, prefetch);
+        prefetch.complete(loadSession(playerUuid));
+    }
+
+    /**
+     * Returns the session to restore on join: the prefetched copy when available, otherwise a
+     * synchronous load, and no disk access at all for players without a stored session.
+     */
+    public DoubleLifeSession claimSession(UUID playerUuid) {
+        Prefetch prefetch = prefetched.remove(playerUuid);
+        if (prefetch != null && prefetch.isUsable()) {
+            return prefetch.session;
+        }
+        if (!persistedSessions.contains(playerUuid)) {
+            return null;
+        }
+        return loadSession(playerUuid);
+    }
+
+    /**
+     * Blocks until every write queued so far has reached the disk, or the timeout elapses.
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
         try {
-            SessionData data = new SessionData();
-            data.playerUuid = session.getPlayerUuid().toString();
-            data.playerName = session.getPlayerName();
-            data.startTime = session.getStartTime().toEpochMilli();
-            data.duration = session.getDuration();
-            data.activeProfiles = session.getActiveProfiles().toArray(new String[0]);
-
-            data.savedInventory = serializeInventory(session.getSavedInventory());
-            data.savedArmor = serializeInventory(session.getSavedArmor());
-            data.savedEnderChest = serializeInventory(session.getSavedEnderChest());
-            data.savedGameMode = session.getSavedGameMode().name();
-            data.savedLocation = LocationData.fromLocation(session.getSavedLocation());
-            data.savedHealth = session.getSavedHealth();
-            data.savedFoodLevel = session.getSavedFoodLevel();
-            data.savedExp = session.getSavedExp();
-            data.savedLevel = session.getSavedLevel();
-            data.originalGroups = session.getOriginalGroups().toArray(new String[0]);
-            data.temporaryGroupName = session.getTemporaryGroupName();
-
-            try (Writer writer = Files.newBufferedWriter(sessionFile.toPath())) {
-                gson.toJson(data, writer);
-            }
-            logger.debug("Saved DoubleLife session for " + session.getPlayerName());
+            ioExecutor.submit(() -> { }).get(timeout, unit);
+            return true;
+        } catch (RejectedExecutionException e) {
+            drainAll();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
-            logger.error("Failed to save DoubleLife session for " + session.getPlayerName() + ": " + e.getMessage());
+            logger.warn("Timed out waiting for DoubleLife session writes: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Flushes pending writes and stops the I/O thread. Anything still queued afterwards is written
+     * on the calling thread so no session is lost on shutdown.
+     */
+    public void shutdown() {
+        flush(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        ioExecutor.shutdown();
+        try {
+            if (!ioExecutor.awaitTermination(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("DoubleLife storage thread did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        drainAll();
     }
 
     public DoubleLifeSession loadSession(UUID playerUuid) {
-        File sessionFile = new File(storageDir, playerUuid + ".json");
-        if (!sessionFile.exists()) {
+        PendingWrite pending = pendingWrites.get(playerUuid);
+        if (pending != null) {
+            // The newest state has not fully reached the disk; serve it from memory rather than
+            // waiting for the I/O thread, which may be on the server thread during a join.
+            return pending.session() != null ? pending.copySession() : null;
+        }
+        File sessionFile = sessionFile(playerUuid);
+        File legacyFile = legacyFile(playerUuid);
+        boolean legacy = !sessionFile.exists();
+        if (legacy && !legacyFile.exists()) {
             return null;
         }
 
+        StorageEvent event = new StorageEvent();
+        event.begin();
+        long started = System.nanoTime();
+        long bytes = 0;
         try {
-            SessionData data;
-            try (Reader reader = Files.newBufferedReader(sessionFile.toPath())) {
-                data = gson.fromJson(reader, SessionData.class);
+            SessionRecord record;
+            if (legacy) {
+                bytes = legacyFile.length();
+                try (Reader reader = Files.newBufferedReader(legacyFile.toPath(), StandardCharsets.UTF_8)) {
+                    record = LegacyJsonCodec.read(reader);
+                }
+            } else {
+                byte[] data = Files.readAllBytes(sessionFile.toPath());
+                bytes = data.length;
+                record = SessionCodec.decode(data);
             }
 
-            DoubleLifeSession session = new DoubleLifeSession(
-                UUID.fromString(data.playerUuid),
-                data.playerName,
-                Instant.ofEpochMilli(data.startTime),
-                data.duration,
-                data.activeProfiles != null ? java.util.Set.of(data.activeProfiles) : java.util.Set.of()
-            );
-
-            session.setSavedInventory(deserializeInventory(data.savedInventory));
-            session.setSavedArmor(deserializeInventory(data.savedArmor));
-            session.setSavedEnderChest(deserializeInventory(data.savedEnderChest));
-            session.setSavedGameMode(data.savedGameMode != null ? GameMode.valueOf(data.savedGameMode) : GameMode.SURVIVAL);
-            session.setSavedLocation(data.savedLocation != null ? data.savedLocation.toLocation() : null);
-            session.setSavedHealth(data.savedHealth);
-            session.setSavedFoodLevel(data.savedFoodLevel);
-            session.setSavedExp(data.savedExp);
-            session.setSavedLevel(data.savedLevel);
-            session.setOriginalGroups(java.util.Arrays.asList(data.originalGroups));
-            session.setTemporaryGroupName(data.temporaryGroupName);
-
-            logger.debug("Loaded DoubleLife session for " + data.playerName);
+            DoubleLifeSession session = toSession(record);
+            readLatency.recordSince(started);
+            commitStorageEvent(event, "load", playerUuid, legacy, bytes, true);
+            if (legacy) {
+                // Rewrite in the binary format; the JSON file is removed once the new file is in place.
+                // Enqueued directly so a prefetch in progress is not invalidated by its own migration.
+                enqueue(playerUuid, PendingWrite.save(session));
+                logger.info("Migrating DoubleLife session of " + record.playerName + " to the binary format");
+            }
+            logger.debug("Loaded DoubleLife session for " + record.playerName);
             return session;
         } catch (Exception e) {
+            commitStorageEvent(event, "load", playerUuid, legacy, bytes, false);
             logger.error("Failed to load DoubleLife session for " + playerUuid + ": " + e.getMessage());
             return null;
         }
     }
 
-    public void deleteSession(UUID playerUuid) {
-        File sessionFile = new File(storageDir, playerUuid + ".json");
-        if (sessionFile.exists()) {
-            sessionFile.delete();
+    private static void commitStorageEvent(StorageEvent event, String operation, UUID playerUuid, boolean legacy,
+                                           long bytes, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.playerUuid = playerUuid.toString();
+            event.format = legacy ? "legacy-json" : "binary";
+            event.bytes = bytes;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    private void indexSessions() {
+        File[] files = storageDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            String id;
+            if (name.endsWith(EXTENSION)) {
+                id = name.substring(0, name.length() - EXTENSION.length());
+            } else if (name.endsWith(LEGACY_EXTENSION)) {
+                id = name.substring(0, name.length() - LEGACY_EXTENSION.length());
+            } else {
+                continue;
+            }
+            try {
+                persistedSessions.add(UUID.fromString(id));
+            } catch (IllegalArgumentException ignored) {
+                // Not a session file.
+            }
+        }
+    }
+
+    private void pruneExpiredPrefetches() {
+        long now = System.nanoTime();
+        Iterator<Prefetch> iterator = prefetched.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void enqueue(UUID playerUuid, PendingWrite write) {
+        if (pendingWrites.put(playerUuid, write) != null) {
+            // A drain for this player is already queued and will pick up the newest state.
+            return;
+        }
+        try {
+            ioExecutor.execute(() -> drain(playerUuid));
+        } catch (RejectedExecutionException e) {
+            drain(playerUuid);
+        }
+    }
+
+    /**
+     * Applies the newest queued write. It stays in {@link #pendingWrites} until it is on disk so
+     * that loads keep seeing it; a newer write queued meanwhile is applied in the next round.
+     */
+    private void drain(UUID playerUuid) {
+        while (true) {
+            PendingWrite write = pendingWrites.get(playerUuid);
+            if (write == null) {
+                return;
+            }
+            if (write.session() == null) {
+                deleteFiles(playerUuid);
+            } else {
+                writeFile(write);
+            }
+            if (pendingWrites.remove(playerUuid, write)) {
+                return;
+            }
+        }
+    }
+
+    private void drainAll() {
+        for (UUID playerUuid : pendingWrites.keySet()) {
+            drain(playerUuid);
+        }
+    }
+
+    private void writeFile(PendingWrite write) {
+        SessionRecord record = write.record();
+        DoubleLifeSession session = write.session();
+        File sessionFile = sessionFile(record.playerUuid);
+        File tempFile = new File(storageDir, record.playerUuid + EXTENSION + ".tmp");
+        StorageEvent event = new StorageEvent();
+        event.begin();
+        long started = System.nanoTime();
+        try {
+            SessionSnapshot snapshot = session.getSnapshot();
+            if (snapshot == null) {
+                record.savedInventory = serializeInventory(session.getSavedInventory());
+                record.savedArmor = serializeInventory(session.getSavedArmor());
+                record.savedEnderChest = serializeInventory(session.getSavedEnderChest());
+                snapshot = SessionCodec.encodeSnapshot(record, compress);
+                session.setSnapshot(snapshot);
+            }
+
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                SessionCodec.write(out, record, snapshot);
+                out.getFD().sync();
+            }
+            long bytes = tempFile.length();
+            moveAtomically(tempFile, sessionFile);
+            writeLatency.recordSince(started);
+            commitStorageEvent(event, "save", record.playerUuid, false, bytes, true);
+            File legacyFile = legacyFile(record.playerUuid);
+            if (legacyFile.exists()) {
+                legacyFile.delete();
+            }
+            logger.debug("Saved DoubleLife session for " + record.playerName + " (" + bytes + " bytes)");
+        } catch (Exception e) {
+            commitStorageEvent(event, "save", record.playerUuid, false, 0, false);
+            tempFile.delete();
+            logger.error("Failed to save DoubleLife session for " + record.playerName + ": " + e.getMessage());
+        }
+    }
+
+    private void deleteFiles(UUID playerUuid) {
+        boolean deleted = sessionFile(playerUuid).delete();
+        deleted |= legacyFile(playerUuid).delete();
+        if (deleted) {
             logger.debug("Deleted DoubleLife session file for " + playerUuid);
         }
     }
 
-    private String[] serializeInventory(ItemStack[] items) {
-        String[] serialized = new String[items.length];
+    private void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private File sessionFile(UUID playerUuid) {
+        return new File(storageDir, playerUuid + EXTENSION);
+    }
+
+    private File legacyFile(UUID playerUuid) {
+        return new File(storageDir, playerUuid + LEGACY_EXTENSION);
+    }
+
+    private DoubleLifeSession toSession(SessionRecord record) {
+        DoubleLifeSession session = new DoubleLifeSession(
+            record.playerUuid,
+            record.playerName,
+            Instant.ofEpochMilli(record.startTime),
+            record.duration,
+            Set.of(record.activeProfiles)
+        );
+
+        session.setSavedInventory(deserializeInventory(record.savedInventory));
+        session.setSavedArmor(deserializeInventory(record.savedArmor));
+        session.setSavedEnderChest(deserializeInventory(record.savedEnderChest));
+        session.setSavedGameMode(record.savedGameMode != null ? GameMode.valueOf(record.savedGameMode) : GameMode.SURVIVAL);
+        session.setSavedLocation(record.worldName != null
+            ? new Location(Bukkit.getWorld(record.worldName), record.x, record.y, record.z, record.yaw, record.pitch)
+            : null);
+        session.setSavedHealth(record.savedHealth);
+        session.setSavedFoodLevel(record.savedFoodLevel);
+        session.setSavedExp(record.savedExp);
+        session.setSavedLevel(record.savedLevel);
+        session.setOriginalGroups(Arrays.asList(record.originalGroups));
+        session.setTemporaryGroupName(record.temporaryGroupName);
+        session.setSnapshot(record.snapshot);
+        return session;
+    }
+
+    private byte[][] serializeInventory(ItemStack[] items) {
+        byte[][] serialized = new byte[items.length][];
         for (int i = 0; i < items.length; i++) {
             serialized[i] = serializeItem(items[i]);
         }
         return serialized;
     }
 
-    private ItemStack[] deserializeInventory(String[] data) {
-        if (data == null) {
-            return new ItemStack[0];
-        }
+    private ItemStack[] deserializeInventory(byte[][] data) {
         ItemStack[] items = new ItemStack[data.length];
         for (int i = 0; i < data.length; i++) {
             items[i] = deserializeItem(data[i]);
@@ -133,25 +396,23 @@ public class InventoryStorage {
         return items;
     }
 
-    private String serializeItem(ItemStack item) {
+    private byte[] serializeItem(ItemStack item) {
         if (item == null) {
             return null;
         }
         try {
-            byte[] bytes = item.serializeAsBytes();
-            return Base64.getEncoder().encodeToString(bytes);
+            return item.serializeAsBytes();
         } catch (Exception e) {
             logger.warn("Failed to serialize item for DoubleLife: " + e.getMessage());
             return null;
         }
     }
 
-    private ItemStack deserializeItem(String base64) {
-        if (base64 == null || base64.isEmpty()) {
+    private ItemStack deserializeItem(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
             return null;
         }
         try {
-            byte[] bytes = Base64.getDecoder().decode(base64);
             return ItemStack.deserializeBytes(bytes);
         } catch (Exception e) {
             logger.warn("Failed to deserialize item for DoubleLife: " + e.getMessage());
@@ -159,56 +420,92 @@ public class InventoryStorage {
         }
     }
 
-    private static class SessionData {
-        String playerUuid;
-        String playerName;
-        long startTime;
-        int duration;
-        String[] activeProfiles;
-        String[] savedInventory;
-        String[] savedArmor;
-        String[] savedEnderChest;
-        String savedGameMode;
-        LocationData savedLocation;
-        double savedHealth;
-        int savedFoodLevel;
-        float savedExp;
-        int savedLevel;
-        String[] originalGroups;
-        String temporaryGroupName;
-    }
-
-    private static class LocationData {
-        String world;
-        double x;
-        double y;
-        double z;
-        float yaw;
-        float pitch;
-
-        static LocationData fromLocation(Location loc) {
-            if (loc == null || loc.getWorld() == null) {
-                return null;
+    private static final class Prefetch {
+        private final long createdAt = System.nanoTime();
+        private volatile boolean done;
+        private DoubleLifeSession session;
+
+        void complete(DoubleLifeSession session) {
+            this.session = session;
+            this.done = true;
+        }
+
+        boolean isUsable() {
+            return done && !isExpired(System.nanoTime());
+        }
+
+        boolean isExpired(long now) {
+            return now - createdAt > PREFETCH_TTL_NANOS;
+        }
+    }
+
+    /**
+     * A queued storage operation. Header fields are captured eagerly because the session keeps
+     * changing on the main thread; the saved items and stats are never mutated after capture and are
+     * encoded into the session's snapshot on the I/O thread the first time it is written.
+     * A {@code null} session marks a delete.
+     */
+    private record PendingWrite(DoubleLifeSession session, SessionRecord record) {
+        static PendingWrite save(DoubleLifeSession session) {
+            SessionRecord record = new SessionRecord();
+            record.playerUuid = session.getPlayerUuid();
+            record.playerName = session.getPlayerName();
+            record.startTime = session.getStartTime().toEpochMilli();
+            record.duration = session.getDuration();
+            record.activeProfiles = session.getActiveProfiles().toArray(new String[0]);
+            record.temporaryGroupName = session.getTemporaryGroupName();
+            if (session.getSnapshot() == null) {
+                captureBody(session, record);
             }
-            LocationData data = new LocationData();
-            data.world = loc.getWorld().getName();
-            data.x = loc.getX();
-            data.y = loc.getY();
-            data.z = loc.getZ();
-            data.yaw = loc.getYaw();
-            data.pitch = loc.getPitch();
-            return data;
-        }
-
-        Location toLocation() {
-            return new Location(
-                Bukkit.getWorld(world),
-                x,
-                y,
-                z,
-                yaw,
-                pitch
+            return new PendingWrite(session, record);
+        }
+
+        static PendingWrite delete() {
+            return new PendingWrite(null, null);
+        }
+
+        /**
+         * A fresh session holding the captured state, as reading the written file back would give.
+         */
+        DoubleLifeSession copySession() {
+            DoubleLifeSession copy = new DoubleLifeSession(
+                record.playerUuid,
+                record.playerName,
+                Instant.ofEpochMilli(record.startTime),
+                record.duration,
+                Set.of(record.activeProfiles)
             );
+            copy.setSavedInventory(session.getSavedInventory().clone());
+            copy.setSavedArmor(session.getSavedArmor().clone());
+            copy.setSavedEnderChest(session.getSavedEnderChest().clone());
+            copy.setSavedGameMode(session.getSavedGameMode());
+            copy.setSavedLocation(session.getSavedLocation() != null ? session.getSavedLocation().clone() : null);
+            copy.setSavedHealth(session.getSavedHealth());
+            copy.setSavedFoodLevel(session.getSavedFoodLevel());
+            copy.setSavedExp(session.getSavedExp());
+            copy.setSavedLevel(session.getSavedLevel());
+            copy.setOriginalGroups(new ArrayList<>(session.getOriginalGroups()));
+            copy.setTemporaryGroupName(record.temporaryGroupName);
+            copy.setSnapshot(session.getSnapshot());
+            return copy;
+        }
+
+        private static void captureBody(DoubleLifeSession session, SessionRecord record) {
+            record.savedGameMode = session.getSavedGameMode().name();
+            Location location = session.getSavedLocation();
+            if (location != null && location.getWorld() != null) {
+                record.worldName = location.getWorld().getName();
+                record.x = location.getX();
+                record.y = location.getY();
+                record.z = location.getZ();
+                record.yaw = location.getYaw();
+                record.pitch = location.getPitch();
+            }
+            record.savedHealth = session.getSavedHealth();
+            record.savedFoodLevel = session.getSavedFoodLevel();
+            record.savedExp = session.getSavedExp();
+            record.savedLevel = session.getSavedLevel();
+            record.originalGroups = session.getOriginalGroups().toArray(new String[0]);
         }
     }
 }
@@ -0,0 +1,89 @@
+package dev.ua.theroer.doublelife.doublelife.storage;
+
+import com.google.gson.Gson;
+
+import java.io.Reader;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Reader for the pretty-printed JSON session files written before the binary format.
+ * Only used to migrate existing files on first load.
+ */
+final class LegacyJsonCodec {
+
+    private static final Gson GSON = new Gson();
+
+    private LegacyJsonCodec() {
+    }
+
+    static SessionRecord read(Reader reader) {
+        SessionData data = GSON.fromJson(reader, SessionData.class);
+        SessionRecord record = new SessionRecord();
+        record.playerUuid = UUID.fromString(data.playerUuid);
+        record.playerName = data.playerName;
+        record.startTime = data.startTime;
+        record.duration = data.duration;
+        record.activeProfiles = data.activeProfiles != null ? data.activeProfiles : new String[0];
+        record.savedInventory = decodeItems(data.savedInventory);
+        record.savedArmor = decodeItems(data.savedArmor);
+        record.savedEnderChest = decodeItems(data.savedEnderChest);
+        record.savedGameMode = data.savedGameMode;
+        if (data.savedLocation != null) {
+            record.worldName = data.savedLocation.world;
+            record.x = data.savedLocation.x;
+            record.y = data.savedLocation.y;
+            record.z = data.savedLocation.z;
+            record.yaw = data.savedLocation.yaw;
+            record.pitch = data.savedLocation.pitch;
+        }
+        record.savedHealth = data.savedHealth;
+        record.savedFoodLevel = data.savedFoodLevel;
+        record.savedExp = data.savedExp;
+        record.savedLevel = data.savedLevel;
+        record.originalGroups = data.originalGroups != null ? data.originalGroups : new String[0];
+        record.temporaryGroupName = data.temporaryGroupName;
+        return record;
+    }
+
+    private static byte[][] decodeItems(String[] data) {
+        if (data == null) {
+            return new byte[0][];
+        }
+        byte[][] items = new byte[data.length][];
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] != null && !data[i].isEmpty()) {
+                items[i] = Base64.getDecoder().decode(data[i]);
+            }
+        }
+        return items;
+    }
+
+    private static class SessionData {
+        String playerUuid;
+        String playerName;
+        long startTime;
+        int duration;
+        String[] activeProfiles;
+        String[] savedInventory;
+        String[] savedArmor;
+        String[] savedEnderChest;
+        String savedGameMode;
+        LocationData savedLocation;
+        double savedHealth;
+        int savedFoodLevel;
+        float savedExp;
+        int savedLevel;
+        String[] originalGroups;
+        String temporaryGroupName;
+    }
+
+    private static class LocationData {
+        String world;
+        double x;
+        double y;
+        double z;
+        float yaw;
+        float pitch;
+    }
+}
@@ -0,0 +1,275 @@
+package dev.ua.theroer.doublelife.doublelife.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Length-prefixed binary encoding for {@link SessionRecord}.
+ *
+ * <pre>
+ * int   magic "DLSF"
+ * byte  format version
+ * byte  flags (bit 0: body is deflated)
+ * ...   header: uuid, name, start time, duration, profiles, temporary group
+ * int   body length
+ * ...   body: saved items, game mode, location, stats, original groups
+ * </pre>
+ *
+ * The header holds the fields that may change while a session runs and is rewritten on every save.
+ * The body is encoded once into a {@link SessionSnapshot} and copied as-is afterwards. Version 1 files
+ * stored everything in one (optionally deflated) stream and can still be read.
+ */
+final class SessionCodec {
+
+    static final int MAGIC = 0x444C5346;
+    static final int VERSION = 2;
+    private static final int VERSION_SINGLE_STREAM = 1;
+    private static final int FLAG_DEFLATE = 1;
+
+    private SessionCodec() {
+    }
+
+    static SessionSnapshot encodeSnapshot(SessionRecord record, boolean compress) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(estimateSize(record));
+        if (compress) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                DataOutputStream body = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 8192));
+                writeBody(body, record);
+                body.close();
+            } finally {
+                deflater.end();
+            }
+        } else {
+            DataOutputStream body = new DataOutputStream(bytes);
+            writeBody(body, record);
+            body.flush();
+        }
+        return new SessionSnapshot(bytes.toByteArray(), compress);
+    }
+
+    static void write(OutputStream out, SessionRecord record, SessionSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeByte(snapshot.deflated() ? FLAG_DEFLATE : 0);
+        writeHeader(header, record);
+        header.writeInt(snapshot.size());
+        header.flush();
+
+        bytes.writeTo(out);
+        out.write(snapshot.body());
+    }
+
+    static SessionRecord decode(byte[] data) throws IOException {
+        ByteArrayInputStream source = new ByteArrayInputStream(data);
+        DataInputStream in = new DataInputStream(source);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a DoubleLife session file");
+        }
+        int version = in.readUnsignedByte();
+        boolean deflated = (in.readUnsignedByte() & FLAG_DEFLATE) != 0;
+
+        if (version == VERSION_SINGLE_STREAM) {
+            try (DataInputStream stream = deflated ? inflating(in) : in) {
+                return readSingleStream(stream);
+            }
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported session format version " + version);
+        }
+
+        SessionRecord record = new SessionRecord();
+        readHeader(in, record);
+        int length = in.readInt();
+        int offset = data.length - source.available();
+        if (length < 0 || offset + length > data.length) {
+            throw new IOException("Truncated session body");
+        }
+        byte[] body = Arrays.copyOfRange(data, offset, offset + length);
+        DataInputStream bodyIn = new DataInputStream(new ByteArrayInputStream(body));
+        try (DataInputStream stream = deflated ? inflating(bodyIn) : bodyIn) {
+            readBody(stream, record);
+        }
+        record.snapshot = new SessionSnapshot(body, deflated);
+        return record;
+    }
+
+    private static SessionRecord readSingleStream(DataInputStream in) throws IOException {
+        SessionRecord record = new SessionRecord();
+        record.playerUuid = new UUID(in.readLong(), in.readLong());
+        record.playerName = readString(in);
+        record.startTime = in.readLong();
+        record.duration = in.readInt();
+        record.activeProfiles = readStrings(in);
+        readBody(in, record);
+        record.temporaryGroupName = readString(in);
+        return record;
+    }
+
+    private static DataInputStream inflating(DataInputStream in) {
+        // The default inflater is released when the stream is closed.
+        return new DataInputStream(new InflaterInputStream(in));
+    }
+
+    private static void writeHeader(DataOutputStream out, SessionRecord record) throws IOException {
+        out.writeLong(record.playerUuid.getMostSignificantBits());
+        out.writeLong(record.playerUuid.getLeastSignificantBits());
+        writeString(out, record.playerName);
+        out.writeLong(record.startTime);
+        out.writeInt(record.duration);
+        writeStrings(out, record.activeProfiles);
+        writeString(out, record.temporaryGroupName);
+    }
+
+    private static void readHeader(DataInputStream in, SessionRecord record) throws IOException {
+        record.playerUuid = new UUID(in.readLong(), in.readLong());
+        record.playerName = readString(in);
+        record.startTime = in.readLong();
+        record.duration = in.readInt();
+        record.activeProfiles = readStrings(in);
+        record.temporaryGroupName = readString(in);
+    }
+
+    private static void writeBody(DataOutputStream out, SessionRecord record) throws IOException {
+        writeItems(out, record.savedInventory);
+        writeItems(out, record.savedArmor);
+        writeItems(out, record.savedEnderChest);
+        writeString(out, record.savedGameMode);
+
+        writeString(out, record.worldName);
+        if (record.worldName != null) {
+            out.writeDouble(record.x);
+            out.writeDouble(record.y);
+            out.writeDouble(record.z);
+            out.writeFloat(record.yaw);
+            out.writeFloat(record.pitch);
+        }
+
+        out.writeDouble(record.savedHealth);
+        out.writeInt(record.savedFoodLevel);
+        out.writeFloat(record.savedExp);
+        out.writeInt(record.savedLevel);
+        writeStrings(out, record.originalGroups);
+    }
+
+    private static void readBody(DataInputStream in, SessionRecord record) throws IOException {
+        record.savedInventory = readItems(in);
+        record.savedArmor = readItems(in);
+        record.savedEnderChest = readItems(in);
+        record.savedGameMode = readString(in);
+
+        record.worldName = readString(in);
+        if (record.worldName != null) {
+            record.x = in.readDouble();
+            record.y = in.readDouble();
+            record.z = in.readDouble();
+            record.yaw = in.readFloat();
+            record.pitch = in.readFloat();
+        }
+
+        record.savedHealth = in.readDouble();
+        record.savedFoodLevel = in.readInt();
+        record.savedExp = in.readFloat();
+        record.savedLevel = in.readInt();
+        record.originalGroups = readStrings(in);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        if (values == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(values.length);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        int count = readLength(in);
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = readString(in);
+        }
+        return values;
+    }
+
+    private static void writeItems(DataOutputStream out, byte[][] items) throws IOException {
+        if (items == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(items.length);
+        for (byte[] item : items) {
+            if (item == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(item.length);
+                out.write(item);
+            }
+        }
+    }
+
+    private static byte[][] readItems(DataInputStream in) throws IOException {
+        int count = readLength(in);
+        byte[][] items = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            int length = in.readInt();
+            if (length >= 0) {
+                items[i] = in.readNBytes(length);
+                if (items[i].length != length) {
+                    throw new IOException("Truncated item payload");
+                }
+            }
+        }
+        return items;
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 0xFFFF) {
+            throw new IOException("Corrupt session file: invalid length " + length);
+        }
+        return length;
+    }
+
+    private static int estimateSize(SessionRecord record) {
+        int size = 128;
+        size += itemsSize(record.savedInventory);
+        size += itemsSize(record.savedArmor);
+        size += itemsSize(record.savedEnderChest);
+        return size;
+    }
+
+    private static int itemsSize(byte[][] items) {
+        int size = 4;
+        if (items != null) {
+            for (byte[] item : items) {
+                size += 4 + (item != null ? item.length : 0);
+            }
+        }
+        return size;
+    }
+}
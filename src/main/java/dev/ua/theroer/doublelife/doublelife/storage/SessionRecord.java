@@ -0,0 +1,38 @@
+package dev.ua.theroer.doublelife.doublelife.storage;
+
+import java.util.UUID;
+
+/**
+ * Bukkit-free representation of a persisted session. Items are kept as the raw
+ * {@code ItemStack#serializeAsBytes()} payloads; {@code null} entries are empty slots.
+ */
+final class SessionRecord {
+    UUID playerUuid;
+    String playerName;
+    long startTime;
+    int duration;
+    String[] activeProfiles = new String[0];
+
+    byte[][] savedInventory = new byte[0][];
+    byte[][] savedArmor = new byte[0][];
+    byte[][] savedEnderChest = new byte[0][];
+    String savedGameMode;
+
+    // A null world means no saved location.
+    String worldName;
+    double x;
+    double y;
+    double z;
+    float yaw;
+    float pitch;
+
+    double savedHealth;
+    int savedFoodLevel;
+    float savedExp;
+    int savedLevel;
+    String[] originalGroups = new String[0];
+    String temporaryGroupName;
+
+    // Encoded body as read from disk; lets a restored session be saved again without re-encoding.
+    SessionSnapshot snapshot;
+}
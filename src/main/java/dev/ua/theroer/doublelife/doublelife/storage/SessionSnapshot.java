@@ -0,0 +1,29 @@
+package dev.ua.theroer.doublelife.doublelife.storage;
+
+/**
+ * Encoded form of the part of a session that never changes after it starts: the saved
+ * inventories, location and player stats. Produced once by the storage thread and written
+ * verbatim on every later save.
+ */
+public final class SessionSnapshot {
+
+    private final byte[] body;
+    private final boolean deflated;
+
+    SessionSnapshot(byte[] body, boolean deflated) {
+        this.body = body;
+        this.deflated = deflated;
+    }
+
+    byte[] body() {
+        return body;
+    }
+
+    boolean deflated() {
+        return deflated;
+    }
+
+    public int size() {
+        return body.length;
+    }
+}
@@ -0,0 +1,157 @@
+package dev.ua.theroer.doublelife.doublelife.webhook;
+
+import dev.ua.theroer.doublelife.doublelife.ActionEvent;
+import dev.ua.theroer.doublelife.doublelife.ActionType;
+import org.bukkit.entity.EntityType;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collapses a batch of actions into summary lines. Repeated actions of the same type, subject and
+ * world become one line with a count and the bounding box they covered, e.g.
+ * {@code BlockPlace: STONE ×64 in world:10,60,10–20,64,30}; attacks on the same entity type become
+ * a count and total damage. Commands, game mode changes, teleports and attacks on players are
+ * always kept verbatim. Lines keep the order of the first action they contain.
+ * <p>
+ * Used only from the aggregator thread.
+ */
+final class ActionAggregator {
+
+    private static final Set<ActionType> NEVER_MERGED = EnumSet.of(ActionType.COMMAND, ActionType.GAME_MODE, ActionType.TELEPORT);
+
+    private List<String> configuredTypes;
+    private Set<ActionType> mergedTypes = EnumSet.noneOf(ActionType.class);
+
+    /**
+     * Renders {@code actions} into log lines, merging the types named in {@code configured}.
+     */
+    List<String> summarize(List<ActionEvent> actions, List<String> configured) {
+        Set<ActionType> merged = mergedTypes(configured);
+        List<Object> entries = new ArrayList<>(actions.size());
+        Map<Key, Group> groups = new HashMap<>();
+        for (ActionEvent action : actions) {
+            if (!isMergeable(action, merged)) {
+                entries.add(action);
+                continue;
+            }
+            Key key = new Key(action.type(), action.subject(), action.detail(), action.world());
+            Group group = groups.get(key);
+            if (group == null) {
+                group = new Group(action);
+                groups.put(key, group);
+                entries.add(group);
+            } else {
+                group.add(action);
+            }
+        }
+
+        List<String> lines = new ArrayList<>(entries.size());
+        StringBuilder line = new StringBuilder(64);
+        for (Object entry : entries) {
+            line.setLength(0);
+            if (entry instanceof Group group) {
+                group.render(line);
+            } else {
+                ((ActionEvent) entry).render(line);
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    private static boolean isMergeable(ActionEvent action, Set<ActionType> merged) {
+        if (!merged.contains(action.type())) {
+            return false;
+        }
+        return action.type() != ActionType.ATTACK || action.subject() != EntityType.PLAYER;
+    }
+
+    private Set<ActionType> mergedTypes(List<String> configured) {
+        if (configured != configuredTypes) {
+            Set<ActionType> types = EnumSet.noneOf(ActionType.class);
+            if (configured != null) {
+                for (String name : configured) {
+                    try {
+                        types.add(ActionType.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                    } catch (IllegalArgumentException ignored) {
+                        // Unknown names are ignored, like unknown boss bar colors.
+                    }
+                }
+            }
+            types.removeAll(NEVER_MERGED);
+            mergedTypes = types;
+            configuredTypes = configured;
+        }
+        return mergedTypes;
+    }
+
+    private record Key(ActionType type, Enum<?> subject, Enum<?> detail, String world) {
+    }
+
+    private static final class Group {
+        private final ActionEvent first;
+        private int count = 1;
+        private int minX;
+        private int minY;
+        private int minZ;
+        private int maxX;
+        private int maxY;
+        private int maxZ;
+        private double amount;
+
+        private Group(ActionEvent first) {
+            this.first = first;
+            this.minX = this.maxX = first.x();
+            this.minY = this.maxY = first.y();
+            this.minZ = this.maxZ = first.z();
+            this.amount = first.amount();
+        }
+
+        void add(ActionEvent action) {
+            count++;
+            amount += action.amount();
+            int x = action.x();
+            int y = action.y();
+            int z = action.z();
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+
+        void render(StringBuilder out) {
+            if (count == 1) {
+                first.render(out);
+                return;
+            }
+            out.append(first.type().getLabel()).append(": ");
+            if (first.detail() != null) {
+                out.append(first.detail().name()).append(' ');
+            }
+            out.append(first.subject().name()).append(" ×").append(count);
+            if (first.type() == ActionType.ATTACK) {
+                out.append(" (").append(Math.round(amount * 100.0) / 100.0).append(" damage)");
+                return;
+            }
+            if (first.world() == null) {
+                return;
+            }
+            if (minX == maxX && minY == maxY && minZ == maxZ) {
+                out.append(" at ").append(first.world()).append(':')
+                    .append(minX).append(',').append(minY).append(',').append(minZ);
+                return;
+            }
+            out.append(" in ").append(first.world()).append(':')
+                .append(minX).append(',').append(minY).append(',').append(minZ).append('–')
+                .append(maxX).append(',').append(maxY).append(',').append(maxZ);
+        }
+    }
+}
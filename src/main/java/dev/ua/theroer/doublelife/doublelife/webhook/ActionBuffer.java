@@ -0,0 +1,77 @@
+package dev.ua.theroer.doublelife.doublelife.webhook;
+
+import dev.ua.theroer.doublelife.doublelife.ActionEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pending actions of one player. Any thread may {@link #add} without blocking; only the
+ * aggregator thread drains. At most one window timer and one immediate flush are armed at a time,
+ * so scheduling cost does not grow with the number of actions.
+ */
+final class ActionBuffer {
+
+    private final UUID playerUuid;
+    private final Queue<ActionEvent> actions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean timerArmed = new AtomicBoolean();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile String playerName;
+
+    ActionBuffer(UUID playerUuid) {
+        this.playerUuid = playerUuid;
+    }
+
+    UUID playerUuid() {
+        return playerUuid;
+    }
+
+    String playerName() {
+        return playerName;
+    }
+
+    /**
+     * Appends an action and returns the number of actions now pending.
+     */
+    int add(String playerName, ActionEvent action) {
+        this.playerName = playerName;
+        actions.offer(action);
+        return size.incrementAndGet();
+    }
+
+    /**
+     * Claims the window timer; true when the caller should schedule it.
+     */
+    boolean armTimer() {
+        return timerArmed.compareAndSet(false, true);
+    }
+
+    /**
+     * Claims the immediate flush; true when the caller should submit it.
+     */
+    boolean requestFlush() {
+        return flushRequested.compareAndSet(false, true);
+    }
+
+    /**
+     * Releases both claims and removes up to {@code max} actions. Claims are released before
+     * draining, so an action added concurrently either lands in this drain or arms a new timer.
+     */
+    List<ActionEvent> drain(int max) {
+        timerArmed.set(false);
+        flushRequested.set(false);
+        List<ActionEvent> drained = new ArrayList<>(Math.min(max, Math.max(size.get(), 0)));
+        ActionEvent action;
+        while (drained.size() < max && (action = actions.poll()) != null) {
+            drained.add(action);
+        }
+        size.addAndGet(-drained.size());
+        return drained;
+    }
+}
@@ -0,0 +1,103 @@
+package dev.ua.theroer.doublelife.doublelife.webhook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Packs outbox messages into as few webhook requests as Discord's limits allow: at most
+ * {@value #MAX_EMBEDS} embeds and {@value #MAX_TOTAL_CHARS} characters per request, at most
+ * {@value #MAX_DESCRIPTION} characters per embed description. Oversized messages are split across
+ * several embeds on line boundaries instead of being truncated. Every embed remembers the outbox
+ * message it came from, so a failed request can be traced back to the messages it carried.
+ */
+final class EmbedPacker {
+
+    static final int MAX_EMBEDS = 10;
+    static final int MAX_TOTAL_CHARS = 6000;
+    static final int MAX_DESCRIPTION = 4096;
+    static final String FOOTER = "DoubleLife Plugin";
+
+    private static final String FENCE = "```";
+
+    record Embed(long messageId, String description, int color, UUID playerUuid) {
+    }
+
+    private EmbedPacker() {
+    }
+
+    /**
+     * Returns the embeds of each request, in message order.
+     */
+    static List<List<Embed>> pack(List<WebhookOutbox.Message> messages) {
+        List<List<Embed>> requests = new ArrayList<>();
+        List<Embed> current = new ArrayList<>(MAX_EMBEDS);
+        int chars = 0;
+        for (WebhookOutbox.Message message : messages) {
+            for (String part : split(message.content(), MAX_DESCRIPTION)) {
+                int cost = part.length() + FOOTER.length();
+                if (current.size() == MAX_EMBEDS || chars + cost > MAX_TOTAL_CHARS) {
+                    requests.add(current);
+                    current = new ArrayList<>(MAX_EMBEDS);
+                    chars = 0;
+                }
+                current.add(new Embed(message.id(), part, message.color(), message.playerUuid()));
+                chars += cost;
+            }
+        }
+        if (!current.isEmpty()) {
+            requests.add(current);
+        }
+        return requests;
+    }
+
+    /**
+     * Splits {@code content} into chunks of at most {@code limit} characters, preferring line
+     * breaks. A surrounding code block is closed and reopened in every chunk so each embed still
+     * renders on its own.
+     */
+    static List<String> split(String content, int limit) {
+        if (content.length() <= limit) {
+            return List.of(content);
+        }
+
+        String open = "";
+        String close = "";
+        String body = content;
+        int headerEnd = content.indexOf('\n');
+        if (content.startsWith(FENCE) && content.endsWith(FENCE) && headerEnd > 0
+            && headerEnd + 1 <= content.length() - FENCE.length()) {
+            open = content.substring(0, headerEnd + 1);
+            close = "\n" + FENCE;
+            body = stripTrailingNewline(content.substring(headerEnd + 1, content.length() - FENCE.length()));
+        }
+        int room = limit - open.length() - close.length();
+        if (room <= 0) {
+            open = "";
+            close = "";
+            body = content;
+            room = limit;
+        }
+
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        while (start < body.length()) {
+            int end = Math.min(body.length(), start + room);
+            if (end < body.length()) {
+                int newline = body.lastIndexOf('\n', end - 1);
+                if (newline > start) {
+                    end = newline + 1;
+                } else if (Character.isHighSurrogate(body.charAt(end - 1))) {
+                    end--;
+                }
+            }
+            parts.add(open + stripTrailingNewline(body.substring(start, end)) + close);
+            start = end;
+        }
+        return parts;
+    }
+
+    private static String stripTrailingNewline(String value) {
+        return value.endsWith("\n") ? value.substring(0, value.length() - 1) : value;
+    }
+}
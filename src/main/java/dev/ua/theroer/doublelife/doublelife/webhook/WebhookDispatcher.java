@@ -0,0 +1,312 @@
+package dev.ua.theroer.doublelife.doublelife.webhook;
+
+import dev.ua.theroer.doublelife.jfr.WebhookRateLimitEvent;
+import dev.ua.theroer.doublelife.jfr.WebhookRequestEvent;
+import dev.ua.theroer.doublelife.metrics.Histogram;
+import dev.ua.theroer.magicutils.Logger;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends webhook requests in order per route while staying inside Discord's rate limits. Requests
+ * wait in a queue until {@link WebhookRateLimiter} has a token for their bucket; a 429 that still
+ * slips through puts the request back at the head of its queue until the reported reset.
+ * <p>
+ * Requests go out with {@link HttpClient#sendAsync} on a small dedicated executor, so a slow
+ * Discord response holds no thread and nothing runs on the common pool. At most
+ * {@value #MAX_IN_FLIGHT} requests are in flight and {@value #MAX_QUEUED} queued; submissions past
+ * that fail fast and are counted as rejected, leaving the caller (the outbox) to retry later.
+ * <p>
+ * All queue and limiter state is confined to the single dispatcher thread.
+ */
+final class WebhookDispatcher {
+
+    private static final int MAX_RATE_LIMITED_ATTEMPTS = 5;
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final int MAX_QUEUED = 512;
+    private static final int HTTP_THREADS = 2;
+    private static final long SHUTDOWN_POLL_MILLIS = 50L;
+
+    private final Logger logger;
+    private final Histogram requestLatency;
+    private final WebhookRateLimiter rateLimiter = new WebhookRateLimiter();
+    private final Map<String, Deque<PendingRequest>> queues = new LinkedHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "doublelife-webhook-dispatcher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService httpExecutor = Executors.newFixedThreadPool(HTTP_THREADS, r -> {
+        Thread t = new Thread(r, "doublelife-webhook-http");
+        t.setDaemon(true);
+        return t;
+    });
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .executor(httpExecutor)
+        .build();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private int inFlight;
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAt;
+
+    WebhookDispatcher(Logger logger, Histogram requestLatency) {
+        this.logger = logger;
+        this.requestLatency = requestLatency;
+    }
+
+    /**
+     * Queues a request. The future completes with the first response that is not a 429, or
+     * exceptionally when the request could not be sent or the queue is full.
+     */
+    CompletableFuture<HttpResponse<String>> submit(String method, URI uri, String route, String body) {
+        PendingRequest request = new PendingRequest(method, uri, route, body);
+        if (queued.incrementAndGet() > MAX_QUEUED) {
+            queued.decrementAndGet();
+            rejected.increment();
+            request.future.completeExceptionally(new RejectedExecutionException("Webhook queue is full"));
+            return request.future;
+        }
+        try {
+            executor.execute(() -> {
+                queues.computeIfAbsent(route, key -> new ArrayDeque<>()).addLast(request);
+                pump();
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            request.future.completeExceptionally(e);
+        }
+        return request.future;
+    }
+
+    /**
+     * Requests turned away because the queue was full.
+     */
+    long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * Keeps draining the queues for up to {@code timeout}, then stops the dispatcher, closes the
+     * HTTP client and stops its threads. Requests still waiting on a rate limit at that point are
+     * abandoned; requests still in flight are cancelled.
+     */
+    void shutdown(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean drained = false;
+        try {
+            while (System.nanoTime() < deadline) {
+                if (executor.submit(() -> queues.isEmpty() && inFlight == 0).get(timeout, unit)) {
+                    drained = true;
+                    break;
+                }
+                Thread.sleep(SHUTDOWN_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Failed to drain Discord webhook queue: " + e.getMessage());
+        }
+        executor.shutdownNow();
+        // close() waits for exchanges still in flight, so only use it once nothing is left.
+        if (drained) {
+            httpClient.close();
+        } else {
+            httpClient.shutdownNow();
+        }
+        httpExecutor.shutdown();
+        try {
+            if (!httpExecutor.awaitTermination(SHUTDOWN_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                httpExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            httpExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void pump() {
+        long now = System.currentTimeMillis();
+        long nextDelay = Long.MAX_VALUE;
+        Iterator<Map.Entry<String, Deque<PendingRequest>>> iterator = queues.entrySet().iterator();
+        while (iterator.hasNext() && inFlight < MAX_IN_FLIGHT) {
+            Map.Entry<String, Deque<PendingRequest>> entry = iterator.next();
+            String route = entry.getKey();
+            Deque<PendingRequest> queue = entry.getValue();
+            while (!queue.isEmpty() && inFlight < MAX_IN_FLIGHT) {
+                long delay = rateLimiter.delayFor(route, now);
+                if (delay > 0) {
+                    nextDelay = Math.min(nextDelay, delay);
+                    break;
+                }
+                PendingRequest request = queue.pollFirst();
+                queued.decrementAndGet();
+                rateLimiter.acquire(route, now);
+                send(request);
+            }
+            if (queue.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        if (nextDelay != Long.MAX_VALUE) {
+            scheduleWakeup(nextDelay);
+        }
+    }
+
+    private void send(PendingRequest request) {
+        HttpRequest httpRequest;
+        try {
+            httpRequest = HttpRequest.newBuilder()
+                .uri(request.uri)
+                .timeout(Duration.ofSeconds(5))
+                .header("Content-Type", "application/json")
+                .header("User-Agent", "DoubleLife/1.0")
+                .method(request.method, HttpRequest.BodyPublishers.ofString(request.body, StandardCharsets.UTF_8))
+                .build();
+        } catch (RuntimeException e) {
+            rateLimiter.release(request.route);
+            request.future.completeExceptionally(e);
+            return;
+        }
+
+        inFlight++;
+        WebhookRequestEvent event = new WebhookRequestEvent();
+        event.begin();
+        long sentAt = System.nanoTime();
+        request.queuedNanos = sentAt - request.enqueuedAt;
+        httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
+            .whenComplete((response, error) -> {
+                requestLatency.recordSince(sentAt);
+                try {
+                    executor.execute(() -> onResponse(request, response, error, event));
+                } catch (RejectedExecutionException e) {
+                    request.future.completeExceptionally(e);
+                }
+            });
+    }
+
+    private void onResponse(PendingRequest request, HttpResponse<String> response, Throwable error,
+                            WebhookRequestEvent event) {
+        inFlight--;
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = request.method;
+            event.route = request.route;
+            event.status = response != null ? response.statusCode() : -1;
+            event.attempt = request.attempts + 1;
+            event.queued = request.queuedNanos;
+            event.requestBytes = request.body.getBytes(StandardCharsets.UTF_8).length;
+            event.responseBytes = response != null && response.body() != null
+                ? response.body().getBytes(StandardCharsets.UTF_8).length
+                : 0;
+            event.commit();
+        }
+        if (error != null) {
+            rateLimiter.release(request.route);
+            request.future.completeExceptionally(error);
+            pump();
+            return;
+        }
+
+        int code = response.statusCode();
+        long now = System.currentTimeMillis();
+        rateLimiter.update(request.route, code, response.headers(), now);
+        if (code == 429) {
+            boolean retry = ++request.attempts < MAX_RATE_LIMITED_ATTEMPTS;
+            recordRateLimit(request, now, !retry);
+            if (retry) {
+                logger.debug("Discord webhook rate limited on " + request.route + "; retrying after reset");
+                request.enqueuedAt = System.nanoTime();
+                queues.computeIfAbsent(request.route, key -> new ArrayDeque<>()).addFirst(request);
+                queued.incrementAndGet();
+                pump();
+                return;
+            }
+        }
+        request.future.complete(response);
+        pump();
+    }
+
+    private void recordRateLimit(PendingRequest request, long now, boolean gaveUp) {
+        WebhookRateLimitEvent event = new WebhookRateLimitEvent();
+        if (event.shouldCommit()) {
+            event.route = request.route;
+            event.retryAfter = rateLimiter.delayFor(request.route, now);
+            event.attempt = request.attempts;
+            event.gaveUp = gaveUp;
+            event.commit();
+        }
+    }
+
+    private void scheduleWakeup(long delayMillis) {
+        long at = System.currentTimeMillis() + delayMillis;
+        if (wakeup != null && !wakeup.isDone()) {
+            if (wakeupAt <= at) {
+                return;
+            }
+            wakeup.cancel(false);
+        }
+        wakeupAt = at;
+        try {
+            wakeup = executor.schedule(() -> {
+                // Still running while pump() runs; clear it so a further delay can re-arm the wakeup.
+                wakeup = null;
+                pump();
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            failAll(e);
+        }
+    }
+
+    private void failAll(Exception cause) {
+        for (Deque<PendingRequest> queue : queues.values()) {
+            for (PendingRequest request : queue) {
+                request.future.completeExceptionally(cause);
+            }
+        }
+        queues.clear();
+        queued.set(0);
+    }
+
+    private static final class PendingRequest {
+        private final String method;
+        private final URI uri;
+        private final String route;
+        private final String body;
+        private final CompletableFuture<HttpResponse<String>> future = new CompletableFuture<>();
+        private int attempts;
+        private long enqueuedAt = System.nanoTime();
+        private long queuedNanos;
+
+        private PendingRequest(String method, URI uri, String route, String body) {
+            this.method = method;
+            this.uri = uri;
+            this.route = route;
+            this.body = body;
+        }
+    }
+}
@@ -4,48 +4,70 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import dev.ua.theroer.doublelife.config.WebhookSettings;
+import dev.ua.theroer.doublelife.doublelife.ActionEvent;
+import dev.ua.theroer.doublelife.metrics.Counter;
+import dev.ua.theroer.doublelife.metrics.MetricsRegistry;
 import dev.ua.theroer.magicutils.Logger;
 
+import java.io.File;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
+import java.net.URISyntaxException;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class WebhookManager {
 
+    private static final long SHUTDOWN_DRAIN_SECONDS = 3L;
+    private static final long SHUTDOWN_FLUSH_SECONDS = 1L;
+
     private final WebhookSettings settings;
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
         .withZone(ZoneId.systemDefault());
-    private final HttpClient httpClient = HttpClient.newBuilder()
-        .connectTimeout(Duration.ofSeconds(5))
-        .build();
     private final ScheduledExecutorService aggregator = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread t = new Thread(r, "doublelife-webhook-aggregator");
         t.setDaemon(true);
         return t;
     });
-    private final Map<UUID, List<String>> pendingActions = new ConcurrentHashMap<>();
-    private final Map<UUID, String> pendingNames = new ConcurrentHashMap<>();
+    private final Map<UUID, ActionBuffer> actionBuffers = new ConcurrentHashMap<>();
+    private final ActionAggregator actionAggregator = new ActionAggregator();
     private final Map<UUID, String> lastActionMessageId = new ConcurrentHashMap<>();
+    private final WebhookDispatcher dispatcher;
+    private final WebhookOutbox outbox;
+    private final Counter acknowledgedBatches;
+    private final Counter retriedBatches;
     private final Logger logger;
 
-    public WebhookManager(Logger logger, WebhookSettings settings) {
+    public WebhookManager(Logger logger, WebhookSettings settings, File outboxDirectory, MetricsRegistry metrics) {
         this.settings = settings;
         this.logger = logger;
+        this.dispatcher = new WebhookDispatcher(logger,
+            metrics.histogram("doublelife_webhook_request_seconds", "Discord webhook HTTP round trip time"));
+        this.acknowledgedBatches = metrics.counter("doublelife_webhook_batches",
+            "Outbox batches handed to Discord by result", "result", "acknowledged");
+        this.retriedBatches = metrics.counter("doublelife_webhook_batches",
+            "Outbox batches handed to Discord by result", "result", "retry");
+        metrics.gauge("doublelife_webhook_queued_requests",
+            "Webhook requests waiting for a rate limit token", this::getQueuedRequestCount);
+        metrics.counter("doublelife_webhook_rejected_requests",
+            "Webhook requests rejected because the dispatcher queue was full", this::getRejectedRequestCount);
+        metrics.counter("doublelife_webhook_dropped_messages",
+            "Action log messages dropped because the outbox was full", this::getDroppedMessageCount);
+        this.outbox = new WebhookOutbox(outboxDirectory, logger, this::deliver,
+            message -> settings.isPackEmbeds(), () -> Math.max(0, settings.getPackLingerMillis()));
+        this.outbox.start(canSend());
     }
 
     public void sendStartNotification(String playerName, UUID playerUuid, String profiles, String duration) {
@@ -75,23 +97,57 @@ public class WebhookManager {
         sendWebhook(message, 0xFF0000, playerUuid);
     }
 
-    public void sendActionLog(String playerName, UUID playerUuid, String action, String details) {
-        if (!settings.isEnabled() || !settings.isActionLog() || settings.getUrl() == null || settings.getUrl().isEmpty()) {
+    public boolean isActionLogEnabled() {
+        return settings.isActionLog() && canSend();
+    }
+
+    /**
+     * Buffers an action for the player's next batch. Only a few field writes happen on the calling
+     * thread; the text is rendered when the batch is flushed.
+     */
+    public void sendActionLog(String playerName, UUID playerUuid, ActionEvent action) {
+        if (!isActionLogEnabled()) {
             return;
         }
 
-        pendingNames.put(playerUuid, playerName);
-        pendingActions.computeIfAbsent(playerUuid, k -> new ArrayList<>())
-            .add(action + ": " + details);
+        ActionBuffer buffer = actionBuffers.computeIfAbsent(playerUuid, ActionBuffer::new);
+        int pending = buffer.add(playerName, action);
 
-        int maxEntries = Math.max(1, settings.getActionBatchMaxEntries());
-        if (pendingActions.get(playerUuid).size() >= maxEntries) {
-            aggregator.execute(() -> flushActions(playerUuid));
+        if (pending >= flushThreshold()) {
+            if (buffer.requestFlush()) {
+                aggregator.execute(() -> flushActions(buffer));
+            }
+        } else if (buffer.armTimer()) {
+            int delay = Math.max(1, settings.getActionBatchWindowSeconds());
+            aggregator.schedule(() -> flushActions(buffer), delay, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Flushes the player's pending actions and forgets their buffer; called when their session ends
+     * or they leave. An action logged concurrently still reaches the flush or arms a timer on the
+     * released buffer, and a later one simply starts a new buffer.
+     */
+    public void releaseActions(UUID playerUuid) {
+        ActionBuffer buffer = actionBuffers.remove(playerUuid);
+        if (buffer == null) {
             return;
         }
+        try {
+            aggregator.execute(() -> flushActions(buffer));
+        } catch (RejectedExecutionException ignored) {
+            // Shutting down; the shutdown flush already ran.
+        }
+    }
 
-        int delay = Math.max(1, settings.getActionBatchWindowSeconds());
-        aggregator.schedule(() -> flushActions(playerUuid), delay, TimeUnit.SECONDS);
+    /**
+     * Operational warning, e.g. a tick budget alert. Sent as a notice, never merged with actions.
+     */
+    public void sendAlert(String content) {
+        if (!canSend()) {
+            return;
+        }
+        sendWebhook("**DoubleLife alert**\n" + content, 0xFFA500, null);
     }
 
     public void sendSimple(String content, int color) {
@@ -99,13 +155,47 @@ public class WebhookManager {
     }
 
     private void sendWebhook(String content, int color, UUID playerUuid) {
-        CompletableFuture.runAsync(() -> {
-            SendOutcome outcome = postWebhook(settings.getUrl(), content, color, playerUuid, false);
-            if (outcome.rateLimited()) {
-                logger.warn("Discord webhook is rate limited; message was dropped");
-            } else if (!outcome.success()) {
-                logger.warn("Discord webhook returned non-success status");
+        outbox.enqueue(WebhookOutbox.Kind.NOTICE, playerUuid, content, color);
+    }
+
+    private boolean canSend() {
+        return settings.isEnabled() && settings.getUrl() != null && !settings.getUrl().isEmpty();
+    }
+
+    /**
+     * Sends a batch of outbox messages, packed into as few requests as Discord's embed limits
+     * allow. Action messages keep editing the player's last message when edit mode is on and
+     * packing is off. Messages carried by a request Discord may accept on a later attempt are
+     * reported for retry; the rest of the batch is acknowledged, so requests that went through are
+     * not sent twice. A message split across several requests is retried if any of them failed.
+     */
+    private CompletableFuture<WebhookOutbox.Delivery> deliver(List<WebhookOutbox.Message> batch) {
+        if (!canSend()) {
+            return CompletableFuture.completedFuture(WebhookOutbox.Delivery.ACKNOWLEDGED);
+        }
+        List<List<EmbedPacker.Embed>> requests = EmbedPacker.pack(batch);
+        WebhookOutbox.Message first = batch.get(0);
+        boolean edit = batch.size() == 1 && requests.size() == 1
+            && first.kind() == WebhookOutbox.Kind.ACTION
+            && settings.isActionBatchEdit() && !settings.isPackEmbeds();
+
+        List<CompletableFuture<SendOutcome>> sends = new ArrayList<>(requests.size());
+        if (edit) {
+            sends.add(sendOrEditAction(first.playerUuid(), requests.get(0)));
+        } else {
+            for (List<EmbedPacker.Embed> embeds : requests) {
+                sends.add(postWebhook(embeds, false));
+            }
+        }
+        return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            Set<Long> retryIds = new HashSet<>();
+            for (int i = 0; i < sends.size(); i++) {
+                if (sends.get(i).join().retryable()) {
+                    requests.get(i).forEach(embed -> retryIds.add(embed.messageId()));
+                }
             }
+            (retryIds.isEmpty() ? acknowledgedBatches : retriedBatches).increment();
+            return retryIds.isEmpty() ? WebhookOutbox.Delivery.ACKNOWLEDGED : new WebhookOutbox.Delivery(retryIds);
         });
     }
 
@@ -119,167 +209,231 @@ public class WebhookManager {
         return template.replace("\\n", "\n");
     }
 
-    private void flushActions(UUID playerUuid) {
-        List<String> lines = pendingActions.remove(playerUuid);
-        if (lines == null || lines.isEmpty()) {
-            return;
+    /**
+     * Buffered actions that trigger an early flush. With aggregation on, a burst of repeated actions
+     * collapses into a few lines, so far more of them may wait for the window to end.
+     */
+    private int flushThreshold() {
+        int maxEntries = Math.max(1, settings.getActionBatchMaxEntries());
+        return settings.isActionAggregation()
+            ? Math.max(maxEntries, settings.getActionAggregationMaxBuffered())
+            : maxEntries;
+    }
+
+    private void flushActions(ActionBuffer buffer) {
+        int maxEntries = Math.max(1, settings.getActionBatchMaxEntries());
+        boolean aggregate = settings.isActionAggregation();
+        StringBuilder details = new StringBuilder();
+        List<ActionEvent> actions;
+        while (!(actions = buffer.drain(aggregate ? flushThreshold() : maxEntries)).isEmpty()) {
+            List<String> lines;
+            if (aggregate) {
+                lines = actionAggregator.summarize(actions, settings.getActionAggregationTypes());
+            } else {
+                lines = new ArrayList<>(actions.size());
+                for (ActionEvent action : actions) {
+                    details.setLength(0);
+                    lines.add(action.render(details).toString());
+                }
+            }
+            for (int from = 0; from < lines.size(); from += maxEntries) {
+                List<String> chunk = lines.subList(from, Math.min(lines.size(), from + maxEntries));
+                enqueueActionMessage(buffer, String.join("\n", chunk));
+            }
         }
-        String playerName = pendingNames.getOrDefault(playerUuid, "Unknown");
-        String joinedDetails = String.join("\n", lines);
+    }
+
+    private void enqueueActionMessage(ActionBuffer buffer, String joinedDetails) {
+        String playerName = buffer.playerName() != null ? buffer.playerName() : "Unknown";
         String message = format(settings.getActionMessage())
             .replace("{player}", playerName)
             .replace("{action}", "Actions")
             .replace("{details}", joinedDetails)
             .replace("{time}", TIME_FORMAT.format(Instant.now()));
-        sendOrEditAction(playerUuid, lines, message, 0xFFFF00);
+        outbox.enqueue(WebhookOutbox.Kind.ACTION, buffer.playerUuid(), message, 0xFFFF00);
     }
 
-    public void shutdown() {
-        aggregator.shutdownNow();
+    /**
+     * Webhook requests turned away because the dispatcher queue was full; the outbox retries them.
+     */
+    public long getRejectedRequestCount() {
+        return dispatcher.getRejectedCount();
     }
 
-    private void sendOrEditAction(UUID playerUuid, List<String> lines, String content, int color) {
-        if (!settings.isActionBatchEdit()) {
-            SendOutcome outcome = postWebhook(settings.getUrl(), content, color, playerUuid, false);
-            if (outcome.rateLimited()) {
-                requeueLines(playerUuid, lines);
-            }
-            return;
+    /**
+     * Action messages dropped because the outbox was full.
+     */
+    public long getDroppedMessageCount() {
+        return outbox.getDroppedCount();
+    }
+
+    public int getQueuedRequestCount() {
+        return dispatcher.getQueuedCount();
+    }
+
+    /**
+     * Moves batched action lines into the outbox, gives it a few seconds to hand everything to the
+     * dispatcher and see it delivered, then stops both; whatever is left stays on disk for the next
+     * start.
+     */
+    public void shutdown() {
+        try {
+            aggregator.submit(() -> actionBuffers.values().forEach(this::flushActions))
+                .get(SHUTDOWN_FLUSH_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Failed to flush pending webhook actions: " + e.getMessage());
+        }
+        aggregator.shutdownNow();
+        if (!outbox.drain(SHUTDOWN_DRAIN_SECONDS, TimeUnit.SECONDS)) {
+            logger.warn("Webhook outbox did not drain before shutdown; undelivered messages stay queued");
         }
+        dispatcher.shutdown(SHUTDOWN_FLUSH_SECONDS, TimeUnit.SECONDS);
+        outbox.close(SHUTDOWN_FLUSH_SECONDS, TimeUnit.SECONDS);
+    }
 
+    private CompletableFuture<SendOutcome> sendOrEditAction(UUID playerUuid, List<EmbedPacker.Embed> embeds) {
         String messageId = lastActionMessageId.get(playerUuid);
-        if (messageId != null) {
-            SendOutcome outcome = tryEditWebhook(messageId, content, color, playerUuid);
-            if (outcome.success()) {
-                return;
+        CompletableFuture<SendOutcome> edit = messageId != null
+            ? editWebhook(messageId, embeds)
+            : CompletableFuture.completedFuture(SendOutcome.rejected());
+        return edit.thenCompose(outcome -> {
+            if (outcome.success() || outcome.retryable()) {
+                return CompletableFuture.completedFuture(outcome);
             }
-            if (!outcome.rateLimited()) {
-                lastActionMessageId.remove(playerUuid);
-            } else {
-                requeueLines(playerUuid, lines);
-                return;
+            if (messageId != null) {
+                lastActionMessageId.remove(playerUuid, messageId);
             }
-        }
-
-        SendOutcome outcome = postWebhook(settings.getUrl(), content, color, playerUuid, true);
-        if (outcome.success() && outcome.messageId() != null) {
-            lastActionMessageId.put(playerUuid, outcome.messageId());
-        } else if (outcome.rateLimited()) {
-            requeueLines(playerUuid, lines);
-        }
+            return postWebhook(embeds, true).thenApply(posted -> {
+                if (posted.success() && posted.messageId() != null) {
+                    lastActionMessageId.put(playerUuid, posted.messageId());
+                }
+                return posted;
+            });
+        });
     }
 
-    private SendOutcome tryEditWebhook(String messageId, String content, int color, UUID playerUuid) {
+    private CompletableFuture<SendOutcome> editWebhook(String messageId, List<EmbedPacker.Embed> embeds) {
+        String baseUrl = settings.getUrl();
+        URI uri;
         try {
-            String baseUrl = settings.getUrl();
-            JsonObject json = buildPayload(content, color, playerUuid);
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(new URI(baseUrl + "/messages/" + messageId))
-                .timeout(Duration.ofSeconds(5))
-                .header("Content-Type", "application/json")
-                .header("User-Agent", "DoubleLife/1.0")
-                .method("PATCH", HttpRequest.BodyPublishers.ofString(json.toString(), StandardCharsets.UTF_8))
-                .build();
-
-            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
-            int code = response.statusCode();
-            if (code == 429) {
-                return SendOutcome.rateLimitedResult();
-            }
-            return SendOutcome.result(code >= 200 && code < 300, false, null);
-        } catch (Exception e) {
+            uri = new URI(baseUrl + "/messages/" + messageId);
+        } catch (URISyntaxException e) {
             logger.warn("Failed to edit Discord webhook: " + e.getMessage());
-            return SendOutcome.failureResult();
+            return CompletableFuture.completedFuture(SendOutcome.rejected());
         }
+
+        String payload = buildPayload(embeds).toString();
+        return dispatcher.submit("PATCH", uri, "PATCH " + stripQuery(baseUrl) + "/messages", payload)
+            .handle((response, error) -> {
+                if (error != null) {
+                    logger.warn("Failed to edit Discord webhook: " + error.getMessage());
+                    return SendOutcome.retry();
+                }
+                int code = response.statusCode();
+                if (code >= 200 && code < 300) {
+                    return SendOutcome.delivered(messageId);
+                }
+                return isRetryable(code) ? SendOutcome.retry() : SendOutcome.rejected();
+            });
     }
 
-    private SendOutcome postWebhook(String baseUrl, String content, int color, UUID playerUuid, boolean captureId) {
+    private CompletableFuture<SendOutcome> postWebhook(List<EmbedPacker.Embed> embeds, boolean captureId) {
+        String baseUrl = settings.getUrl();
+        String target = captureId
+            ? (baseUrl.contains("?") ? baseUrl + "&wait=true" : baseUrl + "?wait=true")
+            : baseUrl;
+        URI uri;
         try {
-            String target = captureId
-                ? (baseUrl.contains("?") ? baseUrl + "&wait=true" : baseUrl + "?wait=true")
-                : baseUrl;
-
-            JsonObject payload = buildPayload(content, color, playerUuid);
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(new URI(target))
-                .timeout(Duration.ofSeconds(5))
-                .header("Content-Type", "application/json")
-                .header("User-Agent", "DoubleLife/1.0")
-                .POST(HttpRequest.BodyPublishers.ofString(payload.toString(), StandardCharsets.UTF_8))
-                .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            int code = response.statusCode();
-
-            if (code == 429) {
-                return SendOutcome.rateLimitedResult();
-            }
+            uri = new URI(target);
+        } catch (URISyntaxException e) {
+            logger.error("Failed to send Discord webhook: " + e.getMessage());
+            return CompletableFuture.completedFuture(SendOutcome.rejected());
+        }
 
-            if (code >= 200 && code < 300) {
-                String id = null;
-                if (captureId) {
-                    JsonObject obj = JsonParser.parseString(response.body()).getAsJsonObject();
-                    if (obj.has("id")) {
-                        id = obj.get("id").getAsString();
+        String payload = buildPayload(embeds).toString();
+        return dispatcher.submit("POST", uri, "POST " + stripQuery(baseUrl), payload)
+            .handle((response, error) -> {
+                if (error != null) {
+                    logger.error("Failed to send Discord webhook: " + error.getMessage());
+                    return SendOutcome.retry();
+                }
+                int code = response.statusCode();
+                if (code >= 200 && code < 300) {
+                    String id = null;
+                    if (captureId) {
+                        try {
+                            JsonObject obj = JsonParser.parseString(response.body()).getAsJsonObject();
+                            if (obj.has("id")) {
+                                id = obj.get("id").getAsString();
+                            }
+                        } catch (RuntimeException e) {
+                            logger.warn("Discord webhook returned an unreadable message body");
+                        }
                     }
+                    return SendOutcome.delivered(id);
                 }
-                return SendOutcome.result(true, false, id);
-            }
+                logger.warn("Discord webhook returned code: " + code);
+                return isRetryable(code) ? SendOutcome.retry() : SendOutcome.rejected();
+            });
+    }
 
-            logger.warn("Discord webhook returned code: " + code);
-            return SendOutcome.failureResult();
-        } catch (Exception e) {
-            logger.error("Failed to send Discord webhook: " + e.getMessage());
-            return SendOutcome.failureResult();
-        }
+    /**
+     * Rate limits and server errors may succeed later; other client errors will not.
+     */
+    private static boolean isRetryable(int code) {
+        return code == 429 || code >= 500;
     }
 
-    private JsonObject buildPayload(String content, int color, UUID playerUuid) {
+    private static String stripQuery(String url) {
+        int query = url.indexOf('?');
+        return query < 0 ? url : url.substring(0, query);
+    }
+
+    private JsonObject buildPayload(List<EmbedPacker.Embed> embeds) {
+        // The avatar is per message; use the player's only when every embed is theirs.
+        UUID avatarUuid = embeds.get(0).playerUuid();
+        for (EmbedPacker.Embed embed : embeds) {
+            if (avatarUuid != null && !avatarUuid.equals(embed.playerUuid())) {
+                avatarUuid = null;
+            }
+        }
+
         JsonObject json = new JsonObject();
         json.addProperty("content", (String) null);
         json.addProperty("username", "DoubleLife System");
-        json.addProperty("avatar_url", avatarUrl(playerUuid));
-
-        JsonObject embed = new JsonObject();
-        embed.addProperty("description", content);
-        embed.addProperty("color", color);
-        embed.addProperty("timestamp", Instant.now().toString());
-
-        JsonObject footer = new JsonObject();
-        footer.addProperty("text", "DoubleLife Plugin");
-        embed.add("footer", footer);
-
-        JsonArray embeds = new JsonArray();
-        embeds.add(embed);
-        json.add("embeds", embeds);
+        json.addProperty("avatar_url", avatarUrl(avatarUuid));
+
+        String timestamp = Instant.now().toString();
+        JsonArray array = new JsonArray();
+        for (EmbedPacker.Embed embed : embeds) {
+            JsonObject object = new JsonObject();
+            object.addProperty("description", embed.description());
+            object.addProperty("color", embed.color());
+            object.addProperty("timestamp", timestamp);
+
+            JsonObject footer = new JsonObject();
+            footer.addProperty("text", EmbedPacker.FOOTER);
+            object.add("footer", footer);
+            array.add(object);
+        }
+        json.add("embeds", array);
         return json;
     }
 
-    private void requeueLines(UUID playerUuid, List<String> lines) {
-        logger.warn("Discord webhook hit rate limit; merging action logs and retrying soon");
-        pendingActions.compute(playerUuid, (id, existing) -> {
-            if (existing == null) {
-                return new ArrayList<>(lines);
-            }
-            existing.addAll(lines);
-            return existing;
-        });
-        int retryDelay = Math.max(3, settings.getActionBatchWindowSeconds());
-        aggregator.schedule(() -> flushActions(playerUuid), retryDelay, TimeUnit.SECONDS);
-    }
+    private record SendOutcome(boolean success, boolean retryable, String messageId) {
+        static SendOutcome delivered(String messageId) {
+            return new SendOutcome(true, false, messageId);
+        }
 
-    private record SendOutcome(boolean success, boolean rateLimited, String messageId) {
-        static SendOutcome rateLimitedResult() {
+        static SendOutcome retry() {
             return new SendOutcome(false, true, null);
         }
 
-        static SendOutcome failureResult() {
+        static SendOutcome rejected() {
             return new SendOutcome(false, false, null);
         }
-
-        static SendOutcome result(boolean success, boolean rateLimited, String messageId) {
-            return new SendOutcome(success, rateLimited, messageId);
-        }
     }
 
     private String avatarUrl(UUID playerUuid) {
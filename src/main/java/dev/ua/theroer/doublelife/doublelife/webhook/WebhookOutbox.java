@@ -0,0 +1,513 @@
+package dev.ua.theroer.doublelife.doublelife.webhook;
+
+import dev.ua.theroer.magicutils.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Durable spool for outgoing webhook messages. Every message is appended to a segment file under
+ * the outbox directory before it is handed to the deliverer, and an acknowledgement record is
+ * appended once Discord confirmed it (or rejected it for good). Unacknowledged messages are replayed
+ * on the next start, a few at a time so the dispatcher's rate limiter paces them.
+ * <p>
+ * Consecutive messages accepted by the batch predicate are handed over together, up to
+ * {@link EmbedPacker#MAX_EMBEDS} at a time; a short batch waits up to the linger time for more,
+ * except while the outbox is being drained for shutdown.
+ * <p>
+ * Segments roll at {@value #SEGMENT_MAX_BYTES} bytes and are deleted oldest-first once every entry
+ * in them is acknowledged; acknowledgements always land in the same or a later segment than their
+ * entry, so deleting only from the front never resurrects a delivered message.
+ * <p>
+ * All file I/O and bookkeeping runs on a single outbox thread.
+ */
+final class WebhookOutbox {
+
+    enum Kind {
+        NOTICE,
+        ACTION
+    }
+
+    /**
+     * Outcome of handing a batch to the deliverer: the ids of messages that hit a transient failure
+     * and should be tried again. Every other message in the batch was delivered, or rejected in a
+     * way retrying would not fix, and is acknowledged.
+     */
+    record Delivery(Set<Long> retryIds) {
+        static final Delivery ACKNOWLEDGED = new Delivery(Set.of());
+
+        static Delivery retryAll(List<Message> batch) {
+            Set<Long> ids = new HashSet<>(batch.size() * 2);
+            batch.forEach(message -> ids.add(message.id()));
+            return new Delivery(ids);
+        }
+    }
+
+    record Message(long id, Kind kind, UUID playerUuid, String content, int color) {
+    }
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int SEGMENT_MAX_BYTES = 1 << 20;
+    private static final int ACTIVE_COMPACT_BYTES = 64 * 1024;
+    private static final byte RECORD_ENTRY = 'E';
+    private static final byte RECORD_ACK = 'A';
+    private static final int MAX_IN_FLIGHT = 8;
+    private static final long MIN_BACKOFF_MILLIS = 1000L;
+    private static final long MAX_BACKOFF_MILLIS = 60_000L;
+    private static final int MAX_READY = 10_000;
+    private static final long DROP_WARN_INTERVAL_MILLIS = 60_000L;
+    private static final long DRAIN_POLL_MILLIS = 50L;
+
+    private final File directory;
+    private final Logger logger;
+    private final Function<List<Message>, CompletableFuture<Delivery>> deliverer;
+    private final Predicate<Message> batchable;
+    private final LongSupplier lingerMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "doublelife-webhook-outbox");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<Long, Segment> segmentOf = new HashMap<>();
+    private final Deque<Message> ready = new ArrayDeque<>();
+    private final LongAdder dropped = new LongAdder();
+    private Segment active;
+    private FileOutputStream activeFile;
+    private DataOutputStream activeOut;
+    private long nextId = 1;
+    private long readySince;
+    private int inFlight;
+    private int consecutiveFailures;
+    private long pausedUntil;
+    private boolean pumpScheduled;
+    private boolean closed;
+    private boolean draining;
+    private long droppedSinceWarn;
+    private long lastDropWarnAt;
+
+    WebhookOutbox(File directory, Logger logger, Function<List<Message>, CompletableFuture<Delivery>> deliverer,
+                  Predicate<Message> batchable, LongSupplier lingerMillis) {
+        this.directory = directory;
+        this.logger = logger;
+        this.deliverer = deliverer;
+        this.batchable = batchable;
+        this.lingerMillis = lingerMillis;
+    }
+
+    /**
+     * Loads unacknowledged messages left by a previous run and starts delivering them. When
+     * {@code replay} is false they are acknowledged without being sent.
+     */
+    void start(boolean replay) {
+        execute(() -> {
+            load();
+            if (!replay && !ready.isEmpty()) {
+                logger.info("Discarding " + ready.size() + " queued webhook messages; webhooks are disabled");
+                while (!ready.isEmpty()) {
+                    acknowledge(ready.pollFirst().id());
+                }
+            } else if (!ready.isEmpty()) {
+                logger.info("Replaying " + ready.size() + " queued webhook messages");
+            }
+            pump();
+        });
+    }
+
+    /**
+     * Queues a message. While {@value #MAX_READY} messages are already waiting (Discord has been
+     * unreachable for a while) action messages are dropped and counted; notices are always kept.
+     */
+    void enqueue(Kind kind, UUID playerUuid, String content, int color) {
+        execute(() -> {
+            if (kind == Kind.ACTION && ready.size() >= MAX_READY) {
+                recordDrop();
+                return;
+            }
+            Message message = new Message(nextId++, kind, playerUuid, content, color);
+            try {
+                append(message);
+            } catch (IOException e) {
+                // Still try to deliver it; it just will not survive a restart.
+                logger.warn("Failed to write webhook outbox: " + e.getMessage());
+            }
+            if (ready.isEmpty()) {
+                readySince = System.currentTimeMillis();
+            }
+            ready.addLast(message);
+            pump();
+        });
+    }
+
+    /**
+     * Action messages dropped because the outbox was full.
+     */
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void recordDrop() {
+        dropped.increment();
+        droppedSinceWarn++;
+        long now = System.currentTimeMillis();
+        if (now - lastDropWarnAt >= DROP_WARN_INTERVAL_MILLIS) {
+            logger.warn("Webhook outbox is full; dropped " + droppedSinceWarn + " action messages");
+            droppedSinceWarn = 0;
+            lastDropWarnAt = now;
+        }
+    }
+
+    /**
+     * Sends everything already queued without waiting out the linger time, and blocks until nothing
+     * is ready or in flight or the timeout passes. Returns whether the outbox emptied in time; what is
+     * left stays on disk once {@link #close} runs.
+     */
+    boolean drain(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            executor.submit(() -> {
+                draining = true;
+                pump();
+            }).get(timeout, unit);
+            while (System.nanoTime() < deadline) {
+                if (executor.submit(() -> ready.isEmpty() && inFlight == 0).get(timeout, unit)) {
+                    return true;
+                }
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Failed to drain webhook outbox: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Stops delivering and closes the active segment. Messages that were not acknowledged by then
+     * stay on disk for the next start.
+     */
+    void close(long timeout, TimeUnit unit) {
+        try {
+            executor.submit(() -> {
+                closed = true;
+                closeActive(true);
+            }).get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Failed to close webhook outbox: " + e.getMessage());
+        }
+        executor.shutdownNow();
+    }
+
+    private void pump() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now < pausedUntil) {
+            schedulePump(pausedUntil - now);
+            return;
+        }
+        while (inFlight < MAX_IN_FLIGHT && !ready.isEmpty()) {
+            List<Message> batch = new ArrayList<>(EmbedPacker.MAX_EMBEDS);
+            if (batchable.test(ready.peekFirst())) {
+                int available = 0;
+                for (Message message : ready) {
+                    if (available == EmbedPacker.MAX_EMBEDS || !batchable.test(message)) {
+                        break;
+                    }
+                    available++;
+                }
+                long wait = readySince + lingerMillis.getAsLong() - now;
+                if (!draining && available < EmbedPacker.MAX_EMBEDS && available == ready.size() && wait > 0) {
+                    schedulePump(wait);
+                    return;
+                }
+                for (int i = 0; i < available; i++) {
+                    batch.add(ready.pollFirst());
+                }
+            } else {
+                batch.add(ready.pollFirst());
+            }
+            readySince = now;
+
+            inFlight++;
+            CompletableFuture<Delivery> delivery;
+            try {
+                delivery = deliverer.apply(batch);
+            } catch (RuntimeException e) {
+                delivery = CompletableFuture.failedFuture(e);
+            }
+            delivery.whenComplete((result, error) ->
+                execute(() -> onDelivered(batch, error == null && result != null ? result : Delivery.retryAll(batch))));
+        }
+    }
+
+    private void onDelivered(List<Message> batch, Delivery result) {
+        inFlight--;
+        if (closed) {
+            return;
+        }
+        List<Message> failed = new ArrayList<>(result.retryIds().size());
+        for (Message message : batch) {
+            if (result.retryIds().contains(message.id())) {
+                failed.add(message);
+            } else {
+                acknowledge(message.id());
+            }
+        }
+        if (failed.isEmpty()) {
+            consecutiveFailures = 0;
+        } else {
+            // Keep order and back off the whole outbox; one failure usually means Discord is unreachable.
+            for (int i = failed.size() - 1; i >= 0; i--) {
+                ready.addFirst(failed.get(i));
+            }
+            readySince = 0L;
+            consecutiveFailures++;
+            long backoff = Math.min(MAX_BACKOFF_MILLIS, MIN_BACKOFF_MILLIS << Math.min(consecutiveFailures - 1, 6));
+            pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + backoff);
+        }
+        pump();
+    }
+
+    private void schedulePump(long delayMillis) {
+        if (pumpScheduled) {
+            return;
+        }
+        pumpScheduled = true;
+        try {
+            executor.schedule(() -> {
+                pumpScheduled = false;
+                pump();
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            pumpScheduled = false;
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // Outbox closed; the message is either on disk already or was never accepted.
+        }
+    }
+
+    private void append(Message message) throws IOException {
+        DataOutputStream out = activeOut();
+        out.writeByte(RECORD_ENTRY);
+        out.writeLong(message.id());
+        out.writeByte(message.kind().ordinal());
+        UUID uuid = message.playerUuid();
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+        out.writeInt(message.color());
+        byte[] content = message.content().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(content.length);
+        out.write(content);
+        out.flush();
+
+        active.live++;
+        segmentOf.put(message.id(), active);
+        if (out.size() >= SEGMENT_MAX_BYTES) {
+            closeActive(false);
+        }
+    }
+
+    private void acknowledge(long id) {
+        Segment segment = segmentOf.remove(id);
+        if (segment == null) {
+            return;
+        }
+        segment.live--;
+        try {
+            DataOutputStream out = activeOut();
+            out.writeByte(RECORD_ACK);
+            out.writeLong(id);
+            out.flush();
+            if (out.size() >= SEGMENT_MAX_BYTES) {
+                closeActive(false);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write webhook outbox acknowledgement: " + e.getMessage());
+        }
+        compact();
+    }
+
+    /**
+     * Deletes fully acknowledged segments from the front, and restarts the active segment when
+     * it is the only one left and holds nothing but delivered messages.
+     */
+    private void compact() {
+        Map.Entry<Long, Segment> first = segments.firstEntry();
+        while (first != null && first.getValue() != active && first.getValue().live == 0) {
+            delete(first.getValue());
+            first = segments.firstEntry();
+        }
+        if (active != null && active.live == 0 && segments.size() == 1 && activeOut.size() >= ACTIVE_COMPACT_BYTES) {
+            // Closing re-runs compaction, which then deletes the now sealed, empty segment.
+            closeActive(false);
+        }
+    }
+
+    private void delete(Segment segment) {
+        segments.remove(segment.seq);
+        if (!segment.file.delete() && segment.file.exists()) {
+            logger.warn("Failed to delete webhook outbox segment " + segment.file.getName());
+        }
+    }
+
+    private DataOutputStream activeOut() throws IOException {
+        if (activeOut != null) {
+            return activeOut;
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        long seq = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        File file = new File(directory, SEGMENT_PREFIX + seq + SEGMENT_SUFFIX);
+        activeFile = new FileOutputStream(file, true);
+        activeOut = new DataOutputStream(new BufferedOutputStream(activeFile));
+        active = new Segment(seq, file);
+        segments.put(seq, active);
+        return activeOut;
+    }
+
+    private void closeActive(boolean sync) {
+        if (activeOut == null) {
+            return;
+        }
+        try {
+            activeOut.flush();
+            if (sync) {
+                activeFile.getFD().sync();
+            }
+            activeOut.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close webhook outbox segment: " + e.getMessage());
+        }
+        activeOut = null;
+        activeFile = null;
+        active = null;
+        compact();
+    }
+
+    private void load() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Map<Long, File> bySeq = new TreeMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                bySeq.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring unexpected file in webhook outbox: " + name);
+            }
+        }
+
+        Map<Long, Message> pending = new LinkedHashMap<>();
+        for (Map.Entry<Long, File> entry : bySeq.entrySet()) {
+            Segment segment = new Segment(entry.getKey(), entry.getValue());
+            segments.put(segment.seq, segment);
+            readSegment(segment, pending);
+        }
+        compact();
+
+        pending.values().stream()
+            .sorted(Comparator.comparingLong(Message::id))
+            .forEach(ready::addLast);
+    }
+
+    private void readSegment(Segment segment, Map<Long, Message> pending) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)))) {
+            int type;
+            while ((type = in.read()) >= 0) {
+                if (type == RECORD_ENTRY) {
+                    Message message = readMessage(in);
+                    pending.put(message.id(), message);
+                    segmentOf.put(message.id(), segment);
+                    segment.live++;
+                    nextId = Math.max(nextId, message.id() + 1);
+                } else if (type == RECORD_ACK) {
+                    long id = in.readLong();
+                    if (pending.remove(id) != null) {
+                        segmentOf.remove(id).live--;
+                    }
+                } else {
+                    logger.warn("Webhook outbox segment " + segment.file.getName() + " is corrupt; ignoring its tail");
+                    return;
+                }
+            }
+        } catch (EOFException e) {
+            // Torn final record from a crash mid-write; everything before it is intact.
+        } catch (IOException e) {
+            logger.warn("Failed to read webhook outbox segment " + segment.file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static Message readMessage(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        int kindOrdinal = in.readUnsignedByte();
+        Kind[] kinds = Kind.values();
+        Kind kind = kindOrdinal < kinds.length ? kinds[kindOrdinal] : Kind.NOTICE;
+        UUID uuid = in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+        int color = in.readInt();
+        int length = in.readInt();
+        if (length < 0 || length > SEGMENT_MAX_BYTES) {
+            throw new IOException("Invalid record length " + length);
+        }
+        byte[] content = new byte[length];
+        in.readFully(content);
+        return new Message(id, kind, uuid, new String(content, StandardCharsets.UTF_8), color);
+    }
+
+    private static final class Segment {
+        private final long seq;
+        private final File file;
+        private int live;
+
+        private Segment(long seq, File file) {
+            this.seq = seq;
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package dev.ua.theroer.doublelife.doublelife.webhook;
+
+import java.net.http.HttpHeaders;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Client-side model of Discord's rate limits. Routes are mapped to the bucket Discord reports in
+ * {@code X-RateLimit-Bucket}; each bucket is a token bucket refilled from {@code X-RateLimit-Limit},
+ * {@code X-RateLimit-Remaining} and {@code X-RateLimit-Reset-After}. Tokens are taken before a request
+ * is sent, so requests are held back instead of running into a 429.
+ * <p>
+ * Not thread-safe; owned by the dispatcher thread.
+ */
+final class WebhookRateLimiter {
+
+    /** Poll interval while the first request of an unknown bucket is still in flight. */
+    private static final long UNKNOWN_BUCKET_WAIT_MILLIS = 100L;
+    private static final long DEFAULT_RETRY_MILLIS = 1000L;
+
+    private final Map<String, String> bucketByRoute = new HashMap<>();
+    private final Map<String, Bucket> buckets = new HashMap<>();
+    private long globalResetAt;
+
+    /**
+     * Milliseconds to wait before a request on {@code route} may be sent; zero when it may go now.
+     */
+    long delayFor(String route, long now) {
+        long delay = Math.max(0L, globalResetAt - now);
+        return Math.max(delay, bucket(route).delay(now));
+    }
+
+    void acquire(String route, long now) {
+        bucket(route).take(now);
+    }
+
+    /**
+     * Releases the token of a request that ended without a response.
+     */
+    void release(String route) {
+        bucket(route).release();
+    }
+
+    /**
+     * Feeds the rate-limit headers of a response back into the route's bucket.
+     */
+    void update(String route, int status, HttpHeaders headers, long now) {
+        String bucketId = headers.firstValue("X-RateLimit-Bucket").orElse(null);
+        Bucket bucket;
+        if (bucketId != null && !bucketId.equals(bucketByRoute.get(route))) {
+            Bucket provisional = bucket(route);
+            bucketByRoute.put(route, bucketId);
+            bucket = buckets.computeIfAbsent(bucketId, key -> new Bucket());
+            bucket.inFlight += provisional.inFlight;
+            if (provisional != bucket) {
+                buckets.remove(route, provisional);
+            }
+        } else {
+            bucket = bucket(route);
+        }
+
+        int limit = parseInt(headers.firstValue("X-RateLimit-Limit").orElse(null), -1);
+        int remaining = parseInt(headers.firstValue("X-RateLimit-Remaining").orElse(null), -1);
+        long resetAfter = parseSeconds(headers.firstValue("X-RateLimit-Reset-After").orElse(null), -1L);
+        bucket.update(limit, remaining, resetAfter, now);
+
+        if (status == 429) {
+            long retryAfter = parseSeconds(headers.firstValue("Retry-After").orElse(null), DEFAULT_RETRY_MILLIS);
+            boolean global = headers.firstValue("X-RateLimit-Global").map(Boolean::parseBoolean).orElse(false)
+                || "global".equalsIgnoreCase(headers.firstValue("X-RateLimit-Scope").orElse(""));
+            if (global) {
+                globalResetAt = Math.max(globalResetAt, now + retryAfter);
+            } else {
+                bucket.block(now + retryAfter);
+            }
+        }
+    }
+
+    private Bucket bucket(String route) {
+        String id = bucketByRoute.getOrDefault(route, route);
+        return buckets.computeIfAbsent(id, key -> new Bucket());
+    }
+
+    private static int parseInt(String value, int fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static long parseSeconds(String value, long fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return (long) Math.ceil(Double.parseDouble(value.trim()) * 1000.0);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static final class Bucket {
+        private int limit = -1;
+        private int remaining;
+        private long resetAt;
+        private long window = DEFAULT_RETRY_MILLIS;
+        private int inFlight;
+
+        long delay(long now) {
+            if (limit < 0) {
+                // Limits unknown until the first response; send one request at a time to learn them.
+                if (now < resetAt) {
+                    return resetAt - now;
+                }
+                return inFlight == 0 ? 0L : UNKNOWN_BUCKET_WAIT_MILLIS;
+            }
+            if (now >= resetAt || remaining > 0) {
+                return 0L;
+            }
+            return resetAt - now;
+        }
+
+        void take(long now) {
+            if (limit >= 0 && now >= resetAt) {
+                remaining = limit;
+                resetAt = now + window;
+            }
+            remaining = Math.max(0, remaining - 1);
+            inFlight++;
+        }
+
+        void release() {
+            inFlight = Math.max(0, inFlight - 1);
+        }
+
+        void update(int limit, int remaining, long resetAfter, long now) {
+            release();
+            if (limit < 0 || remaining < 0 || resetAfter < 0) {
+                return;
+            }
+            this.limit = limit;
+            // Requests still in flight were sent against the old count and are not reflected yet.
+            this.remaining = Math.max(0, remaining - inFlight);
+            this.resetAt = now + resetAfter;
+            this.window = Math.max(window, resetAfter);
+        }
+
+        void block(long until) {
+            remaining = 0;
+            resetAt = Math.max(resetAt, until);
+        }
+    }
+}
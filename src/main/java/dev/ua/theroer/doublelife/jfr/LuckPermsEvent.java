@@ -0,0 +1,54 @@
+package dev.ua.theroer.doublelife.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+@Name("doublelife.LuckPerms")
+@Label("LuckPerms Call")
+@Category({"DoubleLife", "LuckPerms"})
+@Description("Asynchronous LuckPerms call, from the request until its future completes")
+@StackTrace(false)
+public class LuckPermsEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Target")
+    public String target;
+
+    @Label("Changes")
+    public int changes;
+
+    @Label("Success")
+    public boolean success;
+
+    /**
+     * Runs {@code call} and, while the event is enabled, records it until the returned future
+     * completes. When JFR is not recording this is a single enabled check; {@code target} is only
+     * converted to a string for committed events.
+     */
+    public static <T> CompletableFuture<T> trace(String operation, Object target, int changes,
+                                                 Supplier<CompletableFuture<T>> call) {
+        LuckPermsEvent event = new LuckPermsEvent();
+        if (!event.isEnabled()) {
+            return call.get();
+        }
+        event.begin();
+        return call.get().whenComplete((result, error) -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.target = String.valueOf(target);
+                event.changes = changes;
+                event.success = error == null;
+                event.commit();
+            }
+        });
+    }
+}
@@ -0,0 +1,45 @@
+package dev.ua.theroer.doublelife.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One DoubleLife session transition, spanning from the request to the point the player is fully
+ * switched (including queued commands and LuckPerms work).
+ */
+@Name("doublelife.SessionLifecycle")
+@Label("Session Lifecycle")
+@Category({"DoubleLife", "Session"})
+@Description("DoubleLife session start, end, restore on join or expiry while offline")
+@StackTrace(false)
+public class SessionLifecycleEvent extends jdk.jfr.Event {
+
+    public static final String START = "start";
+    public static final String END = "end";
+    public static final String RESTORE = "restore";
+    public static final String RESTORE_EXPIRED = "restore-expired";
+    public static final String EXPIRE_OFFLINE = "expire-offline";
+
+    @Label("Action")
+    public String action;
+
+    @Label("Player UUID")
+    public String playerUuid;
+
+    @Label("Player Name")
+    public String playerName;
+
+    @Label("Profiles")
+    public String profiles;
+
+    @Label("Session Duration")
+    @Timespan(Timespan.SECONDS)
+    public long sessionDuration;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,32 @@
+package dev.ua.theroer.doublelife.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("doublelife.Storage")
+@Label("Session Storage")
+@Category({"DoubleLife", "Storage"})
+@Description("Session file read or write by InventoryStorage")
+@StackTrace(false)
+public class StorageEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Player UUID")
+    public String playerUuid;
+
+    @Label("Format")
+    public String format;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,29 @@
+package dev.ua.theroer.doublelife.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("doublelife.WebhookRateLimit")
+@Label("Webhook Rate Limit")
+@Category({"DoubleLife", "Webhook"})
+@Description("Discord answered 429; the request is requeued until the bucket resets")
+@StackTrace(false)
+public class WebhookRateLimitEvent extends jdk.jfr.Event {
+
+    @Label("Route")
+    public String route;
+
+    @Label("Retry After")
+    @Timespan(Timespan.MILLISECONDS)
+    public long retryAfter;
+
+    @Label("Attempt")
+    public int attempt;
+
+    @Label("Gave Up")
+    public boolean gaveUp;
+}
@@ -0,0 +1,43 @@
+package dev.ua.theroer.doublelife.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("doublelife.WebhookRequest")
+@Label("Webhook Request")
+@Category({"DoubleLife", "Webhook"})
+@Description("Discord webhook HTTP request, from send until the response arrived")
+@StackTrace(false)
+public class WebhookRequestEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Route")
+    public String route;
+
+    @Label("Status")
+    @Description("HTTP status, or -1 when the request failed without a response")
+    public int status;
+
+    @Label("Attempt")
+    public int attempt;
+
+    @Label("Queue Time")
+    @Description("Time spent waiting in the dispatcher queue, including rate limit waits")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queued;
+
+    @Label("Request Size")
+    @DataAmount
+    public long requestBytes;
+
+    @Label("Response Size")
+    @DataAmount
+    public long responseBytes;
+}
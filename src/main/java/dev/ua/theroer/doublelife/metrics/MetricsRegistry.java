@@ -0,0 +1,184 @@
+package dev.ua.theroer.doublelife.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the plugin's counters, gauges and latency histograms. Series are registered once by
+ * the component that owns them; asking again for the same name and labels returns the existing
+ * series, so components can be recreated without leaking metrics. Supplier-backed series are
+ * replaced instead, so they never point at a discarded component. Only registration and export
+ * take the registry lock; recording goes straight to the lock-free series.
+ */
+public final class MetricsRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, Type.COUNTER, labels, new Counter());
+    }
+
+    /**
+     * Counter whose value is kept elsewhere, e.g. a component's own drop counter.
+     */
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, Type.COUNTER, labels, value);
+    }
+
+    public void gauge(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, Type.GAUGE, labels, value);
+    }
+
+    /**
+     * Latency histogram recorded in nanoseconds and exported in seconds.
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) register(name, help, Type.SUMMARY, labels, new Histogram());
+    }
+
+    private synchronized Object register(String name, String help, Type type, String[] labels, Object series) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be key/value pairs: " + name);
+        }
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type);
+        }
+        String key = formatLabels(labels);
+        if (series instanceof LongSupplier) {
+            family.series.put(key, series);
+            return series;
+        }
+        Object existing = family.series.putIfAbsent(key, series);
+        return existing != null ? existing : series;
+    }
+
+    /**
+     * Writes every series in the Prometheus text exposition format (version 0.0.4).
+     */
+    public synchronized void writePrometheus(StringBuilder out) {
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            String exported = family.type == Type.COUNTER ? name + "_total" : name;
+            out.append("# HELP ").append(exported).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(exported).append(' ').append(family.type.prometheusName).append('\n');
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                String labels = series.getKey();
+                if (family.type == Type.SUMMARY) {
+                    Histogram.Snapshot snapshot = ((Histogram) series.getValue()).snapshot();
+                    for (double quantile : QUANTILES) {
+                        out.append(name).append('{');
+                        if (!labels.isEmpty()) {
+                            out.append(labels).append(',');
+                        }
+                        out.append("quantile=\"").append(quantile).append("\"} ")
+                            .append(seconds(snapshot.quantileNanos(quantile))).append('\n');
+                    }
+                    appendSample(out, name + "_sum", labels, seconds(snapshot.sumNanos()));
+                    appendSample(out, name + "_count", labels, Long.toString(snapshot.count()));
+                } else {
+                    appendSample(out, exported, labels, Long.toString(value(series.getValue())));
+                }
+            }
+        }
+    }
+
+    /**
+     * One readable line per series, for the in-game metrics command.
+     */
+    public synchronized List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            Family family = entry.getValue();
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                String id = series.getKey().isEmpty() ? entry.getKey() : entry.getKey() + "{" + series.getKey() + "}";
+                if (family.type == Type.SUMMARY) {
+                    Histogram.Snapshot snapshot = ((Histogram) series.getValue()).snapshot();
+                    if (snapshot.count() == 0) {
+                        continue;
+                    }
+                    lines.add(id + ": n=" + snapshot.count()
+                        + " p50=" + millis(snapshot.quantileNanos(0.5))
+                        + " p99=" + millis(snapshot.quantileNanos(0.99))
+                        + " max=" + millis(snapshot.maxNanos()));
+                } else {
+                    lines.add(id + " = " + value(series.getValue()));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static long value(Object series) {
+        return series instanceof Counter counter ? counter.get() : ((LongSupplier) series).getAsLong();
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, String value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String formatLabels(String[] labels) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> builder.append("\\\\");
+                    case '"' -> builder.append("\\\"");
+                    case '\n' -> builder.append("\\n");
+                    default -> builder.append(c);
+                }
+            }
+            builder.append('"');
+        }
+        return builder.toString();
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / NANOS_PER_SECOND);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000.0);
+    }
+
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String prometheusName;
+
+        Type(String prometheusName) {
+            this.prometheusName = prometheusName;
+        }
+    }
+
+    private static final class Family {
+        private final String help;
+        private final Type type;
+        private final Map<String, Object> series = new LinkedHashMap<>();
+
+        private Family(String help, Type type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
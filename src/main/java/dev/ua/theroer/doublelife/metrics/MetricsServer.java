@@ -0,0 +1,101 @@
+package dev.ua.theroer.doublelife.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.ua.theroer.magicutils.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@link MetricsRegistry#writePrometheus} at {@code /metrics} on the JDK's built-in HTTP
+ * server, handled by a single daemon thread so scrapes never touch the server thread.
+ */
+public final class MetricsServer {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry registry;
+    private final Logger logger;
+    private HttpServer server;
+    private ExecutorService executor;
+    private String boundHost;
+    private int boundPort;
+
+    public MetricsServer(MetricsRegistry registry, Logger logger) {
+        this.registry = registry;
+        this.logger = logger;
+    }
+
+    /**
+     * Starts the endpoint, or rebinds it when the address changed; a no-op if it already serves
+     * {@code host:port}.
+     */
+    public synchronized void start(String host, int port) {
+        if (server != null && host.equals(boundHost) && port == boundPort) {
+            return;
+        }
+        stop();
+        try {
+            HttpServer created = HttpServer.create(new InetSocketAddress(host, port), 0);
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "doublelife-metrics-http");
+                t.setDaemon(true);
+                return t;
+            });
+            created.setExecutor(executor);
+            created.createContext("/metrics", this::handle);
+            created.start();
+            server = created;
+            boundHost = host;
+            boundPort = port;
+            logger.info("DoubleLife metrics endpoint listening on http://" + host + ":" + port + "/metrics");
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Failed to start DoubleLife metrics endpoint on " + host + ":" + port + ": " + e.getMessage());
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder body = new StringBuilder(8192);
+            registry.writePrometheus(body);
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
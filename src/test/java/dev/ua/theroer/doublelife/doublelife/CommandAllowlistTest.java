@@ -0,0 +1,87 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandAllowlistTest {
+
+    private static final Map<String, String> ALIASES = Map.of(
+        "teleport", "tp",
+        "minecraft:tp", "tp",
+        "essentials:home", "home",
+        "homes", "home");
+    private static final UnaryOperator<String> CANONICAL = label -> ALIASES.getOrDefault(label, label);
+
+    @Test
+    void matchesCommandAndAnyArguments() {
+        CommandAllowlist allowlist = compile("tp");
+        assertTrue(allowlist.allows("/tp"));
+        assertTrue(allowlist.allows("/tp Steve"));
+        assertTrue(allowlist.allows("  /TP   Steve  Alex"));
+        assertFalse(allowlist.allows("/tpa Steve"));
+        assertFalse(allowlist.allows("/gamemode creative"));
+    }
+
+    @Test
+    void multiTokenPatternsNeedEveryToken() {
+        CommandAllowlist allowlist = compile("gamemode spectator");
+        assertTrue(allowlist.allows("/gamemode spectator"));
+        assertTrue(allowlist.allows("/gamemode SPECTATOR Steve"));
+        assertFalse(allowlist.allows("/gamemode creative"));
+        assertFalse(allowlist.allows("/gamemode"));
+    }
+
+    @Test
+    void wildcardTokenMatchesOneArgument() {
+        CommandAllowlist allowlist = compile("msg * hello");
+        assertTrue(allowlist.allows("/msg Steve hello"));
+        assertTrue(allowlist.allows("/msg Alex hello there"));
+        assertFalse(allowlist.allows("/msg Steve bye"));
+        assertFalse(allowlist.allows("/msg Steve"));
+    }
+
+    @Test
+    void trailingStarMatchesByPrefix() {
+        CommandAllowlist allowlist = compile("warp spawn*", "co*");
+        assertTrue(allowlist.allows("/warp spawn"));
+        assertTrue(allowlist.allows("/warp spawn_nether"));
+        assertFalse(allowlist.allows("/warp shop"));
+        assertTrue(allowlist.allows("/co inspect"));
+        assertTrue(allowlist.allows("/coreprotect lookup"));
+    }
+
+    @Test
+    void aliasesAndNamespacesResolveToTheCommand() {
+        CommandAllowlist allowlist = compile("home", "teleport");
+        assertTrue(allowlist.allows("/homes"));
+        assertTrue(allowlist.allows("/essentials:home base"));
+        assertTrue(allowlist.allows("/tp Steve"));
+        assertTrue(allowlist.allows("/minecraft:tp Steve"));
+    }
+
+    @Test
+    void loneStarAllowsEverything() {
+        CommandAllowlist allowlist = compile("home", "*");
+        assertTrue(allowlist.allows("/anything at all"));
+        assertTrue(CommandAllowlist.unrestricted().allows("/op Steve"));
+    }
+
+    @Test
+    void emptyListAllowsNothing() {
+        CommandAllowlist allowlist = CommandAllowlist.compile(Arrays.asList(null, "", "   "), CANONICAL);
+        assertFalse(allowlist.allows("/home"));
+        assertFalse(allowlist.allows(""));
+        assertFalse(allowlist.allows("/"));
+    }
+
+    private static CommandAllowlist compile(String... patterns) {
+        return CommandAllowlist.compile(List.of(patterns), CANONICAL);
+    }
+}
@@ -0,0 +1,108 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionExpirySchedulerTest {
+
+    private final List<UUID> expired = new ArrayList<>();
+    private final SessionExpiryScheduler scheduler = new SessionExpiryScheduler(expired::add);
+
+    @Test
+    void firesDueEntriesInDeadlineOrder() {
+        UUID late = uuid(1);
+        UUID early = uuid(2);
+        UUID later = uuid(3);
+        scheduler.schedule(late, 200L);
+        scheduler.schedule(early, 100L);
+        scheduler.schedule(later, 300L);
+
+        scheduler.tick(99L);
+        assertTrue(expired.isEmpty());
+        scheduler.tick(200L);
+        assertEquals(List.of(early, late), expired);
+        assertFalse(scheduler.isScheduled(early));
+        assertTrue(scheduler.isScheduled(later));
+        assertEquals(1, scheduler.size());
+    }
+
+    @Test
+    void cancelledEntriesNeverFire() {
+        UUID player = uuid(1);
+        scheduler.schedule(player, 100L);
+        scheduler.cancel(player);
+        scheduler.cancel(player);
+
+        scheduler.tick(1_000L);
+        assertTrue(expired.isEmpty());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void reschedulingReplacesTheDeadline() {
+        UUID player = uuid(1);
+        scheduler.schedule(player, 100L);
+        scheduler.schedule(player, 500L);
+
+        scheduler.tick(400L);
+        assertTrue(expired.isEmpty());
+        scheduler.tick(500L);
+        assertEquals(List.of(player), expired);
+    }
+
+    @Test
+    void purgeKeepsLiveEntries() {
+        for (int i = 0; i < 200; i++) {
+            scheduler.schedule(uuid(i), 1_000L + i);
+        }
+        for (int i = 0; i < 150; i++) {
+            scheduler.cancel(uuid(i));
+        }
+        assertEquals(50, scheduler.size());
+
+        scheduler.tick(10_000L);
+        assertEquals(50, expired.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(uuid(150 + i), expired.get(i));
+        }
+    }
+
+    @Test
+    void callbackMayRescheduleTheExpiringPlayer() {
+        UUID player = uuid(1);
+        SessionExpiryScheduler[] self = new SessionExpiryScheduler[1];
+        self[0] = new SessionExpiryScheduler(uuid -> {
+            expired.add(uuid);
+            if (expired.size() == 1) {
+                self[0].schedule(uuid, 50L);
+            }
+        });
+        self[0].schedule(player, 10L);
+
+        self[0].tick(20L);
+        assertEquals(List.of(player), expired);
+        assertTrue(self[0].isScheduled(player));
+        self[0].tick(50L);
+        assertEquals(List.of(player, player), expired);
+    }
+
+    @Test
+    void clearDropsEverything() {
+        scheduler.schedule(uuid(1), 10L);
+        scheduler.clear();
+        scheduler.tick(100L);
+        assertTrue(expired.isEmpty());
+        assertEquals(0, scheduler.size());
+    }
+
+    private static UUID uuid(int n) {
+        return new UUID(0L, n);
+    }
+}
@@ -0,0 +1,56 @@
+package dev.ua.theroer.doublelife.doublelife;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TemporaryGroupPoolTest {
+
+    private final TemporaryGroupPool pool = new TemporaryGroupPool(null, "doublelife");
+
+    @Test
+    void namesAreBoundedWhateverTheProfiles() {
+        String name = pool.groupName(List.of("moderator", "vip_builder", "event_host", "architect"));
+
+        assertTrue(name.matches("doublelife-pool-[0-9a-f]{12}"), name);
+        assertTrue(name.length() <= 36);
+    }
+
+    @Test
+    void namesIgnoreProfileOrder() {
+        assertEquals(pool.groupName(List.of("admin", "builder")), pool.groupName(List.of("builder", "admin")));
+    }
+
+    @Test
+    void similarProfileNamesGetDistinctGroups() {
+        String dash = pool.groupName(List.of("vip-gold"));
+        String dot = pool.groupName(List.of("vip.gold"));
+        String underscore = pool.groupName(List.of("vip_gold"));
+
+        assertNotEquals(dash, dot);
+        assertNotEquals(dash, underscore);
+        assertNotEquals(dot, underscore);
+        assertNotEquals(pool.groupName(List.of("ab", "c")), pool.groupName(List.of("a", "bc")));
+    }
+
+    @Test
+    void groupsStayPooledAfterTheBaseNameChanges() {
+        String before = pool.groupName(List.of("admin"));
+        pool.setBaseName("dl");
+
+        assertTrue(pool.isPooled(before));
+        assertTrue(pool.isPooled(pool.groupName(List.of("admin"))));
+        assertFalse(pool.isPooled("doublelife-Notch"));
+        assertFalse(pool.isPooled("dl-Notch"));
+    }
+
+    @Test
+    void displayNameKeepsTheReadableProfileList() {
+        assertEquals("DoubleLife: admin, vip-gold", TemporaryGroupPool.displayName(List.of("vip-gold", "admin")));
+    }
+}
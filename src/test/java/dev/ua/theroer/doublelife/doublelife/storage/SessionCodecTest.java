@@ -0,0 +1,181 @@
+package dev.ua.theroer.doublelife.doublelife.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionCodecTest {
+
+    @Test
+    void roundTripsUncompressed() throws IOException {
+        assertRoundTrip(sample(), false);
+    }
+
+    @Test
+    void roundTripsDeflated() throws IOException {
+        assertRoundTrip(sample(), true);
+    }
+
+    @Test
+    void roundTripsWithoutLocationOrItems() throws IOException {
+        SessionRecord record = new SessionRecord();
+        record.playerUuid = new UUID(1L, 2L);
+        record.playerName = "Empty";
+        SessionRecord decoded = decode(record, true);
+
+        assertEquals("Empty", decoded.playerName);
+        assertNull(decoded.worldName);
+        assertNull(decoded.temporaryGroupName);
+        assertEquals(0, decoded.savedInventory.length);
+        assertEquals(0, decoded.originalGroups.length);
+    }
+
+    @Test
+    void rewritesHeaderAroundAnUnchangedSnapshot() throws IOException {
+        SessionRecord record = sample();
+        SessionSnapshot snapshot = SessionCodec.encodeSnapshot(record, true);
+        record.activeProfiles = new String[]{"builder", "moderator"};
+        record.temporaryGroupName = "dl-pool-2";
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SessionCodec.write(out, record, snapshot);
+        SessionRecord decoded = SessionCodec.decode(out.toByteArray());
+
+        assertArrayEquals(new String[]{"builder", "moderator"}, decoded.activeProfiles);
+        assertEquals("dl-pool-2", decoded.temporaryGroupName);
+        assertArrayEquals(snapshot.body(), decoded.snapshot.body());
+        assertTrue(decoded.snapshot.deflated());
+    }
+
+    @Test
+    void readsSingleStreamVersionOneFiles() throws IOException {
+        SessionRecord record = sample();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SessionCodec.MAGIC);
+        out.writeByte(1);
+        out.writeByte(1);
+        DataOutputStream stream = new DataOutputStream(new DeflaterOutputStream(out));
+        stream.writeLong(record.playerUuid.getMostSignificantBits());
+        stream.writeLong(record.playerUuid.getLeastSignificantBits());
+        writeString(stream, record.playerName);
+        stream.writeLong(record.startTime);
+        stream.writeInt(record.duration);
+        stream.writeInt(record.activeProfiles.length);
+        for (String profile : record.activeProfiles) {
+            writeString(stream, profile);
+        }
+        stream.write(SessionCodec.encodeSnapshot(record, false).body());
+        writeString(stream, record.temporaryGroupName);
+        stream.close();
+
+        SessionRecord decoded = SessionCodec.decode(bytes.toByteArray());
+        assertRecordEquals(record, decoded);
+        assertNull(decoded.snapshot);
+    }
+
+    @Test
+    void rejectsForeignFiles() {
+        byte[] data = {'J', 'S', 'O', 'N', 2, 0};
+        assertThrows(IOException.class, () -> SessionCodec.decode(data));
+    }
+
+    @Test
+    void rejectsUnknownVersions() throws IOException {
+        byte[] data = encode(sample(), false);
+        data[4] = 9;
+        assertThrows(IOException.class, () -> SessionCodec.decode(data));
+    }
+
+    @Test
+    void rejectsTruncatedBody() throws IOException {
+        byte[] data = encode(sample(), false);
+        byte[] truncated = Arrays.copyOf(data, data.length - 10);
+        assertThrows(IOException.class, () -> SessionCodec.decode(truncated));
+    }
+
+    private static void assertRoundTrip(SessionRecord record, boolean compress) throws IOException {
+        SessionRecord decoded = decode(record, compress);
+        assertRecordEquals(record, decoded);
+        assertEquals(compress, decoded.snapshot.deflated());
+    }
+
+    private static SessionRecord decode(SessionRecord record, boolean compress) throws IOException {
+        return SessionCodec.decode(encode(record, compress));
+    }
+
+    private static byte[] encode(SessionRecord record, boolean compress) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SessionCodec.write(out, record, SessionCodec.encodeSnapshot(record, compress));
+        return out.toByteArray();
+    }
+
+    private static void assertRecordEquals(SessionRecord expected, SessionRecord actual) {
+        assertEquals(expected.playerUuid, actual.playerUuid);
+        assertEquals(expected.playerName, actual.playerName);
+        assertEquals(expected.startTime, actual.startTime);
+        assertEquals(expected.duration, actual.duration);
+        assertArrayEquals(expected.activeProfiles, actual.activeProfiles);
+        assertArrayEquals(expected.savedInventory, actual.savedInventory);
+        assertArrayEquals(expected.savedArmor, actual.savedArmor);
+        assertArrayEquals(expected.savedEnderChest, actual.savedEnderChest);
+        assertEquals(expected.savedGameMode, actual.savedGameMode);
+        assertEquals(expected.worldName, actual.worldName);
+        assertEquals(expected.x, actual.x);
+        assertEquals(expected.y, actual.y);
+        assertEquals(expected.z, actual.z);
+        assertEquals(expected.yaw, actual.yaw);
+        assertEquals(expected.pitch, actual.pitch);
+        assertEquals(expected.savedHealth, actual.savedHealth);
+        assertEquals(expected.savedFoodLevel, actual.savedFoodLevel);
+        assertEquals(expected.savedExp, actual.savedExp);
+        assertEquals(expected.savedLevel, actual.savedLevel);
+        assertArrayEquals(expected.originalGroups, actual.originalGroups);
+        assertEquals(expected.temporaryGroupName, actual.temporaryGroupName);
+    }
+
+    private static SessionRecord sample() {
+        SessionRecord record = new SessionRecord();
+        record.playerUuid = UUID.fromString("0f2a1c3e-7d4b-4e8a-9b61-2c5d8e7f9a10");
+        record.playerName = "Steve";
+        record.startTime = 1_700_000_000_000L;
+        record.duration = 3600;
+        record.activeProfiles = new String[]{"builder"};
+        record.savedInventory = new byte[][]{{1, 2, 3}, null, new byte[300], {}};
+        record.savedArmor = new byte[][]{null, null, {9}, null};
+        record.savedEnderChest = new byte[][]{"ender".getBytes(StandardCharsets.UTF_8)};
+        record.savedGameMode = "SURVIVAL";
+        record.worldName = "world";
+        record.x = 12.5;
+        record.y = 64.0;
+        record.z = -301.25;
+        record.yaw = 90.0f;
+        record.pitch = -12.5f;
+        record.savedHealth = 17.5;
+        record.savedFoodLevel = 18;
+        record.savedExp = 0.42f;
+        record.savedLevel = 30;
+        record.originalGroups = new String[]{"default", "vip"};
+        record.temporaryGroupName = "temporary-group-Steve";
+        return record;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package dev.ua.theroer.doublelife.doublelife.webhook;
+
+import dev.ua.theroer.doublelife.doublelife.ActionEvent;
+import dev.ua.theroer.doublelife.doublelife.ActionType;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ActionAggregatorTest {
+
+    private static final List<String> MERGED = List.of("block_place", "BLOCK_BREAK", "attack", "command", "unknown");
+
+    private final ActionAggregator aggregator = new ActionAggregator();
+
+    @Test
+    void mergesRepeatedBlockActionsIntoABoundingBox() {
+        List<String> lines = aggregator.summarize(List.of(
+            block(ActionType.BLOCK_PLACE, Material.STONE, 10, 60, 10),
+            block(ActionType.BLOCK_PLACE, Material.STONE, 20, 64, 30),
+            block(ActionType.BLOCK_PLACE, Material.STONE, 15, 62, 12)), MERGED);
+
+        assertEquals(List.of("BlockPlace: STONE ×3 in world:10,60,10–20,64,30"), lines);
+    }
+
+    @Test
+    void repeatsAtOnePositionCollapseToAPoint() {
+        List<String> lines = aggregator.summarize(List.of(
+            block(ActionType.BLOCK_BREAK, Material.DIRT, 1, 64, -3),
+            block(ActionType.BLOCK_BREAK, Material.DIRT, 1, 64, -3)), MERGED);
+
+        assertEquals(List.of("BlockBreak: DIRT ×2 at world:1,64,-3"), lines);
+    }
+
+    @Test
+    void singleActionsRenderVerbatim() {
+        List<String> lines = aggregator.summarize(List.of(
+            block(ActionType.BLOCK_BREAK, Material.DIRT, 1, 64, -3)), MERGED);
+
+        assertEquals(List.of("BlockBreak: DIRT at world:1,64,-3"), lines);
+    }
+
+    @Test
+    void keepsCommandsAndAttacksOnPlayersVerbatim() {
+        List<String> lines = aggregator.summarize(List.of(
+            ActionEvent.command("/home"),
+            ActionEvent.command("/home"),
+            ActionEvent.attack(EntityType.PLAYER, 2.0),
+            ActionEvent.attack(EntityType.PLAYER, 3.0)), MERGED);
+
+        assertEquals(List.of(
+            "Command: /home",
+            "Command: /home",
+            "Attack: PLAYER (2.0 damage)",
+            "Attack: PLAYER (3.0 damage)"), lines);
+    }
+
+    @Test
+    void sumsDamageOfAttacksOnTheSameEntityType() {
+        List<String> lines = aggregator.summarize(List.of(
+            ActionEvent.attack(EntityType.ZOMBIE, 2.5),
+            ActionEvent.attack(EntityType.ZOMBIE, 4.25)), MERGED);
+
+        assertEquals(List.of("Attack: ZOMBIE ×2 (6.75 damage)"), lines);
+    }
+
+    @Test
+    void leavesUnconfiguredTypesAlone() {
+        List<String> lines = aggregator.summarize(List.of(
+            block(ActionType.BLOCK_PLACE, Material.STONE, 0, 64, 0),
+            block(ActionType.BLOCK_PLACE, Material.STONE, 1, 64, 0)), List.of("block_break"));
+
+        assertEquals(List.of(
+            "BlockPlace: STONE at world:0,64,0",
+            "BlockPlace: STONE at world:1,64,0"), lines);
+    }
+
+    @Test
+    void keepsTheOrderOfTheFirstActionInEachLine() {
+        List<String> lines = aggregator.summarize(List.of(
+            block(ActionType.BLOCK_BREAK, Material.DIRT, 0, 64, 0),
+            ActionEvent.command("/spawn"),
+            block(ActionType.BLOCK_PLACE, Material.STONE, 0, 65, 0),
+            block(ActionType.BLOCK_BREAK, Material.DIRT, 0, 63, 0)), MERGED);
+
+        assertEquals(List.of(
+            "BlockBreak: DIRT ×2 in world:0,63,0–0,64,0",
+            "Command: /spawn",
+            "BlockPlace: STONE at world:0,65,0"), lines);
+    }
+
+    @Test
+    void separatesWorlds() {
+        List<String> lines = aggregator.summarize(List.of(
+            block(ActionType.BLOCK_BREAK, Material.DIRT, 0, 64, 0),
+            blockIn("world_nether", ActionType.BLOCK_BREAK, Material.DIRT, 0, 64, 0)), MERGED);
+
+        assertEquals(2, lines.size());
+    }
+
+    private static ActionEvent block(ActionType type, Material material, int x, int y, int z) {
+        return blockIn("world", type, material, x, y, z);
+    }
+
+    private static ActionEvent blockIn(String world, ActionType type, Material material, int x, int y, int z) {
+        return new ActionEvent(type, 0L, world, ActionEvent.pack(x, y, z), null, 0L, material, null, null, 0.0);
+    }
+}
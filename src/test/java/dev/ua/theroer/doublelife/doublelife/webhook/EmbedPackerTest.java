@@ -0,0 +1,118 @@
+package dev.ua.theroer.doublelife.doublelife.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbedPackerTest {
+
+    private static final UUID PLAYER = new UUID(7L, 7L);
+
+    @Test
+    void packsUpToTenEmbedsPerRequest() {
+        List<WebhookOutbox.Message> messages = new ArrayList<>();
+        for (int i = 1; i <= 23; i++) {
+            messages.add(message(i, "line " + i));
+        }
+        List<List<EmbedPacker.Embed>> requests = EmbedPacker.pack(messages);
+
+        assertEquals(3, requests.size());
+        assertEquals(10, requests.get(0).size());
+        assertEquals(10, requests.get(1).size());
+        assertEquals(3, requests.get(2).size());
+        assertEquals(1L, requests.get(0).get(0).messageId());
+        assertEquals("line 23", requests.get(2).get(2).description());
+        assertEquals(PLAYER, requests.get(2).get(2).playerUuid());
+    }
+
+    @Test
+    void startsANewRequestBeforeTheCharacterBudgetRunsOut() {
+        List<WebhookOutbox.Message> messages = List.of(
+            message(1, "a".repeat(2500)),
+            message(2, "b".repeat(2500)),
+            message(3, "c".repeat(2500)));
+        List<List<EmbedPacker.Embed>> requests = EmbedPacker.pack(messages);
+
+        assertEquals(2, requests.size());
+        for (List<EmbedPacker.Embed> request : requests) {
+            assertTrue(totalChars(request) <= EmbedPacker.MAX_TOTAL_CHARS);
+        }
+        assertEquals(3L, requests.get(1).get(0).messageId());
+    }
+
+    @Test
+    void splitsOversizedMessagesAcrossEmbedsOfTheSameMessage() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            content.append("entry number ").append(i).append('\n');
+        }
+        List<List<EmbedPacker.Embed>> requests = EmbedPacker.pack(List.of(message(5, content.toString().trim())));
+
+        List<EmbedPacker.Embed> embeds = requests.stream().flatMap(List::stream).toList();
+        assertTrue(embeds.size() > 1);
+        StringBuilder joined = new StringBuilder();
+        for (EmbedPacker.Embed embed : embeds) {
+            assertEquals(5L, embed.messageId());
+            assertTrue(embed.description().length() <= EmbedPacker.MAX_DESCRIPTION);
+            // Split on line boundaries only.
+            assertTrue(embed.description().lines().allMatch(line -> line.matches("entry number \\d+")));
+            joined.append(embed.description()).append('\n');
+        }
+        assertEquals(content.toString(), joined.toString());
+    }
+
+    @Test
+    void reopensCodeBlocksInEverySplitPart() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            body.append("BlockBreak: STONE at world:").append(i).append(",64,0\n");
+        }
+        String content = "```yaml\n" + body + "```";
+        List<String> parts = EmbedPacker.split(content, 1000);
+
+        assertTrue(parts.size() > 1);
+        StringBuilder joined = new StringBuilder();
+        for (String part : parts) {
+            assertTrue(part.length() <= 1000);
+            assertTrue(part.startsWith("```yaml\n"));
+            assertTrue(part.endsWith("\n```"));
+            joined.append(part, "```yaml\n".length(), part.length() - "\n```".length()).append('\n');
+        }
+        assertEquals(body.toString(), joined.toString());
+    }
+
+    @Test
+    void shortContentIsNotSplit() {
+        assertEquals(List.of("short"), EmbedPacker.split("short", 100));
+    }
+
+    @Test
+    void neverSplitsASurrogatePair() {
+        String content = "a".repeat(99) + "😀" + "b".repeat(50);
+        List<String> parts = EmbedPacker.split(content, 100);
+
+        assertEquals(content, String.join("", parts));
+        for (String part : parts) {
+            assertTrue(part.length() <= 100);
+            assertFalse(Character.isHighSurrogate(part.charAt(part.length() - 1)));
+        }
+    }
+
+    private static int totalChars(List<EmbedPacker.Embed> request) {
+        int chars = 0;
+        for (EmbedPacker.Embed embed : request) {
+            chars += embed.description().length() + EmbedPacker.FOOTER.length();
+        }
+        return chars;
+    }
+
+    private static WebhookOutbox.Message message(long id, String content) {
+        return new WebhookOutbox.Message(id, WebhookOutbox.Kind.ACTION, PLAYER, content, 0xFFFF00);
+    }
+}
@@ -0,0 +1,180 @@
+package dev.ua.theroer.doublelife.doublelife.webhook;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.ua.theroer.doublelife.metrics.MetricsRegistry;
+import dev.ua.theroer.magicutils.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the dispatcher against a local server that enforces a Discord-style fixed-window bucket
+ * and answers with the usual {@code X-RateLimit-*} and {@code Retry-After} headers.
+ */
+class WebhookDispatcherTest {
+
+    private static final String ROUTE = "POST /webhook";
+    private static final int LIMIT = 2;
+    private static final long WINDOW_MILLIS = 400L;
+
+    private HttpServer server;
+    private StubBucket bucket;
+    private WebhookDispatcher dispatcher;
+    private URI uri;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        bucket = new StubBucket();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/webhook", bucket::handle);
+        server.start();
+        uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/webhook");
+        dispatcher = new WebhookDispatcher(mock(Logger.class),
+            new MetricsRegistry().histogram("test_request_seconds", "test"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown(1, TimeUnit.SECONDS);
+        server.stop(0);
+    }
+
+    @Test
+    void staysInsideTheBucket() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            responses.add(dispatcher.submit("POST", uri, ROUTE, "{\"n\":" + i + "}"));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(204, response.get(10, TimeUnit.SECONDS).statusCode());
+        }
+
+        assertEquals(0, bucket.rateLimited());
+        assertTrue(bucket.maxInWindow() <= LIMIT, "sent " + bucket.maxInWindow() + " requests in one window");
+        assertEquals(7, bucket.bodies().size());
+        for (int i = 0; i < 7; i++) {
+            assertEquals("{\"n\":" + i + "}", bucket.bodies().get(i));
+        }
+    }
+
+    @Test
+    void requeuesRateLimitedRequestAtTheHead() throws Exception {
+        bucket.rejectNext(1);
+        CompletableFuture<HttpResponse<String>> first = dispatcher.submit("POST", uri, ROUTE, "first");
+        CompletableFuture<HttpResponse<String>> second = dispatcher.submit("POST", uri, ROUTE, "second");
+
+        assertEquals(204, first.get(10, TimeUnit.SECONDS).statusCode());
+        assertEquals(204, second.get(10, TimeUnit.SECONDS).statusCode());
+        assertEquals(1, bucket.rateLimited());
+        assertEquals(List.of("first", "first", "second"), bucket.bodies());
+        assertTrue(bucket.gapAfterRejection() >= bucket.retryAfterMillis() - 20,
+            "retried after " + bucket.gapAfterRejection() + " ms");
+    }
+
+    @Test
+    void givesUpAfterRepeatedRateLimits() throws Exception {
+        bucket.rejectNext(Integer.MAX_VALUE);
+        HttpResponse<String> response = dispatcher.submit("POST", uri, ROUTE, "spam").get(20, TimeUnit.SECONDS);
+
+        assertEquals(429, response.statusCode());
+        assertEquals(5, bucket.rateLimited());
+    }
+
+    /**
+     * Fixed-window bucket shared by every request, like a single Discord webhook.
+     */
+    private static final class StubBucket {
+        private final List<String> bodies = new ArrayList<>();
+        private final long retryAfterMillis = 200L;
+        private long windowStart;
+        private int inWindow;
+        private int maxInWindow;
+        private int rejectNext;
+        private int rateLimited;
+        private long rejectedAt;
+        private long gapAfterRejection = -1L;
+
+        synchronized void handle(HttpExchange exchange) throws IOException {
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            long now = System.currentTimeMillis();
+            if (rejectedAt > 0 && gapAfterRejection < 0) {
+                gapAfterRejection = now - rejectedAt;
+            }
+            bodies.add(body);
+            if (now - windowStart >= WINDOW_MILLIS) {
+                windowStart = now;
+                inWindow = 0;
+            }
+            inWindow++;
+            maxInWindow = Math.max(maxInWindow, inWindow);
+
+            var headers = exchange.getResponseHeaders();
+            headers.add("X-RateLimit-Bucket", "stub");
+            headers.add("X-RateLimit-Limit", String.valueOf(LIMIT));
+            headers.add("X-RateLimit-Remaining", String.valueOf(Math.max(0, LIMIT - inWindow)));
+            headers.add("X-RateLimit-Reset-After", seconds(windowStart + WINDOW_MILLIS - now));
+            if (rejectNext > 0 || inWindow > LIMIT) {
+                if (rejectNext > 0) {
+                    rejectNext--;
+                }
+                rateLimited++;
+                rejectedAt = now;
+                gapAfterRejection = -1L;
+                headers.add("Retry-After", seconds(retryAfterMillis));
+                exchange.sendResponseHeaders(429, -1);
+            } else {
+                exchange.sendResponseHeaders(204, -1);
+            }
+            exchange.close();
+        }
+
+        synchronized void rejectNext(int count) {
+            rejectNext = count;
+        }
+
+        synchronized List<String> bodies() {
+            return List.copyOf(bodies);
+        }
+
+        synchronized int rateLimited() {
+            return rateLimited;
+        }
+
+        synchronized int maxInWindow() {
+            return maxInWindow;
+        }
+
+        synchronized long gapAfterRejection() {
+            return gapAfterRejection;
+        }
+
+        long retryAfterMillis() {
+            return retryAfterMillis;
+        }
+
+        private static String seconds(long millis) {
+            return String.format(Locale.ROOT, "%.3f", Math.max(0L, millis) / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package dev.ua.theroer.doublelife.doublelife.webhook;
+
+import dev.ua.theroer.magicutils.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the outbox against a temp directory, restarting it between steps the way a server restart
+ * would, with deliverers that acknowledge, retry or hold on to messages.
+ */
+class WebhookOutboxTest {
+
+    private static final UUID PLAYER = new UUID(3L, 3L);
+
+    @TempDir
+    Path directory;
+
+    private final List<WebhookOutbox> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (WebhookOutbox outbox : opened) {
+            outbox.close(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void replaysOnlyUnacknowledgedMessagesAfterRestart() {
+        AtomicInteger held = new AtomicInteger();
+        WebhookOutbox first = open(batch -> {
+            if (batch.get(0).content().startsWith("hold")) {
+                held.incrementAndGet();
+                return new CompletableFuture<>();
+            }
+            return CompletableFuture.completedFuture(WebhookOutbox.Delivery.ACKNOWLEDGED);
+        });
+        first.enqueue(WebhookOutbox.Kind.NOTICE, PLAYER, "ok-1", 0);
+        first.enqueue(WebhookOutbox.Kind.NOTICE, PLAYER, "hold-2", 0);
+        first.enqueue(WebhookOutbox.Kind.NOTICE, PLAYER, "ok-3", 0);
+        first.enqueue(WebhookOutbox.Kind.NOTICE, PLAYER, "hold-4", 0);
+        // The acknowledgements were queued on the outbox thread before the last message went out.
+        await(() -> held.get() == 2);
+        first.close(1, TimeUnit.SECONDS);
+
+        Recorder recorder = new Recorder();
+        WebhookOutbox second = open(recorder);
+        assertTrue(second.drain(5, TimeUnit.SECONDS));
+        assertEquals(List.of("hold-2", "hold-4"), recorder.contents());
+        second.close(1, TimeUnit.SECONDS);
+
+        Recorder after = new Recorder();
+        assertTrue(open(after).drain(5, TimeUnit.SECONDS));
+        assertTrue(after.contents().isEmpty());
+    }
+
+    @Test
+    void retriesOnlyTheMessagesTheDelivererReportsAsFailed() {
+        List<String> attempts = Collections.synchronizedList(new ArrayList<>());
+        WebhookOutbox outbox = open(batch -> {
+            List<Long> retry = new ArrayList<>();
+            for (WebhookOutbox.Message message : batch) {
+                attempts.add(message.content());
+                if (message.content().equals("flaky") && Collections.frequency(attempts, "flaky") == 1) {
+                    retry.add(message.id());
+                }
+            }
+            return CompletableFuture.completedFuture(new WebhookOutbox.Delivery(Set.copyOf(retry)));
+        }, message -> true, 0L);
+        outbox.enqueue(WebhookOutbox.Kind.ACTION, PLAYER, "steady", 0);
+        outbox.enqueue(WebhookOutbox.Kind.ACTION, PLAYER, "flaky", 0);
+
+        assertTrue(outbox.drain(5, TimeUnit.SECONDS));
+        assertEquals(List.of("steady", "flaky", "flaky"), attempts);
+    }
+
+    @Test
+    void deletesSegmentsOnceFullyAcknowledged() {
+        Holder holder = new Holder();
+        WebhookOutbox outbox = open(holder);
+        String large = "x".repeat(300 * 1024);
+        for (int i = 0; i < 8; i++) {
+            outbox.enqueue(WebhookOutbox.Kind.NOTICE, PLAYER, large, 0);
+        }
+        await(() -> holder.size() == 8);
+        assertTrue(segmentCount() >= 2, "expected the spool to roll, found " + segmentCount() + " segments");
+
+        holder.completeAll();
+        assertTrue(outbox.drain(5, TimeUnit.SECONDS));
+        assertFalse(segment(1).exists());
+        assertFalse(segment(2).exists());
+        outbox.close(1, TimeUnit.SECONDS);
+        assertEquals(0, segmentCount());
+    }
+
+    @Test
+    void skipsATornTailAndKeepsReplaying() throws IOException {
+        spool("a", "b");
+        try (FileOutputStream out = new FileOutputStream(segment(1), true)) {
+            // An entry cut off after its id, as left by a crash mid-write.
+            out.write(new byte[]{'E', 0, 0, 0, 0, 0, 0, 0, 9, 0});
+        }
+        spool("c");
+
+        Recorder recorder = new Recorder();
+        assertTrue(open(recorder).drain(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b", "c"), recorder.contents());
+    }
+
+    @Test
+    void skipsACorruptTailAndKeepsReplaying() throws IOException {
+        spool("a", "b");
+        try (RandomAccessFile file = new RandomAccessFile(segment(1), "rw")) {
+            // Overwrite the second entry's record type; it and anything after it are unreadable.
+            long secondEntry = file.length() / 2;
+            file.seek(secondEntry);
+            file.write('?');
+        }
+        spool("c");
+
+        Recorder recorder = new Recorder();
+        assertTrue(open(recorder).drain(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "c"), recorder.contents());
+    }
+
+    @Test
+    void dropsActionsButKeepsNoticesWhileFull() {
+        Holder holder = new Holder();
+        WebhookOutbox outbox = open(holder);
+        int accepted = 10_000 + 8;
+        for (int i = 0; i < accepted + 5; i++) {
+            outbox.enqueue(WebhookOutbox.Kind.ACTION, PLAYER, "action " + i, 0);
+        }
+        outbox.enqueue(WebhookOutbox.Kind.NOTICE, PLAYER, "notice", 0);
+        await(() -> outbox.getDroppedCount() == 5 && holder.size() == 8);
+
+        holder.completeAll();
+        assertTrue(outbox.drain(10, TimeUnit.SECONDS));
+        assertEquals(accepted + 1, holder.delivered().size());
+        assertEquals("notice", holder.delivered().get(accepted));
+        assertEquals(5L, outbox.getDroppedCount());
+    }
+
+    @Test
+    void drainSendsShortBatchesWithoutWaitingOutTheLinger() {
+        Recorder recorder = new Recorder();
+        WebhookOutbox outbox = open(recorder, message -> true, 60_000L);
+        outbox.enqueue(WebhookOutbox.Kind.ACTION, PLAYER, "one", 0);
+        outbox.enqueue(WebhookOutbox.Kind.ACTION, PLAYER, "two", 0);
+        outbox.enqueue(WebhookOutbox.Kind.ACTION, PLAYER, "three", 0);
+
+        assertTrue(outbox.drain(2, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of("one", "two", "three")), recorder.batches());
+    }
+
+    private WebhookOutbox open(Function<List<WebhookOutbox.Message>, CompletableFuture<WebhookOutbox.Delivery>> deliverer) {
+        return open(deliverer, message -> false, 0L);
+    }
+
+    private WebhookOutbox open(Function<List<WebhookOutbox.Message>, CompletableFuture<WebhookOutbox.Delivery>> deliverer,
+                               Predicate<WebhookOutbox.Message> batchable, long lingerMillis) {
+        WebhookOutbox outbox = new WebhookOutbox(directory.toFile(), mock(Logger.class), deliverer, batchable, () -> lingerMillis);
+        opened.add(outbox);
+        outbox.start(true);
+        return outbox;
+    }
+
+    /**
+     * Writes messages to the spool through an outbox whose deliveries never complete, so they all
+     * stay unacknowledged.
+     */
+    private void spool(String... contents) {
+        WebhookOutbox outbox = open(batch -> new CompletableFuture<>());
+        for (String content : contents) {
+            outbox.enqueue(WebhookOutbox.Kind.NOTICE, PLAYER, content, 0);
+        }
+        outbox.close(1, TimeUnit.SECONDS);
+    }
+
+    private File segment(int seq) {
+        return new File(directory.toFile(), "segment-" + seq + ".log");
+    }
+
+    private int segmentCount() {
+        File[] files = directory.toFile().listFiles((dir, name) -> name.startsWith("segment-"));
+        return files == null ? 0 : files.length;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Acknowledges everything and remembers what it was handed, batch by batch.
+     */
+    private static final class Recorder implements Function<List<WebhookOutbox.Message>, CompletableFuture<WebhookOutbox.Delivery>> {
+        private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public CompletableFuture<WebhookOutbox.Delivery> apply(List<WebhookOutbox.Message> batch) {
+            batches.add(batch.stream().map(WebhookOutbox.Message::content).toList());
+            return CompletableFuture.completedFuture(WebhookOutbox.Delivery.ACKNOWLEDGED);
+        }
+
+        List<List<String>> batches() {
+            return new ArrayList<>(batches);
+        }
+
+        List<String> contents() {
+            return batches().stream().flatMap(List::stream).toList();
+        }
+    }
+
+    /**
+     * Holds every delivery open until {@link #completeAll()}, then acknowledges new ones right away.
+     */
+    private static final class Holder implements Function<List<WebhookOutbox.Message>, CompletableFuture<WebhookOutbox.Delivery>> {
+        private final List<CompletableFuture<WebhookOutbox.Delivery>> held = new ArrayList<>();
+        private final List<String> delivered = new ArrayList<>();
+        private boolean released;
+
+        @Override
+        public synchronized CompletableFuture<WebhookOutbox.Delivery> apply(List<WebhookOutbox.Message> batch) {
+            batch.forEach(message -> delivered.add(message.content()));
+            if (released) {
+                return CompletableFuture.completedFuture(WebhookOutbox.Delivery.ACKNOWLEDGED);
+            }
+            CompletableFuture<WebhookOutbox.Delivery> future = new CompletableFuture<>();
+            held.add(future);
+            return future;
+        }
+
+        synchronized int size() {
+            return held.size();
+        }
+
+        synchronized List<String> delivered() {
+            return new ArrayList<>(delivered);
+        }
+
+        void completeAll() {
+            List<CompletableFuture<WebhookOutbox.Delivery>> pending;
+            synchronized (this) {
+                released = true;
+                pending = new ArrayList<>(held);
+            }
+            pending.forEach(future -> future.complete(WebhookOutbox.Delivery.ACKNOWLEDGED));
+        }
+    }
+}
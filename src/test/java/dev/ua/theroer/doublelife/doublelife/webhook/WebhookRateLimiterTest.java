@@ -0,0 +1,117 @@
+package dev.ua.theroer.doublelife.doublelife.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookRateLimiterTest {
+
+    private static final String ROUTE = "POST https://discord.test/api/webhooks/1/a";
+    private static final String OTHER_ROUTE = "PATCH https://discord.test/api/webhooks/1/a/messages";
+
+    private final WebhookRateLimiter limiter = new WebhookRateLimiter();
+
+    @Test
+    void unknownBucketSendsOneRequestAtATime() {
+        assertEquals(0L, limiter.delayFor(ROUTE, 0L));
+        limiter.acquire(ROUTE, 0L);
+        assertTrue(limiter.delayFor(ROUTE, 0L) > 0L);
+
+        limiter.update(ROUTE, 204, headers("stub", 5, 4, "1"), 10L);
+        assertEquals(0L, limiter.delayFor(ROUTE, 10L));
+    }
+
+    @Test
+    void holdsRequestsOnceTheBucketIsEmpty() {
+        limiter.acquire(ROUTE, 0L);
+        limiter.update(ROUTE, 204, headers("stub", 2, 1, "1.5"), 0L);
+
+        limiter.acquire(ROUTE, 0L);
+        assertEquals(1500L, limiter.delayFor(ROUTE, 0L));
+        assertEquals(500L, limiter.delayFor(ROUTE, 1000L));
+        assertEquals(0L, limiter.delayFor(ROUTE, 1500L));
+    }
+
+    @Test
+    void refillsTheBucketAfterTheReset() {
+        limiter.acquire(ROUTE, 0L);
+        limiter.update(ROUTE, 204, headers("stub", 2, 0, "1"), 0L);
+        assertEquals(1000L, limiter.delayFor(ROUTE, 0L));
+
+        limiter.acquire(ROUTE, 1000L);
+        limiter.acquire(ROUTE, 1000L);
+        assertEquals(1000L, limiter.delayFor(ROUTE, 1000L));
+    }
+
+    @Test
+    void countsRequestsStillInFlightAgainstTheReportedRemaining() {
+        limiter.acquire(ROUTE, 0L);
+        limiter.update(ROUTE, 204, headers("stub", 3, 2, "1"), 0L);
+        limiter.acquire(ROUTE, 0L);
+        limiter.acquire(ROUTE, 0L);
+
+        // The first of the two in-flight responses still reports one token left.
+        limiter.update(ROUTE, 204, headers("stub", 3, 1, "1"), 0L);
+        assertEquals(1000L, limiter.delayFor(ROUTE, 0L));
+    }
+
+    @Test
+    void rateLimitedResponseBlocksTheRouteUntilRetryAfter() {
+        limiter.acquire(ROUTE, 0L);
+        Map<String, List<String>> values = values("stub", 5, 3, "1");
+        values.put("Retry-After", List.of("2.5"));
+        limiter.update(ROUTE, 429, HttpHeaders.of(values, (name, value) -> true), 0L);
+
+        assertEquals(2500L, limiter.delayFor(ROUTE, 0L));
+        assertEquals(0L, limiter.delayFor(OTHER_ROUTE, 0L));
+    }
+
+    @Test
+    void globalRateLimitBlocksEveryRoute() {
+        limiter.acquire(ROUTE, 0L);
+        Map<String, List<String>> values = new HashMap<>();
+        values.put("Retry-After", List.of("3"));
+        values.put("X-RateLimit-Global", List.of("true"));
+        limiter.update(ROUTE, 429, HttpHeaders.of(values, (name, value) -> true), 0L);
+
+        assertEquals(3000L, limiter.delayFor(ROUTE, 0L));
+        assertEquals(3000L, limiter.delayFor(OTHER_ROUTE, 0L));
+    }
+
+    @Test
+    void routesReportingTheSameBucketShareTokens() {
+        limiter.acquire(ROUTE, 0L);
+        limiter.update(ROUTE, 204, headers("shared", 2, 1, "1"), 0L);
+        limiter.acquire(OTHER_ROUTE, 0L);
+        limiter.update(OTHER_ROUTE, 204, headers("shared", 2, 0, "1"), 0L);
+
+        assertEquals(1000L, limiter.delayFor(ROUTE, 0L));
+        assertEquals(1000L, limiter.delayFor(OTHER_ROUTE, 0L));
+    }
+
+    @Test
+    void responseWithoutHeadersOnlyReleasesTheToken() {
+        limiter.acquire(ROUTE, 0L);
+        limiter.update(ROUTE, 500, HttpHeaders.of(Map.of(), (name, value) -> true), 0L);
+        assertEquals(0L, limiter.delayFor(ROUTE, 0L));
+    }
+
+    private static HttpHeaders headers(String bucket, int limit, int remaining, String resetAfter) {
+        return HttpHeaders.of(values(bucket, limit, remaining, resetAfter), (name, value) -> true);
+    }
+
+    private static Map<String, List<String>> values(String bucket, int limit, int remaining, String resetAfter) {
+        Map<String, List<String>> values = new HashMap<>();
+        values.put("X-RateLimit-Bucket", List.of(bucket));
+        values.put("X-RateLimit-Limit", List.of(String.valueOf(limit)));
+        values.put("X-RateLimit-Remaining", List.of(String.valueOf(remaining)));
+        values.put("X-RateLimit-Reset-After", List.of(resetAfter));
+        return values;
+    }
+}
@@ -0,0 +1,80 @@
+package dev.ua.theroer.doublelife.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void emptySnapshotIsZero() {
+        Histogram.Snapshot snapshot = new Histogram().snapshot();
+        assertEquals(0L, snapshot.count());
+        assertEquals(0L, snapshot.quantileNanos(0.99));
+        assertEquals(0L, snapshot.maxNanos());
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (long value = 0; value < 8; value++) {
+            histogram.record(value);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(8L, snapshot.count());
+        assertEquals(28L, snapshot.sumNanos());
+        assertEquals(7L, snapshot.maxNanos());
+        assertEquals(3L, snapshot.quantileNanos(0.5));
+        assertEquals(7L, snapshot.quantileNanos(1.0));
+    }
+
+    @Test
+    void quantilesStayWithinTheBucketError() {
+        Random random = new Random(42);
+        long[] values = new long[20_000];
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 20);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+            long estimate = snapshot.quantileNanos(quantile);
+            assertTrue(Math.abs(estimate - exact) <= exact * 0.125 + 1,
+                "p" + quantile + " estimated " + estimate + ", exact " + exact);
+        }
+        assertEquals(values[values.length - 1], snapshot.maxNanos());
+        assertEquals(values[values.length - 1], snapshot.quantileNanos(1.0));
+    }
+
+    @Test
+    void bucketsAreContiguousAndMidpointsFallInside() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 16; value++) {
+            int index = Histogram.index(value);
+            assertTrue(index == previous || index == previous + 1, "gap at " + value);
+            previous = index;
+        }
+        for (long value : new long[]{9, 100, 1_000, 123_456, 50_000_000_000L}) {
+            int index = Histogram.index(value);
+            assertEquals(index, Histogram.index(Histogram.midpoint(index)));
+        }
+    }
+
+    @Test
+    void clampsOutOfRangeValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5L);
+        histogram.record(Long.MAX_VALUE);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2L, snapshot.count());
+        assertEquals(0L, snapshot.quantileNanos(0.5));
+        assertTrue(snapshot.maxNanos() < Long.MAX_VALUE);
+    }
+}